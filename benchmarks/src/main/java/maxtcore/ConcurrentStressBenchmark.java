@@ -0,0 +1,121 @@
+
+package maxtcore;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import timeperiod.*;
+
+/**
+ * Measures the throughput of one coordinating object used from several
+ * threads at once: three parlour threads record, change and delete milk
+ * takings across the herds of an estate while a reader thread calculates
+ * the MaxT value of every herd. Cows are neither added nor deleted and no
+ * journal is kept. The herd totals are checked after each iteration only
+ * as a sanity check; the concurrency guarantees themselves are tested by
+ * MaxTCoordStressTest.
+ * @author Michael Gallichan
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentStressBenchmark
+{
+    // class variables
+    private static final int FARMS = 4;
+    private static final int HERDS_PER_FARM = 4;
+    private static final int COWS_PER_HERD = 1000;
+    
+    // instance variables
+    private MaxTCoord maxT;
+    private Herd[] herds;
+    
+    /**
+     * Builds an estate of 16 herds of 1000 cows.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        maxT = Estates.newEstate(FARMS, HERDS_PER_FARM, COWS_PER_HERD);
+        herds = new Herd[FARMS * HERDS_PER_FARM];
+        int h = 0;
+        for (Farm eachFarm : maxT.getFarms())
+        {
+            for (Herd eachHerd : maxT.getHerds(eachFarm))
+            {
+                herds[h++] = eachHerd;
+            }
+        }
+    }
+    
+    /**
+     * Fails the run if any herd's running total no longer matches its cows.
+     */
+    @TearDown(Level.Iteration)
+    public void checkAggregates()
+    {
+        for (Herd eachHerd : herds)
+        {
+            if (!maxT.isHerdAggregateConsistent(eachHerd))
+            {
+                throw new IllegalStateException("The milk yield total of Herd '" + eachHerd.getId()
+                                                + "' drifted under concurrent updates.");
+            }
+        }
+    }
+    
+    /**
+     * Records, changes or removes the takings of a random cow in a random
+     * herd. The takings are looked up through the coordinating object, which
+     * checks again under the herd's lock, so takings another parlour has just
+     * added or deleted are neither duplicated nor brought back.
+     * @return the herd changed
+     */
+    @Benchmark
+    @Group("parlours")
+    @GroupThreads(3)
+    public Herd recordTakings()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Herd herd = herds[random.nextInt(herds.length)];
+        Cow cow = maxT.findCow(herd, Estates.cowId(random.nextInt(COWS_PER_HERD)));
+        TimePeriod session = (random.nextBoolean()) ? TimePeriod.AM : TimePeriod.PM;
+        
+        MilkTakings milkTakings = maxT.getMilkTakings(cow).get(session);
+        int choice = random.nextInt(8);
+        if (milkTakings == null)
+        {
+            maxT.createMilkTakings(session, Centilitres.fromLitres(10 + random.nextInt(3)), cow);
+        }
+        else if (choice == 0)
+        {
+            maxT.deleteMilkTakings(session, cow);
+        }
+        else
+        {
+            maxT.updateMilkTakings(milkTakings, 10 + random.nextInt(3));
+        }
+        
+        return herd;
+    }
+    
+    /**
+     * Calculates the MaxT value of every herd for the morning session.
+     * @return the sum of the MaxT values in seconds
+     */
+    @Benchmark
+    @Group("parlours")
+    @GroupThreads(1)
+    public int readMaxT()
+    {
+        int total = 0;
+        for (Herd eachHerd : herds)
+        {
+            total = total + maxT.getMaxTSeconds(maxT.getAvgYieldPerCow(eachHerd, TimePeriod.AM));
+        }
+        
+        return total;
+    }
+}
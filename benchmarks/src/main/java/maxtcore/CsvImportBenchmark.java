@@ -0,0 +1,104 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the import of a generated parlour export of 10 farms of 33 herds
+ * of 1,000 cows, each cow with both milk takings: 330,000 cows and 660,000
+ * milk takings, about 990,000 rows in all. Every import goes into a new
+ * coordinating object and fails if any row is rejected. For example:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CsvImportBenchmark
+ * </pre>
+ * @author Michael Gallichan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvImportBenchmark
+{
+    // class variables
+    private static final int FARMS = 10;
+    private static final int HERDS_PER_FARM = 33;
+    private static final int COWS_PER_HERD = 1000;
+    
+    // instance variables
+    private Path file;
+    
+    /**
+     * Writes the parlour export to a temporary file.
+     * @throws IOException if the file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("parlour", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writeExport(writer);
+        }
+    }
+    
+    /**
+     * Deletes the parlour export.
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+    
+    /**
+     * Imports the whole export into a new coordinating object.
+     * @return the import report
+     * @throws IOException if the export cannot be read
+     */
+    @Benchmark
+    public ImportReport importExport() throws IOException
+    {
+        ImportReport report = new CsvImporter(MaxTCoord.getMaxT()).importCsv(file);
+        if (report.getRowsRejected() != 0
+            || report.getMilkTakingsAdded() != 2 * FARMS * HERDS_PER_FARM * COWS_PER_HERD)
+        {
+            throw new IllegalStateException("The export did not import cleanly: " + report);
+        }
+        
+        return report;
+    }
+    
+    // private protocol
+    
+    /**
+     * Writes each herd's rows together, as parlour software exports them.
+     */
+    private static void writeExport(Writer aWriter) throws IOException
+    {
+        for (int f = 0; f < FARMS; f++)
+        {
+            String farmId = Estates.farmId(f);
+            aWriter.write("FARM," + farmId + ",Farm " + f + ",Field " + f + "\n");
+            for (int h = 0; h < HERDS_PER_FARM; h++)
+            {
+                String herdId = Estates.herdId(h);
+                String herdFields = farmId + "," + herdId + ",";
+                aWriter.write("HERD," + herdFields + "Herd " + h + "," + (h % 2 == 0 ? "8" : "9") + "\n");
+                for (int c = 0; c < COWS_PER_HERD; c++)
+                {
+                    String cowId = Estates.cowId(c);
+                    aWriter.write("COW," + herdFields + cowId + "\n");
+                    aWriter.write("TAKINGS," + herdFields + cowId + ",AM," + (10 + c % 3) + ".25\n");
+                    aWriter.write("TAKINGS," + herdFields + cowId + ",PM," + (10 + c % 2) + ".5\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+
+package maxtcore;
+
+import java.util.*;
+import milkingintervals.*;
+import timeperiod.*;
+
+/**
+ * Builds synthetic estates for the benchmarks. Every estate has a complete
+ * Yield Table, and every cow has both milk takings recorded with yields
+ * chosen so that herd averages fall inside the Yield Table and the MaxT
+ * Table, so the whole calculation path is exercised.
+ * @author Michael Gallichan
+ */
+final class Estates
+{
+    // class variables
+    private static final long SEED = 20171108L;
+    
+    // constructor
+    /**
+     * Prevents Estates objects being created; all methods are static.
+     */
+    private Estates()
+    {
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns a coordinating object holding one farm with the given number of
+     * herds, each with the given number of cows.
+     * @param aNumberOfHerds the number of herds on the farm
+     * @param aCowsPerHerd the number of cows in each herd
+     * @return a MaxTCoord object
+     */
+    static MaxTCoord newEstate(int aNumberOfHerds, int aCowsPerHerd)
+    {
+        return newEstate(1, aNumberOfHerds, aCowsPerHerd);
+    }
+    
+    /**
+     * Returns a coordinating object holding the given number of farms, each
+     * with the given number of herds of the given number of cows.
+     * @param aNumberOfFarms the number of farms
+     * @param aHerdsPerFarm the number of herds on each farm
+     * @param aCowsPerHerd the number of cows in each herd
+     * @return a MaxTCoord object
+     */
+    static MaxTCoord newEstate(int aNumberOfFarms, int aHerdsPerFarm, int aCowsPerHerd)
+    {
+        return newEstate(aNumberOfFarms, aHerdsPerFarm, aCowsPerHerd, false, 0);
+    }
+    
+    /**
+     * Returns a coordinating object holding the given number of farms, each
+     * with the given number of herds of the given number of cows, in compact
+     * or object storage, with the given number of days of milking history.
+     * @param aNumberOfFarms the number of farms
+     * @param aHerdsPerFarm the number of herds on each farm
+     * @param aCowsPerHerd the number of cows in each herd
+     * @param isCompact whether the herds keep their cows in compact storage
+     * @param aNumberOfDays the number of days closed before today
+     * @return a MaxTCoord object
+     */
+    static MaxTCoord newEstate(int aNumberOfFarms, int aHerdsPerFarm, int aCowsPerHerd,
+                               boolean isCompact, int aNumberOfDays)
+    {
+        Random random = new Random(SEED);
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.setCompactHerds(isCompact);
+        fillYieldTable(maxT);
+        
+        MilkingIntervals[] intervals = MilkingIntervals.values();
+        for (int f = 0; f < aNumberOfFarms; f++)
+        {
+            Farm farm = maxT.createFarm(farmId(f), "Farm " + f, "Field " + f);
+            for (int h = 0; h < aHerdsPerFarm; h++)
+            {
+                Herd herd = maxT.createHerd(herdId(h), "Herd " + h, intervals[h % intervals.length], farm);
+                for (int c = 0; c < aCowsPerHerd; c++)
+                {
+                    maxT.createCow(cowId(c), herd);
+                }
+            }
+        }
+        
+        for (int d = 0; d < aNumberOfDays; d++)
+        {
+            addMilkTakings(maxT, random);
+            maxT.advanceDay();
+        }
+        addMilkTakings(maxT, random);
+        
+        return maxT;
+    }
+    
+    /**
+     * Returns the ID given to the farm with the given number.
+     */
+    static String farmId(int aNumber)
+    {
+        return "F" + aNumber;
+    }
+    
+    /**
+     * Returns the ID given to the herd with the given number.
+     */
+    static String herdId(int aNumber)
+    {
+        return "H" + aNumber;
+    }
+    
+    /**
+     * Returns the ID given to the cow with the given number.
+     */
+    static String cowId(int aNumber)
+    {
+        return "C" + aNumber;
+    }
+    
+    // private protocol
+    
+    /**
+     * Records both milk takings for every cow in the estate.
+     */
+    private static void addMilkTakings(MaxTCoord aMaxT, Random aRandom)
+    {
+        for (Farm eachFarm : aMaxT.getFarms())
+        {
+            for (Herd eachHerd : aMaxT.getHerds(eachFarm))
+            {
+                for (Cow eachCow : aMaxT.getCows(eachHerd))
+                {
+                    // daily yields of 20 to 25 litres keep averages in the table
+                    aMaxT.addMilkTakings(TimePeriod.AM, 10 + aRandom.nextInt(3), eachCow);
+                    aMaxT.addMilkTakings(TimePeriod.PM, 10 + aRandom.nextInt(3), eachCow);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gives every Yield Table cell a yield per milking that the default MaxT
+     * Table covers.
+     */
+    private static void fillYieldTable(MaxTCoord aMaxT)
+    {
+        YieldTable yieldTable = aMaxT.getLinkedYieldTable();
+        int[] cellValues = new int[yieldTable.getNumberOfCells()];
+        for (int i = 0; i < cellValues.length; i++)
+        {
+            cellValues[i] = 8 + i % 8;  // 8 to 15 litres per milking
+        }
+        yieldTable.setCellValues(cellValues);
+    }
+}
@@ -0,0 +1,97 @@
+
+package maxtcore;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import timeperiod.*;
+
+/**
+ * Measures the herd calculations on the MaxT calculation path, and the
+ * generation of the statistics shown for a whole farm, for herds of 1 to
+ * 100,000 cows.
+ * @author Michael Gallichan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HerdBenchmark
+{
+    // class variables
+    private static final int HERDS_PER_FARM = 8;
+    
+    // instance variables
+    @Param({"1", "100", "10000", "100000"})
+    public int cowsPerHerd;
+    
+    private MaxTCoord maxT;
+    private Farm farm;
+    private Herd herd;
+    
+    /**
+     * Builds a farm of eight herds of cowsPerHerd cows.
+     */
+    @Setup
+    public void setUp()
+    {
+        maxT = Estates.newEstate(HERDS_PER_FARM, cowsPerHerd);
+        farm = maxT.findFarm(Estates.farmId(0));
+        herd = maxT.findHerd(farm, Estates.herdId(0));
+    }
+    
+    /**
+     * Calculates the average daily milk yield of a herd.
+     * @return the average daily milk yield
+     */
+    @Benchmark
+    public int herdGetAvgDailyMilkYield()
+    {
+        return herd.getAvgDailyMilkYield();
+    }
+    
+    /**
+     * Calculates the expected yield per cow of a herd for a milking session.
+     * @return the expected yield per cow
+     */
+    @Benchmark
+    public int coordGetAvgYieldPerCow()
+    {
+        return maxT.getAvgYieldPerCow(herd, TimePeriod.AM);
+    }
+    
+    /**
+     * Calculates the MaxT value of a herd for a milking session, from the
+     * herd's cows to the formatted value.
+     * @return the MaxT value as min:sec
+     */
+    @Benchmark
+    public String coordGetMaxTValue()
+    {
+        return maxT.getMaxTValue(maxT.getAvgYieldPerCow(herd, TimePeriod.PM));
+    }
+    
+    /**
+     * Calculates the MaxT value of a herd for a milking session through the
+     * MaxT value worked out in advance for each Yield Table cell, without a
+     * MaxT Table lookup or formatting.
+     * @return the MaxT value as min:sec
+     */
+    @Benchmark
+    public String coordGetCachedMaxTValue()
+    {
+        return maxT.getMaxTValue(herd, TimePeriod.PM);
+    }
+    
+    /**
+     * Generates the statistics table shown for the whole farm.
+     * @return the statistics table
+     */
+    @Benchmark
+    public String farmStats()
+    {
+        return maxT.getReport(Collections.singletonList(farm)).getFarmText(0);
+    }
+}
@@ -0,0 +1,100 @@
+
+package maxtcore;
+
+import java.lang.management.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the heap kept by a herd in object and compact storage, with and
+ * without a month of milking history. Each iteration builds one herd and
+ * reports the heap it retains as the bytesPerCow counter, next to the time
+ * taken to build it. For example:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar HerdFootprintBenchmark
+ * </pre>
+ * @author Michael Gallichan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HerdFootprintBenchmark
+{
+    // class variables
+    private static final int GC_ROUNDS = 3;
+    
+    // instance variables
+    @Param({"10000", "100000"})
+    public int cowsPerHerd;
+    
+    @Param({"false", "true"})
+    public boolean compact;
+    
+    @Param({"0", "30"})
+    public int days;
+    
+    private MaxTCoord maxT;  // keeps the herd reachable while it is measured
+    
+    /**
+     * The heap retained per cow, reported alongside the build time.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint
+    {
+        public long bytesPerCow;
+        
+        /**
+         * Clears the counter for the next iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            bytesPerCow = 0;
+        }
+    }
+    
+    /**
+     * Drops the herd built by the previous iteration.
+     */
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        maxT = null;
+    }
+    
+    /**
+     * Builds a herd of cowsPerHerd cows with days days of history and
+     * measures the heap it retains.
+     * @param aFootprint the counters to report
+     * @return the coordinating object holding the herd
+     */
+    @Benchmark
+    public MaxTCoord buildHerd(Footprint aFootprint)
+    {
+        long before = usedHeap();
+        maxT = Estates.newEstate(1, 1, cowsPerHerd, compact, days);
+        long after = usedHeap();
+        aFootprint.bytesPerCow = (after - before) / cowsPerHerd;
+        
+        return maxT;
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns the heap in use once garbage has been collected.
+     */
+    private static long usedHeap()
+    {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < GC_ROUNDS; i++)
+        {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
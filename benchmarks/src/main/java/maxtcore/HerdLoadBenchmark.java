@@ -0,0 +1,93 @@
+
+package maxtcore;
+
+import java.util.*;
+import java.util.concurrent.*;
+import milkingintervals.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures adding every cow of a herd, as the importer and journal replay
+ * do, with the cows arriving in ID order or shuffled, in object and compact
+ * storage. A compact herd keeps its cows in ID order, so a shuffled load
+ * shows the cost of inserting each cow into that order. For example:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar HerdLoadBenchmark -p compact=true
+ * </pre>
+ * @author Michael Gallichan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HerdLoadBenchmark
+{
+    // class variables
+    private static final long SEED = 20171108L;
+    
+    // instance variables
+    @Param({"10000", "100000", "1000000"})
+    public int cowsPerHerd;
+    
+    @Param({"false", "true"})
+    public boolean compact;
+    
+    @Param({"false", "true"})
+    public boolean shuffled;
+    
+    private String[] cowIds;  // in the order the cows are added
+    private MaxTCoord maxT;
+    private Herd herd;
+    
+    /**
+     * Makes the cow IDs, padded so that their number order is also their ID
+     * order, and shuffles them if asked.
+     */
+    @Setup(Level.Trial)
+    public void makeIds()
+    {
+        List<String> ids = new ArrayList<>(cowsPerHerd);
+        for (int i = 0; i < cowsPerHerd; i++)
+        {
+            ids.add(String.format("C%07d", i));
+        }
+        if (shuffled)
+        {
+            Collections.shuffle(ids, new Random(SEED));
+        }
+        cowIds = ids.toArray(new String[cowsPerHerd]);
+    }
+    
+    /**
+     * Starts each iteration with an empty herd.
+     */
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        maxT = MaxTCoord.getMaxT();
+        maxT.setCompactHerds(compact);
+        Farm farm = maxT.createFarm(Estates.farmId(0), "Farm 0", "Field 0");
+        herd = maxT.createHerd(Estates.herdId(0), "Herd 0", MilkingIntervals.EIGHT, farm);
+    }
+    
+    /**
+     * Adds cowsPerHerd cows to the empty herd.
+     * @return the herd
+     */
+    @Benchmark
+    public Herd loadHerd()
+    {
+        for (String eachId : cowIds)
+        {
+            maxT.createCow(eachId, herd);
+        }
+        if (herd.getNumberOfCows() != cowsPerHerd)
+        {
+            throw new IllegalStateException("Only " + herd.getNumberOfCows() + " cows were added.");
+        }
+        
+        return herd;
+    }
+}
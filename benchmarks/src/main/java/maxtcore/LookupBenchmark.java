@@ -0,0 +1,113 @@
+
+package maxtcore;
+
+import java.util.concurrent.*;
+import farmingresources.*;
+import milkingintervals.*;
+import org.openjdk.jmh.annotations.*;
+import timeperiod.*;
+
+/**
+ * Measures the Yield Table and MaxT Table lookups on the MaxT calculation
+ * path. Each call takes the next of a fixed set of inputs so the lookups
+ * cannot be folded into constants.
+ * @author Michael Gallichan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark
+{
+    // class variables
+    private static final int INPUTS = 64;  // a power of two, so the next input is a mask away
+    
+    // instance variables
+    private YieldTable yieldTable;
+    private MaxTTable maxTTable;
+    private int[] avgDailyYields;
+    private MilkingIntervals[] intervals;
+    private TimePeriod[] sessions;
+    private String[] mapKeys;
+    private int[] yieldsPerMilking;
+    private int next;
+    
+    /**
+     * Builds a complete Yield Table and the inputs for the lookups.
+     */
+    @Setup
+    public void setUp()
+    {
+        MaxTCoord maxT = Estates.newEstate(0, 0);
+        yieldTable = maxT.getLinkedYieldTable();
+        maxTTable = maxT.getMaxTTable();
+        
+        avgDailyYields = new int[INPUTS];
+        intervals = new MilkingIntervals[INPUTS];
+        sessions = new TimePeriod[INPUTS];
+        mapKeys = new String[INPUTS];
+        yieldsPerMilking = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i++)
+        {
+            avgDailyYields[i] = yieldTable.getMinYield() + i % 6;
+            intervals[i] = MilkingIntervals.values()[i % 2];
+            sessions[i] = TimePeriod.values()[(i / 2) % 2];
+            mapKeys[i] = yieldTable.getMapKey(avgDailyYields[i], intervals[i], sessions[i]);
+            yieldsPerMilking[i] = 5 + i % 20;  // includes yields outside the MaxT Table
+        }
+    }
+    
+    /**
+     * Looks up a Yield Table value by average daily yield, interval and session.
+     * @return the yield value
+     */
+    @Benchmark
+    public int yieldTableGetValue()
+    {
+        int i = next++ & (INPUTS - 1);
+        return yieldTable.getValue(avgDailyYields[i], intervals[i], sessions[i]);
+    }
+    
+    /**
+     * Looks up a Yield Table value by map key.
+     * @return the yield value
+     */
+    @Benchmark
+    public int yieldTableGetValueByKey()
+    {
+        return yieldTable.getValue(mapKeys[next++ & (INPUTS - 1)]);
+    }
+    
+    /**
+     * Builds a Yield Table map key.
+     * @return the map key
+     */
+    @Benchmark
+    public String yieldTableGetMapKey()
+    {
+        int i = next++ & (INPUTS - 1);
+        return yieldTable.getMapKey(avgDailyYields[i], intervals[i], sessions[i]);
+    }
+    
+    /**
+     * Looks up a formatted MaxT value.
+     * @return the MaxT value as min:sec, or null if there is none
+     */
+    @Benchmark
+    public String maxTTableGetMaxTValue()
+    {
+        return maxTTable.getMaxTValue(yieldsPerMilking[next++ & (INPUTS - 1)]);
+    }
+    
+    /**
+     * Looks up a MaxT value in seconds.
+     * @return the MaxT value in seconds
+     */
+    @Benchmark
+    public int maxTTableGetMaxTSeconds()
+    {
+        return maxTTable.getMaxTSeconds(yieldsPerMilking[next++ & (INPUTS - 1)]);
+    }
+}
@@ -0,0 +1,59 @@
+
+package maxtcore;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the MaxT report of a 400-farm cooperative, calculated on the
+ * calling thread and in parallel.
+ * @author Michael Gallichan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportBenchmark
+{
+    // class variables
+    private static final int FARMS = 400;
+    private static final int HERDS_PER_FARM = 10;
+    
+    // instance variables
+    @Param({"10", "100"})
+    public int cowsPerHerd;
+    
+    @Param({"sequential", "parallel"})
+    public String mode;
+    
+    private MaxTCoord maxT;
+    
+    /**
+     * Builds the cooperative and sets the report mode.
+     */
+    @Setup
+    public void setUp()
+    {
+        maxT = Estates.newEstate(FARMS, HERDS_PER_FARM, cowsPerHerd);
+        if (mode.equals("sequential"))
+        {
+            maxT.setReportParallelism(1);
+        }
+        else
+        {
+            maxT.setParallelReportThreshold(0);
+        }
+    }
+    
+    /**
+     * Calculates the report of every herd of every farm.
+     * @return the report
+     */
+    @Benchmark
+    public MaxTReport estateReport()
+    {
+        return maxT.getReport();
+    }
+}
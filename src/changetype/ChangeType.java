@@ -0,0 +1,101 @@
+
+package changetype;
+
+/**
+ * Provides constants to represent the kinds of change a coordinating object
+ * reports to its listeners.
+ * @author Michael Gallichan
+ */
+public enum ChangeType
+{
+    /**
+     * Represents a farm being added.
+     */
+    FARM_ADDED,
+    /**
+     * Represents a farm being deleted.
+     */
+    FARM_DELETED,
+    /**
+     * Represents a herd being added to a farm.
+     */
+    HERD_ADDED,
+    /**
+     * Represents a herd being deleted from a farm.
+     */
+    HERD_DELETED,
+    /**
+     * Represents a setting of a herd, such as its average window, being
+     * changed.
+     */
+    HERD_UPDATED,
+    /**
+     * Represents a cow being added to a herd.
+     */
+    COW_ADDED,
+    /**
+     * Represents a cow being deleted from a herd.
+     */
+    COW_DELETED,
+    /**
+     * Represents milk takings being recorded for a cow.
+     */
+    MILK_TAKINGS_ADDED,
+    /**
+     * Represents the milk yield of recorded milk takings being changed.
+     */
+    MILK_TAKINGS_UPDATED,
+    /**
+     * Represents milk takings being deleted from a cow.
+     */
+    MILK_TAKINGS_DELETED,
+    /**
+     * Represents a Yield Table value being changed.
+     */
+    YIELD_VALUE_UPDATED,
+    /**
+     * Represents several Yield Table values being changed together.
+     */
+    YIELD_TABLE_UPDATED,
+    /**
+     * Represents today's milk takings being moved into the milking history
+     * and a new day starting.
+     */
+    DAY_ADVANCED;
+    
+    /**
+     * Returns the kind of change as a String.
+     * @return a String representation of the kind of change
+     */
+    @Override
+    public String toString()
+    {
+        switch (this)
+        {
+            case FARM_ADDED: return "Farm added";
+            case FARM_DELETED: return "Farm deleted";
+            case HERD_ADDED: return "Herd added";
+            case HERD_DELETED: return "Herd deleted";
+            case HERD_UPDATED: return "Herd updated";
+            case COW_ADDED: return "Cow added";
+            case COW_DELETED: return "Cow deleted";
+            case MILK_TAKINGS_ADDED: return "Milk takings added";
+            case MILK_TAKINGS_UPDATED: return "Milk takings updated";
+            case MILK_TAKINGS_DELETED: return "Milk takings deleted";
+            case YIELD_VALUE_UPDATED: return "Yield value updated";
+            case YIELD_TABLE_UPDATED: return "Yield Table updated";
+            default: return "Day advanced";
+        }
+    }
+    
+    /**
+     * Confirms whether the change alters a value in place rather than adding
+     * or deleting something, so that a later change of the same kind to the
+     * same value supersedes it.
+     * @return true for updates, false for additions and deletions
+     */
+    public boolean isUpdate()
+    {
+        return this == MILK_TAKINGS_UPDATED || this == YIELD_VALUE_UPDATED || this == YIELD_TABLE_UPDATED;
+    }
+}
@@ -0,0 +1,39 @@
+
+package edgepolicy;
+
+/**
+ * Provides three constants to represent how a table lookup treats values
+ * beyond the first and last rows of the table.
+ * @author Michael Gallichan
+ */
+public enum EdgePolicy
+{
+    /**
+     * Represents giving no value outside the table.
+     */
+    NONE,
+    /**
+     * Represents using the value of the nearest row outside the table.
+     */
+    CLAMP,
+    /**
+     * Represents continuing the slope of the nearest two rows outside the
+     * table.
+     */
+    EXTRAPOLATE;
+    
+    /**
+     * Returns the edge policy as a String.
+     * @return a String representation of the edge policy
+     */
+    @Override
+    public String toString()
+    {
+        switch (this)
+        {
+            case NONE: return "None";
+            case CLAMP: return "Clamp";
+            default: return "Extrapolate";
+        }
+    }
+}
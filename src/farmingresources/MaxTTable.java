@@ -1,52 +1,295 @@
 package farmingresources;
 
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
+import edgepolicy.*;
 
 /**
- * Stores MaxT time values (min:sec) according to yield per milking (in litres)
+ * Stores MaxT time values (min:sec) according to yield per milking (in litres).
+ * MaxTTable objects are immutable, so a single table can be shared by any
+ * number of coordinators and read from several threads at once.
  * @author Michael Gallichan
  */
 public class MaxTTable
 {
     // class variables
-    private final Map<Integer, String> maxTValues;
+    /**
+     * The number of seconds returned when there is no MaxT value for a yield.
+     */
+    public static final int NO_VALUE = -1;
+    
+    private static final int DEFAULT_MIN_YIELD = 7;
+    private static final int[] DEFAULT_SECONDS = {291, 320, 348, 375, 402,   // 04:51 .. 06:42
+                                                  427, 452, 477, 501, 524};  // 07:07 .. 08:44
+    private static final MaxTTable DEFAULT_TABLE = new MaxTTable();
     
-    // constructor
+    // instance variables
+    private final int minYield;
+    private final int[] maxTSeconds;  // one MaxT in seconds per litre from minYield
+    private final EdgePolicy edgePolicy;
+    
+    // constructors
     
     /**
      * Creates a new MaxTTable object with the preset values.
      */
     MaxTTable()
     {
-        maxTValues = new TreeMap<>();
-        
-        maxTValues.put(7, "04:51");
-        maxTValues.put(8, "05:20");
-        maxTValues.put(9, "05:48");
-        maxTValues.put(10, "06:15");
-        maxTValues.put(11, "06:42");
-        maxTValues.put(12, "07:07");
-        maxTValues.put(13, "07:32");
-        maxTValues.put(14, "07:57");
-        maxTValues.put(15, "08:21");
-        maxTValues.put(16, "08:44");
+        this(DEFAULT_MIN_YIELD, DEFAULT_SECONDS, EdgePolicy.NONE);
+    }
+    
+    /**
+     * Creates a new MaxTTable object with the given values.
+     * @param aMinYield the yield per milking of the first row
+     * @param someMaxTSeconds the MaxT in seconds for each litre from aMinYield,
+     *        which must not be changed afterwards
+     * @param anEdgePolicy how yields beyond the first and last rows are treated
+     */
+    MaxTTable(int aMinYield, int[] someMaxTSeconds, EdgePolicy anEdgePolicy)
+    {
+        minYield = aMinYield;
+        maxTSeconds = someMaxTSeconds;
+        edgePolicy = anEdgePolicy;
     }
     
     // public protocol
-
+    
     /**
-     * Returns a MaxTTable in the default state
+     * Returns the shared MaxTTable in the default state
      * @return a MaxT Table
      */
     public static MaxTTable getMaxTTable()
     {
-        MaxTTable maxTTable = new MaxTTable();
+        return DEFAULT_TABLE;
+    }
+    
+    /**
+     * Reads a MaxTTable from the given file. Each line of the file holds a
+     * yield per milking in litres and its MaxT value as min:sec, separated by
+     * a comma, for example "7,04:51". The yields must rise by one litre per
+     * line. Blank lines and lines starting with '#' are ignored.
+     * @param aFile a file of MaxT values
+     * @return a MaxT Table holding the values of aFile with no values beyond
+     * its first and last rows
+     * 
+     * @throws IOException if aFile cannot be read or is not in the expected
+     * format
+     */
+    public static MaxTTable loadMaxTTable(Path aFile) throws IOException
+    {
+        int firstYield = 0;
+        List<Integer> seconds = new ArrayList<>();
         
-        return maxTTable;
+        try (BufferedReader reader = Files.newBufferedReader(aFile, StandardCharsets.UTF_8))
+        {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                {
+                    continue;
+                }
+                
+                int comma = line.indexOf(',');
+                int colon = line.indexOf(':', comma + 1);
+                if (comma < 0 || colon < 0)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + aFile + " is not in the form yield,mm:ss.");
+                }
+                
+                int yield;
+                int minutes;
+                int secs;
+                try
+                {
+                    yield = Integer.parseInt(line.substring(0, comma).trim());
+                    minutes = Integer.parseInt(line.substring(comma + 1, colon).trim());
+                    secs = Integer.parseInt(line.substring(colon + 1).trim());
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + aFile + " is not in the form yield,mm:ss.");
+                }
+                
+                if (seconds.isEmpty())
+                {
+                    firstYield = yield;
+                }
+                else if (yield != firstYield + seconds.size())
+                {
+                    throw new IOException("Line " + lineNumber + " of " + aFile + " does not follow on from the yield before it.");
+                }
+                if (minutes < 0 || secs < 0 || secs > 59)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + aFile + " has an invalid MaxT value.");
+                }
+                seconds.add(minutes * 60 + secs);
+            }
+        }
+        
+        if (seconds.isEmpty())
+        {
+            throw new IOException(aFile + " contains no MaxT values.");
+        }
+        
+        int[] maxTSeconds = new int[seconds.size()];
+        for (int i = 0; i < maxTSeconds.length; i++)
+        {
+            maxTSeconds[i] = seconds.get(i);
+        }
+        
+        return new MaxTTable(firstYield, maxTSeconds, EdgePolicy.NONE);
+    }
+    
+    /**
+     * Returns a MaxTTable with the same values as the receiver that treats
+     * yields beyond the first and last rows according to the given policy.
+     * @param anEdgePolicy an edge policy
+     * @return a MaxT Table
+     */
+    public MaxTTable withEdgePolicy(EdgePolicy anEdgePolicy)
+    {
+        return new MaxTTable(minYield, maxTSeconds, anEdgePolicy);
+    }
+    
+    /**
+     * Returns the receiver's edge policy.
+     * @return edgePolicy
+     */
+    public EdgePolicy getEdgePolicy()
+    {
+        return edgePolicy;
+    }
+    
+    /**
+     * Returns the yield per milking of the first row.
+     * @return minYield
+     */
+    public int getMinYield()
+    {
+        return minYield;
     }
     
+    /**
+     * Returns the yield per milking of the last row.
+     * @return the largest yield per milking with a MaxT value in the table
+     */
+    public int getMaxYield()
+    {
+        return minYield + maxTSeconds.length - 1;
+    }
+    
+    /**
+     * Returns the MaxT value for the given yield per milking as a min:sec
+     * string.
+     * @param aYieldPerMilking a yield per milking in litres
+     * @return the MaxT value formatted as mm:ss, or null if there is none
+     */
     public String getMaxTValue(int aYieldPerMilking)
     {
-        return maxTValues.get(aYieldPerMilking);
+        int seconds = getMaxTSeconds(aYieldPerMilking);
+        if (seconds == NO_VALUE)
+        {
+            return null;
+        }
+        
+        return formatMaxT(seconds);
+    }
+    
+    /**
+     * Returns the MaxT value for the given yield per milking in seconds.
+     * @param aYieldPerMilking a yield per milking in litres
+     * @return the MaxT value in seconds, or NO_VALUE if there is none
+     */
+    public int getMaxTSeconds(int aYieldPerMilking)
+    {
+        int row = aYieldPerMilking - minYield;
+        if (row >= 0 && row < maxTSeconds.length)
+        {
+            return maxTSeconds[row];
+        }
+        
+        return getEdgeSeconds(row);
+    }
+    
+    /**
+     * Returns the MaxT value for the given yield per milking in seconds,
+     * interpolating linearly between the rows either side of it.
+     * @param aYieldPerMilking a yield per milking in litres
+     * @return the MaxT value in seconds rounded to the nearest second, or
+     * NO_VALUE if there is none or aYieldPerMilking is not a finite number
+     */
+    public int getMaxTSeconds(double aYieldPerMilking)
+    {
+        if (Double.isNaN(aYieldPerMilking) || Double.isInfinite(aYieldPerMilking))
+        {
+            return NO_VALUE;
+        }
+        
+        double position = aYieldPerMilking - minYield;
+        int row = (int) Math.floor(position);
+        int last = maxTSeconds.length - 1;
+        if (row >= 0 && row < last)
+        {
+            double fraction = position - row;
+            return (int) Math.round(maxTSeconds[row]
+                                    + (maxTSeconds[row + 1] - maxTSeconds[row]) * fraction);
+        }
+        if (row == last && position == last)
+        {
+            return maxTSeconds[last];
+        }
+        
+        return getEdgeSeconds(position);
+    }
+    
+    /**
+     * Formats the given number of seconds as a min:sec string.
+     * @param aNumberOfSeconds a MaxT value in seconds
+     * @return the MaxT value formatted as mm:ss
+     */
+    public static String formatMaxT(int aNumberOfSeconds)
+    {
+        return String.format("%02d:%02d", aNumberOfSeconds / 60, aNumberOfSeconds % 60);
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns the MaxT in seconds for a position before the first row or
+     * after the last row, measured in litres from the first row, according to
+     * the edge policy.
+     */
+    private int getEdgeSeconds(double aPosition)
+    {
+        int last = maxTSeconds.length - 1;
+        switch (edgePolicy)
+        {
+            case CLAMP:
+                return (aPosition < 0) ? maxTSeconds[0] : maxTSeconds[last];
+            case EXTRAPOLATE:
+                if (last == 0)
+                {
+                    return maxTSeconds[0];
+                }
+                double seconds;
+                if (aPosition < 0)
+                {
+                    seconds = maxTSeconds[0] + (maxTSeconds[1] - maxTSeconds[0]) * aPosition;
+                }
+                else
+                {
+                    seconds = maxTSeconds[last]
+                            + (maxTSeconds[last] - maxTSeconds[last - 1]) * (aPosition - last);
+                }
+                return (int) Math.max(0, Math.round(seconds));
+            default:
+                return NO_VALUE;
+        }
     }
 }
@@ -0,0 +1,173 @@
+
+package maxtcore;
+
+import java.math.*;
+
+/**
+ * Converts, rounds, reads and writes milk yields held as whole numbers of
+ * centilitres. Yields are kept in centilitres throughout the system so that
+ * a herd averaging 20.9 litres is not treated as 20, and all the arithmetic
+ * stays on primitive values. Averages are kept to the nearest centilitre
+ * and rounded to litres only where a whole number of litres is needed.
+ * @author Michael Gallichan
+ */
+public class Centilitres
+{
+    // class variables
+    /**
+     * The number of centilitres in a litre.
+     */
+    public static final int PER_LITRE = 100;
+    private static final int MAX_WHOLE_LITRE_DIGITS = 7;
+    private static final int MAX_DECIMAL_DIGITS = 2;
+    
+    // constructor
+    /**
+     * Prevents Centilitres objects being created; all methods are static.
+     */
+    private Centilitres()
+    {
+    }
+    
+    // public protocol
+    
+    /**
+     * Returns the given number of litres in centilitres.
+     * @param aNumberOfLitres a milk yield in litres
+     * @return the milk yield in centilitres
+     *
+     * @throws IllegalArgumentException if the result does not fit an int
+     */
+    public static int fromLitres(int aNumberOfLitres) throws IllegalArgumentException
+    {
+        try
+        {
+            return Math.multiplyExact(aNumberOfLitres, PER_LITRE);
+        }
+        catch (ArithmeticException e)
+        {
+            throw new IllegalArgumentException(aNumberOfLitres + " litres is too large a milk yield.", e);
+        }
+    }
+    
+    /**
+     * Returns the given number of centilitres in whole litres, rounded as
+     * the given rounding mode says.
+     * @param aNumberOfCentilitres a milk yield in centilitres
+     * @param aRoundingMode the rounding to apply
+     * @return the milk yield in litres
+     *
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and the
+     * milk yield is not a whole number of litres
+     */
+    public static int toLitres(long aNumberOfCentilitres, RoundingMode aRoundingMode) throws ArithmeticException
+    {
+        return (int) divide(aNumberOfCentilitres, PER_LITRE, aRoundingMode);
+    }
+    
+    /**
+     * Divides one whole number by another, rounding the quotient as the
+     * given rounding mode says, without creating any objects.
+     * @param aDividend the number to divide
+     * @param aDivisor the number to divide by, greater than zero
+     * @param aRoundingMode the rounding to apply
+     * @return the rounded quotient
+     *
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and the
+     * division is not exact
+     */
+    public static long divide(long aDividend, long aDivisor, RoundingMode aRoundingMode) throws ArithmeticException
+    {
+        long quotient = aDividend / aDivisor;
+        long remainder = Math.abs(aDividend % aDivisor);
+        if (remainder == 0)
+        {
+            return quotient;
+        }
+        
+        int sign = (aDividend < 0) ? -1 : 1;
+        long rest = aDivisor - remainder;  // compared with the remainder to find the nearer neighbour
+        boolean awayFromZero;
+        switch (aRoundingMode)
+        {
+            case UP: awayFromZero = true; break;
+            case DOWN: awayFromZero = false; break;
+            case CEILING: awayFromZero = (sign > 0); break;
+            case FLOOR: awayFromZero = (sign < 0); break;
+            case HALF_UP: awayFromZero = (remainder >= rest); break;
+            case HALF_DOWN: awayFromZero = (remainder > rest); break;
+            case HALF_EVEN: awayFromZero = (remainder > rest || (remainder == rest && (quotient & 1) != 0)); break;
+            default: throw new ArithmeticException("Rounding is necessary to divide " + aDividend + " by " + aDivisor + ".");
+        }
+        
+        return awayFromZero ? quotient + sign : quotient;
+    }
+    
+    /**
+     * Reads a milk yield written in litres with up to two decimal places,
+     * such as "21", "20.9" or "20.95".
+     * @param aText the text to read
+     * @return the milk yield in centilitres, or -1 if aText is not a yield of
+     * zero or more with at most two decimal places
+     */
+    public static int parse(String aText)
+    {
+        int point = aText.indexOf('.');
+        int wholeEnd = (point < 0) ? aText.length() : point;
+        int decimals = (point < 0) ? 0 : aText.length() - point - 1;
+        if (wholeEnd == 0 || wholeEnd > MAX_WHOLE_LITRE_DIGITS
+            || (point >= 0 && (decimals == 0 || decimals > MAX_DECIMAL_DIGITS)))
+        {
+            return -1;
+        }
+        
+        int centilitres = 0;
+        for (int i = 0; i < aText.length(); i++)
+        {
+            if (i == point)
+            {
+                continue;
+            }
+            char digit = aText.charAt(i);
+            if (digit < '0' || digit > '9')
+            {
+                return -1;
+            }
+            centilitres = centilitres * 10 + (digit - '0');
+        }
+        for (int i = decimals; i < MAX_DECIMAL_DIGITS; i++)
+        {
+            centilitres = centilitres * 10;
+        }
+        
+        return centilitres;
+    }
+    
+    /**
+     * Writes a milk yield in litres with as many decimal places as it needs,
+     * up to two, such as "21", "20.9" or "20.95".
+     * @param aNumberOfCentilitres a milk yield in centilitres
+     * @return the milk yield in litres as a String
+     */
+    public static String format(long aNumberOfCentilitres)
+    {
+        long litres = Math.abs(aNumberOfCentilitres / PER_LITRE);
+        int fraction = (int) Math.abs(aNumberOfCentilitres % PER_LITRE);
+        StringBuilder text = new StringBuilder(12);
+        if (aNumberOfCentilitres < 0)
+        {
+            text.append('-');
+        }
+        text.append(litres);
+        if (fraction != 0)
+        {
+            text.append('.').append(fraction / 10);
+            if (fraction % 10 != 0)
+            {
+                text.append(fraction % 10);
+            }
+        }
+        
+        return text.toString();
+    }
+}
@@ -0,0 +1,871 @@
+
+package maxtcore;
+
+import java.math.*;
+import java.util.*;
+import timeperiod.*;
+
+/**
+ * Holds the cows of a compact herd as parallel primitive arrays instead of
+ * as Cow, MilkTakings and YieldHistory objects. Each cow has a slot: its ID
+ * is a run of characters in one shared array, its AM and PM yields are
+ * entries in two int arrays, and each day of its history is an entry in
+ * that day's AM and PM arrays. Further arrays keep the slots in ID order,
+ * so cows are found by binary search and listed in order without a tree or
+ * a hash table. The order is split into blocks of at most MAX_BLOCK_SIZE
+ * slots, so adding a cow out of order moves the slots of one block rather
+ * than of the whole herd, and loading an unsorted herd does not take time
+ * growing with the square of its size. A cow then costs a few dozen bytes
+ * rather than several hundred.
+ * <p>
+ * The Cow and MilkTakings objects handed out for a compact herd are views
+ * made when they are asked for. A cow view stays valid until the cow is
+ * deleted, and a milk takings view stands for whatever takings its cow has
+ * for the session at the time. Callers must hold the herd's lock.
+ * @author Michael Gallichan
+ */
+class CompactCows
+{
+    // class variables
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_DAY = new int[0];  // a day on which no slot had takings
+    private static final int NO_SLOT = -1;
+    private static final int MAX_BLOCK_SIZE = 1024;  // slots in a block of the ID order before it is split
+    
+    // instance variables
+    private char[] idChars;  // the characters of every cow ID, one after another
+    private int idCharsUsed;
+    private int idCharsFree;  // characters of deleted IDs, reclaimed when they become too many
+    private int[] idStarts;  // per slot, NO_SLOT when the slot is free
+    private int[] idLengths;  // per slot
+    private int[] generations;  // per slot, moved on when the cow in it is deleted
+    private int[] amYields;  // per slot, in centilitres, YieldHistory.NO_YIELD when none
+    private int[] pmYields;
+    private final BitSet amMissing;  // the slots of cows without AM takings today
+    private final BitSet pmMissing;
+    private int numberOfCowsMissingAm;
+    private int numberOfCowsMissingPm;
+    private int numberOfSlots;  // slots used so far, free or not
+    private int[] freeSlots;
+    private int numberOfFreeSlots;
+    private int[][] orderBlocks;  // the slots of the cows in ID order, block by block
+    private int[] orderBlockSizes;  // per block; only a sole block may be empty
+    private int numberOfOrderBlocks;
+    private int numberOfCows;
+    private int[][] amDays;  // per day, oldest first, the AM yields of every slot
+    private int[][] pmDays;
+    private int numberOfDays;
+    
+    // constructor
+    /**
+     * Creates a new, empty CompactCows object.
+     */
+    CompactCows()
+    {
+        idChars = new char[INITIAL_CAPACITY * 4];
+        idStarts = new int[INITIAL_CAPACITY];
+        idLengths = new int[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        amYields = new int[INITIAL_CAPACITY];
+        pmYields = new int[INITIAL_CAPACITY];
+        amMissing = new BitSet();
+        pmMissing = new BitSet();
+        freeSlots = new int[0];
+        orderBlocks = new int[][] {new int[INITIAL_CAPACITY]};
+        orderBlockSizes = new int[1];
+        numberOfOrderBlocks = 1;
+        amDays = new int[0][];
+        pmDays = new int[0][];
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns the number of cows held.
+     * @return numberOfCows
+     */
+    int getNumberOfCows()
+    {
+        return numberOfCows;
+    }
+    
+    /**
+     * Returns a view of the cow with the given ID.
+     * @param aHerd the herd these cows belong to
+     * @param anId a cow ID
+     * @return a Cow object for the cow with ID anId, or null if there is none
+     */
+    Cow getCow(Herd aHerd, String anId)
+    {
+        int block = findBlock(anId);
+        int index = search(block, anId);
+        if (index < 0)
+        {
+            return null;
+        }
+        int slot = orderBlocks[block][index];
+        
+        return new CowView(anId, aHerd, this, slot, generations[slot]);
+    }
+    
+    /**
+     * Returns views of all the cows, in ID order.
+     * @param aHerd the herd these cows belong to
+     * @return a list of Cow objects
+     */
+    List<Cow> getCows(Herd aHerd)
+    {
+        List<Cow> cows = new ArrayList<>(numberOfCows);
+        for (int block = 0; block < numberOfOrderBlocks; block++)
+        {
+            for (int i = 0; i < orderBlockSizes[block]; i++)
+            {
+                int slot = orderBlocks[block][i];
+                cows.add(new CowView(getId(slot), aHerd, this, slot, generations[slot]));
+            }
+        }
+        
+        return cows;
+    }
+    
+    /**
+     * Adds a cow with the given ID and no milk takings.
+     * @param aHerd the herd these cows belong to
+     * @param anId a cow ID not yet in use
+     * @return a view of the new cow
+     *
+     * @throws IllegalArgumentException if anId is already in use
+     */
+    Cow addCow(Herd aHerd, String anId) throws IllegalArgumentException
+    {
+        int block = findBlock(anId);
+        int index = search(block, anId);
+        if (index >= 0)
+        {
+            throw new IllegalArgumentException("Cow '" + anId + "' is already in the herd.");
+        }
+        index = -index - 1;
+        
+        int slot = allocateSlot();
+        if (idCharsUsed + anId.length() > idChars.length)
+        {
+            idChars = Arrays.copyOf(idChars, grow(idChars.length, idCharsUsed + anId.length()));
+        }
+        anId.getChars(0, anId.length(), idChars, idCharsUsed);
+        idStarts[slot] = idCharsUsed;
+        idLengths[slot] = anId.length();
+        idCharsUsed = idCharsUsed + anId.length();
+        amYields[slot] = YieldHistory.NO_YIELD;
+        pmYields[slot] = YieldHistory.NO_YIELD;
+        amMissing.set(slot);
+        pmMissing.set(slot);
+        numberOfCowsMissingAm++;
+        numberOfCowsMissingPm++;
+        
+        insertInOrder(block, index, slot);
+        numberOfCows++;
+        
+        return new CowView(anId, aHerd, this, slot, generations[slot]);
+    }
+    
+    /**
+     * Removes the cow seen through the given view, if it is still held.
+     * @param aCow a view made by this object
+     * @return true if the cow was removed, false otherwise
+     */
+    boolean removeCow(CowView aCow)
+    {
+        if (!isCurrent(aCow))
+        {
+            return false;
+        }
+        int slot = aCow.slot;
+        int block = findBlock(aCow.getId());
+        removeFromOrder(block, search(block, aCow.getId()));
+        numberOfCows--;
+        
+        idCharsFree = idCharsFree + idLengths[slot];
+        idStarts[slot] = NO_SLOT;
+        idLengths[slot] = 0;
+        generations[slot]++;  // so views of the deleted cow no longer match
+        amYields[slot] = YieldHistory.NO_YIELD;
+        pmYields[slot] = YieldHistory.NO_YIELD;
+        if (amMissing.get(slot))
+        {
+            amMissing.clear(slot);  // a free slot is not a cow missing takings
+            numberOfCowsMissingAm--;
+        }
+        if (pmMissing.get(slot))
+        {
+            pmMissing.clear(slot);
+            numberOfCowsMissingPm--;
+        }
+        if (numberOfFreeSlots == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, grow(freeSlots.length, numberOfFreeSlots + 1));
+        }
+        freeSlots[numberOfFreeSlots] = slot;
+        numberOfFreeSlots++;
+        
+        if (idCharsFree > INITIAL_CAPACITY && idCharsFree > idCharsUsed / 2)
+        {
+            reclaimIdChars();
+        }
+        return true;
+    }
+    
+    /**
+     * Confirms whether the cow seen through the given view is still held.
+     * @param aCow a view made by this object
+     * @return true if the cow has not been removed, false otherwise
+     */
+    boolean isCurrent(CowView aCow)
+    {
+        return aCow.cows == this && generations[aCow.slot] == aCow.generation
+               && idStarts[aCow.slot] != NO_SLOT;
+    }
+    
+    /**
+     * Returns the sum of the milk yields recorded for all the cows, counting
+     * a missing milking session as zero.
+     * @return the total milk yield in centilitres
+     */
+    long getTotalMilkYield()
+    {
+        long total = 0;
+        for (int slot = 0; slot < numberOfSlots; slot++)
+        {
+            total = total + Math.max(amYields[slot], 0) + Math.max(pmYields[slot], 0);
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Confirms whether every cow has both milk takings recorded.
+     * @return true if no cow is missing milk takings, false otherwise
+     */
+    boolean isMilkingDataComplete()
+    {
+        return numberOfCowsMissingAm == 0 && numberOfCowsMissingPm == 0;
+    }
+    
+    /**
+     * Returns the number of cows without milk takings for the given milking
+     * session.
+     * @param aMilkingSession a milking session
+     * @return the number of cows missing milk takings for aMilkingSession
+     */
+    int getNumberOfCowsMissing(TimePeriod aMilkingSession)
+    {
+        return (aMilkingSession == TimePeriod.AM) ? numberOfCowsMissingAm : numberOfCowsMissingPm;
+    }
+    
+    /**
+     * Returns views of the cows without milk takings for the given milking
+     * session, in ID order. Only the slots marked as missing are visited.
+     * @param aHerd the herd these cows belong to
+     * @param aMilkingSession a milking session
+     * @return a list of Cow objects
+     */
+    List<Cow> getCowsMissing(Herd aHerd, TimePeriod aMilkingSession)
+    {
+        BitSet missing = (aMilkingSession == TimePeriod.AM) ? amMissing : pmMissing;
+        List<Cow> cows = new ArrayList<>(getNumberOfCowsMissing(aMilkingSession));
+        for (int slot = missing.nextSetBit(0); slot >= 0; slot = missing.nextSetBit(slot + 1))
+        {
+            cows.add(new CowView(getId(slot), aHerd, this, slot, generations[slot]));
+        }
+        Collections.sort(cows);
+        
+        return cows;
+    }
+    
+    /**
+     * Moves today's milk yields of every cow into the history and starts
+     * the new day with none recorded.
+     */
+    void closeDay()
+    {
+        if (numberOfDays == amDays.length)
+        {
+            int capacity = grow(amDays.length, numberOfDays + 1);
+            amDays = Arrays.copyOf(amDays, capacity);
+            pmDays = Arrays.copyOf(pmDays, capacity);
+        }
+        amDays[numberOfDays] = Arrays.copyOf(amYields, numberOfSlots);
+        pmDays[numberOfDays] = Arrays.copyOf(pmYields, numberOfSlots);
+        numberOfDays++;
+        
+        Arrays.fill(amYields, 0, numberOfSlots, YieldHistory.NO_YIELD);
+        Arrays.fill(pmYields, 0, numberOfSlots, YieldHistory.NO_YIELD);
+        for (int block = 0; block < numberOfOrderBlocks; block++)
+        {
+            for (int i = 0; i < orderBlockSizes[block]; i++)
+            {
+                amMissing.set(orderBlocks[block][i]);
+                pmMissing.set(orderBlocks[block][i]);
+            }
+        }
+        numberOfCowsMissingAm = numberOfCows;
+        numberOfCowsMissingPm = numberOfCows;
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns the ID of the cow in the given slot.
+     */
+    private String getId(int aSlot)
+    {
+        return new String(idChars, idStarts[aSlot], idLengths[aSlot]);
+    }
+    
+    /**
+     * Returns the block of the ID order that holds the given ID, or would
+     * hold it if it were added: the last block whose first ID is not after
+     * it, or the first block.
+     */
+    private int findBlock(String anId)
+    {
+        int block = 0;
+        int low = 1;
+        int high = numberOfOrderBlocks - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compareId(orderBlocks[middle][0], anId) <= 0)
+            {
+                block = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        
+        return block;
+    }
+    
+    /**
+     * Returns the position in the given block of the cow with the given ID,
+     * or (-(insertion point) - 1) if there is none, as Arrays.binarySearch
+     * does.
+     */
+    private int search(int aBlock, String anId)
+    {
+        int[] slots = orderBlocks[aBlock];
+        int low = 0;
+        int high = orderBlockSizes[aBlock] - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = compareId(slots[middle], anId);
+            if (comparison < 0)
+            {
+                low = middle + 1;
+            }
+            else if (comparison > 0)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        
+        return -(low + 1);
+    }
+    
+    /**
+     * Compares the ID in the given slot with the given ID in the same order
+     * as String.compareTo, so cows are listed as Cow.compareTo sorts them.
+     */
+    private int compareId(int aSlot, String anId)
+    {
+        int start = idStarts[aSlot];
+        int length = idLengths[aSlot];
+        int limit = Math.min(length, anId.length());
+        for (int i = 0; i < limit; i++)
+        {
+            char slotChar = idChars[start + i];
+            char idChar = anId.charAt(i);
+            if (slotChar != idChar)
+            {
+                return slotChar - idChar;
+            }
+        }
+        
+        return length - anId.length();
+    }
+    
+    /**
+     * Returns a free slot, reusing the slot of a deleted cow if there is one.
+     * A reused slot has its history cleared.
+     */
+    private int allocateSlot()
+    {
+        if (numberOfFreeSlots > 0)
+        {
+            numberOfFreeSlots--;
+            int slot = freeSlots[numberOfFreeSlots];
+            for (int day = 0; day < numberOfDays; day++)
+            {
+                if (slot < amDays[day].length)
+                {
+                    amDays[day][slot] = YieldHistory.NO_YIELD;
+                    pmDays[day][slot] = YieldHistory.NO_YIELD;
+                }
+            }
+            return slot;
+        }
+        
+        if (numberOfSlots == idStarts.length)
+        {
+            int capacity = grow(idStarts.length, numberOfSlots + 1);
+            idStarts = Arrays.copyOf(idStarts, capacity);
+            idLengths = Arrays.copyOf(idLengths, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            amYields = Arrays.copyOf(amYields, capacity);
+            pmYields = Arrays.copyOf(pmYields, capacity);
+        }
+        numberOfSlots++;
+        
+        return numberOfSlots - 1;
+    }
+    
+    /**
+     * Packs the IDs of the remaining cows together, dropping the characters
+     * of deleted IDs.
+     */
+    private void reclaimIdChars()
+    {
+        char[] packed = new char[Math.max(INITIAL_CAPACITY, idCharsUsed - idCharsFree)];
+        int used = 0;
+        for (int block = 0; block < numberOfOrderBlocks; block++)
+        {
+            for (int i = 0; i < orderBlockSizes[block]; i++)
+            {
+                int slot = orderBlocks[block][i];
+                System.arraycopy(idChars, idStarts[slot], packed, used, idLengths[slot]);
+                idStarts[slot] = used;
+                used = used + idLengths[slot];
+            }
+        }
+        idChars = packed;
+        idCharsUsed = used;
+        idCharsFree = 0;
+    }
+    
+    /**
+     * Puts the given slot at the given position of the given block of the ID
+     * order. A full block is split in two first, except that a slot added
+     * after the end of the last block starts a new block, so a herd loaded
+     * in ID order leaves its blocks full.
+     */
+    private void insertInOrder(int aBlock, int anIndex, int aSlot)
+    {
+        int block = aBlock;
+        int index = anIndex;
+        int size = orderBlockSizes[block];
+        if (size == MAX_BLOCK_SIZE)
+        {
+            boolean isAppend = (block == numberOfOrderBlocks - 1 && index == size);
+            int[] newBlock = new int[MAX_BLOCK_SIZE];
+            int kept = isAppend ? size : size / 2;
+            System.arraycopy(orderBlocks[block], kept, newBlock, 0, size - kept);
+            addBlock(block + 1, newBlock, size - kept);
+            orderBlockSizes[block] = kept;
+            if (index >= kept)
+            {
+                block++;
+                index = index - kept;
+            }
+            size = orderBlockSizes[block];
+        }
+        
+        int[] slots = orderBlocks[block];
+        if (size == slots.length)
+        {
+            slots = Arrays.copyOf(slots, Math.min(MAX_BLOCK_SIZE, grow(slots.length, size + 1)));
+            orderBlocks[block] = slots;
+        }
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        slots[index] = aSlot;
+        orderBlockSizes[block] = size + 1;
+    }
+    
+    /**
+     * Removes the slot at the given position of the given block of the ID
+     * order, dropping the block if it is left empty and is not the only one.
+     */
+    private void removeFromOrder(int aBlock, int anIndex)
+    {
+        int size = orderBlockSizes[aBlock];
+        System.arraycopy(orderBlocks[aBlock], anIndex + 1, orderBlocks[aBlock], anIndex, size - anIndex - 1);
+        orderBlockSizes[aBlock] = size - 1;
+        if (size == 1 && numberOfOrderBlocks > 1)
+        {
+            int after = numberOfOrderBlocks - aBlock - 1;
+            System.arraycopy(orderBlocks, aBlock + 1, orderBlocks, aBlock, after);
+            System.arraycopy(orderBlockSizes, aBlock + 1, orderBlockSizes, aBlock, after);
+            numberOfOrderBlocks--;
+            orderBlocks[numberOfOrderBlocks] = null;
+        }
+    }
+    
+    /**
+     * Inserts the given block of the ID order, holding the given number of
+     * slots, at the given position among the blocks.
+     */
+    private void addBlock(int aPosition, int[] someSlots, int aSize)
+    {
+        if (numberOfOrderBlocks == orderBlocks.length)
+        {
+            int capacity = grow(orderBlocks.length, numberOfOrderBlocks + 1);
+            orderBlocks = Arrays.copyOf(orderBlocks, capacity);
+            orderBlockSizes = Arrays.copyOf(orderBlockSizes, capacity);
+        }
+        int after = numberOfOrderBlocks - aPosition;
+        System.arraycopy(orderBlocks, aPosition, orderBlocks, aPosition + 1, after);
+        System.arraycopy(orderBlockSizes, aPosition, orderBlockSizes, aPosition + 1, after);
+        orderBlocks[aPosition] = someSlots;
+        orderBlockSizes[aPosition] = aSize;
+        numberOfOrderBlocks++;
+    }
+    
+    /**
+     * Returns the milk yield of the given slot for the given milking session.
+     */
+    private int getMilkYield(int aSlot, TimePeriod aMilkingSession)
+    {
+        return (aMilkingSession == TimePeriod.AM) ? amYields[aSlot] : pmYields[aSlot];
+    }
+    
+    /**
+     * Sets the milk yield of the given slot for the given milking session,
+     * keeping the slot's mark as missing milk takings in step.
+     */
+    private void setMilkYield(int aSlot, TimePeriod aMilkingSession, int aMilkYield)
+    {
+        boolean isMissing = (aMilkYield == YieldHistory.NO_YIELD);
+        if (aMilkingSession == TimePeriod.AM)
+        {
+            if (isMissing != amMissing.get(aSlot))
+            {
+                amMissing.set(aSlot, isMissing);
+                numberOfCowsMissingAm = numberOfCowsMissingAm + (isMissing ? 1 : -1);
+            }
+            amYields[aSlot] = aMilkYield;
+        }
+        else
+        {
+            if (isMissing != pmMissing.get(aSlot))
+            {
+                pmMissing.set(aSlot, isMissing);
+                numberOfCowsMissingPm = numberOfCowsMissingPm + (isMissing ? 1 : -1);
+            }
+            pmYields[aSlot] = aMilkYield;
+        }
+    }
+    
+    /**
+     * Returns the yield of the given slot on the given day from the given
+     * day arrays. Days made before the slot existed hold nothing for it.
+     */
+    private static int getDayYield(int[][] someDays, int aDay, int aSlot)
+    {
+        int[] day = someDays[aDay];
+        return (aSlot < day.length) ? day[aSlot] : YieldHistory.NO_YIELD;
+    }
+    
+    /**
+     * Returns the average daily milk yield of the given slot over the given
+     * number of most recent days, counting only days with milk takings
+     * recorded, as YieldHistory does.
+     */
+    private int getAvgDailyMilkYield(int aSlot, int aNumberOfDays)
+    {
+        long total = 0;
+        int recordedDays = 0;
+        for (int day = Math.max(0, numberOfDays - aNumberOfDays); day < numberOfDays; day++)
+        {
+            int amYield = getDayYield(amDays, day, aSlot);
+            int pmYield = getDayYield(pmDays, day, aSlot);
+            if (amYield != YieldHistory.NO_YIELD || pmYield != YieldHistory.NO_YIELD)
+            {
+                total = total + Math.max(amYield, 0) + Math.max(pmYield, 0);
+                recordedDays++;
+            }
+        }
+        
+        if (recordedDays == 0)
+        {
+            return 0;
+        }
+        return (int) Centilitres.divide(total, recordedDays, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns a copy of the history of the given slot, starting from the
+     * first day with milk takings recorded.
+     */
+    private YieldHistory getHistory(int aSlot)
+    {
+        int firstDay = 0;
+        while (firstDay < numberOfDays && getDayYield(amDays, firstDay, aSlot) == YieldHistory.NO_YIELD
+               && getDayYield(pmDays, firstDay, aSlot) == YieldHistory.NO_YIELD)
+        {
+            firstDay++;
+        }
+        
+        int[] someAmYields = new int[numberOfDays - firstDay];
+        int[] somePmYields = new int[numberOfDays - firstDay];
+        for (int day = firstDay; day < numberOfDays; day++)
+        {
+            someAmYields[day - firstDay] = getDayYield(amDays, day, aSlot);
+            somePmYields[day - firstDay] = getDayYield(pmDays, day, aSlot);
+        }
+        YieldHistory history = new YieldHistory();
+        history.setDays(someAmYields, somePmYields);
+        
+        return history;
+    }
+    
+    /**
+     * Replaces the history of the given slot with the given yields, which
+     * end with the most recent day. Days are added at the start if the
+     * yields go back further than any cow held so far.
+     */
+    private void setHistory(int aSlot, int[] someAmYields, int[] somePmYields) throws IllegalArgumentException
+    {
+        if (someAmYields.length != somePmYields.length)
+        {
+            throw new IllegalArgumentException("Every day needs an AM and a PM yield.");
+        }
+        
+        int extraDays = someAmYields.length - numberOfDays;
+        if (extraDays > 0)
+        {
+            int[][] newAmDays = new int[grow(amDays.length, numberOfDays + extraDays)][];
+            int[][] newPmDays = new int[newAmDays.length][];
+            Arrays.fill(newAmDays, 0, extraDays, NO_DAY);
+            Arrays.fill(newPmDays, 0, extraDays, NO_DAY);
+            System.arraycopy(amDays, 0, newAmDays, extraDays, numberOfDays);
+            System.arraycopy(pmDays, 0, newPmDays, extraDays, numberOfDays);
+            amDays = newAmDays;
+            pmDays = newPmDays;
+            numberOfDays = numberOfDays + extraDays;
+        }
+        
+        for (int day = 0; day < numberOfDays; day++)
+        {
+            int index = day - (numberOfDays - someAmYields.length);
+            int amYield = (index >= 0) ? someAmYields[index] : YieldHistory.NO_YIELD;
+            int pmYield = (index >= 0) ? somePmYields[index] : YieldHistory.NO_YIELD;
+            if (aSlot >= amDays[day].length)
+            {
+                if (amYield == YieldHistory.NO_YIELD && pmYield == YieldHistory.NO_YIELD)
+                {
+                    continue;  // short days already hold nothing for the slot
+                }
+                amDays[day] = widen(amDays[day]);
+                pmDays[day] = widen(pmDays[day]);
+            }
+            amDays[day][aSlot] = amYield;
+            pmDays[day][aSlot] = pmYield;
+        }
+    }
+    
+    /**
+     * Returns a copy of the given day array covering every slot used so far,
+     * with nothing recorded for the added slots.
+     */
+    private int[] widen(int[] aDay)
+    {
+        int[] wider = Arrays.copyOf(aDay, numberOfSlots);
+        Arrays.fill(wider, aDay.length, numberOfSlots, YieldHistory.NO_YIELD);
+        return wider;
+    }
+    
+    /**
+     * Returns a new capacity half as big again as the given one, and at
+     * least the given minimum.
+     */
+    private static int grow(int aCapacity, int aMinimum)
+    {
+        return Math.max(Math.max(INITIAL_CAPACITY, aMinimum), aCapacity + (aCapacity >> 1));
+    }
+    
+    /**
+     * A cow of a compact herd, made on demand. Its milk takings and history
+     * are read from and written to the arrays of the CompactCows object.
+     */
+    static final class CowView extends Cow
+    {
+        private final CompactCows cows;
+        private final int slot;
+        private final int generation;
+        
+        CowView(String anId, Herd aHerd, CompactCows someCows, int aSlot, int aGeneration)
+        {
+            super(anId, aHerd, null);
+            cows = someCows;
+            slot = aSlot;
+            generation = aGeneration;
+        }
+        
+        @Override
+        public int getDailyMilkYieldCentilitres()
+        {
+            getHerd().getLock().readLock().lock();
+            try
+            {
+                return cows.isCurrent(this) ? getRecordedMilkYield() : 0;
+            }
+            finally
+            {
+                getHerd().getLock().readLock().unlock();
+            }
+        }
+        
+        @Override
+        public int getAvgDailyMilkYieldCentilitres(int aNumberOfDays) throws IllegalArgumentException
+        {
+            if (aNumberOfDays < 1)
+            {
+                throw new IllegalArgumentException("An average needs at least one day.");
+            }
+            getHerd().getLock().readLock().lock();
+            try
+            {
+                return cows.isCurrent(this) ? cows.getAvgDailyMilkYield(slot, aNumberOfDays) : 0;
+            }
+            finally
+            {
+                getHerd().getLock().readLock().unlock();
+            }
+        }
+        
+        @Override
+        MilkTakings getMilkTakings(TimePeriod aMilkingSession)
+        {
+            getHerd().getLock().readLock().lock();
+            try
+            {
+                if (!cows.isCurrent(this))
+                {
+                    return null;
+                }
+                int milkYield = cows.getMilkYield(slot, aMilkingSession);
+                if (milkYield == YieldHistory.NO_YIELD)
+                {
+                    return null;
+                }
+                return new MilkTakingsView(aMilkingSession, milkYield, this);
+            }
+            finally
+            {
+                getHerd().getLock().readLock().unlock();
+            }
+        }
+        
+        @Override
+        MilkTakings getAmMilkTakings()
+        {
+            return getMilkTakings(TimePeriod.AM);
+        }
+        
+        @Override
+        MilkTakings getPmMilkTakings()
+        {
+            return getMilkTakings(TimePeriod.PM);
+        }
+        
+        @Override
+        boolean isRecorded(MilkTakings aMilkTakings)
+        {
+            return cows.isCurrent(this)
+                   && cows.getMilkYield(slot, aMilkTakings.getMilkingSession()) != YieldHistory.NO_YIELD;
+        }
+        
+        @Override
+        int getRecordedMilkYield()
+        {
+            return Math.max(cows.amYields[slot], 0) + Math.max(cows.pmYields[slot], 0);
+        }
+        
+        @Override
+        YieldHistory getHistory()
+        {
+            return cows.getHistory(slot);
+        }
+        
+        @Override
+        void setHistory(int[] someAmYields, int[] somePmYields) throws IllegalArgumentException
+        {
+            cows.setHistory(slot, someAmYields, somePmYields);
+        }
+        
+        @Override
+        MilkTakings addMilkTakings(TimePeriod aMilkingSession, int aMilkYield)
+        {
+            cows.setMilkYield(slot, aMilkingSession, aMilkYield);
+            return new MilkTakingsView(aMilkingSession, aMilkYield, this);
+        }
+        
+        @Override
+        void removeMilkTakings(TimePeriod aMilkingSession)
+        {
+            cows.setMilkYield(slot, aMilkingSession, YieldHistory.NO_YIELD);
+        }
+    }
+    
+    /**
+     * Milk takings of a cow of a compact herd, made on demand. The milk
+     * yield is read from and written to the arrays of the CompactCows
+     * object, so every view of the same takings sees the same yield. Once
+     * the takings are deleted the view keeps the yield it last saw.
+     */
+    static final class MilkTakingsView extends MilkTakings
+    {
+        private final CowView cow;
+        
+        MilkTakingsView(TimePeriod aMilkingSession, int aMilkYield, CowView aCow)
+        {
+            super(aMilkingSession, aMilkYield, aCow);
+            cow = aCow;
+        }
+        
+        @Override
+        public int getMilkYieldCentilitres()
+        {
+            cow.getHerd().getLock().readLock().lock();
+            try
+            {
+                if (cow.cows.isCurrent(cow))
+                {
+                    int milkYield = cow.cows.getMilkYield(cow.slot, getMilkingSession());
+                    if (milkYield != YieldHistory.NO_YIELD)
+                    {
+                        return milkYield;
+                    }
+                }
+                return super.getMilkYieldCentilitres();
+            }
+            finally
+            {
+                cow.getHerd().getLock().readLock().unlock();
+            }
+        }
+        
+        @Override
+        void setMilkYield(int aMilkYield)
+        {
+            super.setMilkYield(aMilkYield);
+            cow.cows.setMilkYield(cow.slot, getMilkingSession(), aMilkYield);
+        }
+    }
+}
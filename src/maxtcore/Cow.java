@@ -1,10 +1,12 @@
 
 package maxtcore;
 
+import java.math.*;
 import timeperiod.*;
 
 /**
- * Defines objects that represent a cow.
+ * Defines objects that represent a cow. The cows of a compact herd are
+ * views onto the herd's arrays, made by CompactCows.
  * @author "Michael Gallichan"
  */
 public class Cow implements Comparable<Cow>
@@ -14,8 +16,11 @@ public class Cow implements Comparable<Cow>
     
     // link variables
     private final Herd herd;
-    private MilkTakings amMilkTakings;
-    private MilkTakings pmMilkTakings;
+    private volatile MilkTakings amMilkTakings;  // written under the herd's lock
+    private volatile MilkTakings pmMilkTakings;
+    
+    // aggregate variables, guarded by the herd's lock
+    private final YieldHistory history;  // milk yields of the days before today
     
     // constructor
     /**
@@ -24,10 +29,23 @@ public class Cow implements Comparable<Cow>
      * @param aHerd The herd the cow is part of
      */
     Cow (String anId, Herd aHerd)
+    {
+        this(anId, aHerd, new YieldHistory());
+    }
+    
+    /**
+     * Creates a new Cow object with the given history, which is null for
+     * the views of a compact herd as they keep none of their own.
+     * @param anId A unique ID for the cow
+     * @param aHerd The herd the cow is part of
+     * @param aHistory The milk yields of the days before today
+     */
+    Cow (String anId, Herd aHerd, YieldHistory aHistory)
     {
         id = anId;
         
         herd = aHerd;
+        history = aHistory;
     }
     
     // public protocol
@@ -42,12 +60,61 @@ public class Cow implements Comparable<Cow>
     }
     
     /**
-     * Returns the daily milk yield of this cow.
-     * @return the daily milk yield of the receiver
+     * Returns the daily milk yield of this cow to the nearest litre.
+     * @return the daily milk yield of the receiver in litres
      */
     public int getDailyMilkYield()
     {
-        return amMilkTakings.getMilkYield() + pmMilkTakings.getMilkYield();
+        return Centilitres.toLitres(getDailyMilkYieldCentilitres(), RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the daily milk yield of this cow in centilitres.
+     * @return the daily milk yield of the receiver in centilitres
+     */
+    public int getDailyMilkYieldCentilitres()
+    {
+        return amMilkTakings.getMilkYieldCentilitres() + pmMilkTakings.getMilkYieldCentilitres();
+    }
+    
+    /**
+     * Returns the average daily milk yield of this cow over the given number
+     * of days before today, counting only days with milk takings recorded.
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @return the average daily milk yield to the nearest litre, or 0 if no
+     * milk takings were recorded in those days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    public int getAvgDailyMilkYield(int aNumberOfDays) throws IllegalArgumentException
+    {
+        return Centilitres.toLitres(getAvgDailyMilkYieldCentilitres(aNumberOfDays), RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield of this cow over the given number
+     * of days before today, counting only days with milk takings recorded.
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @return the average daily milk yield to the nearest centilitre, or 0
+     * if no milk takings were recorded in those days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    public int getAvgDailyMilkYieldCentilitres(int aNumberOfDays) throws IllegalArgumentException
+    {
+        if (aNumberOfDays < 1)
+        {
+            throw new IllegalArgumentException("An average needs at least one day.");
+        }
+        herd.getLock().readLock().lock();
+        try
+        {
+            return history.getAvgDailyMilkYield(aNumberOfDays);
+        }
+        finally
+        {
+            herd.getLock().readLock().unlock();
+        }
     }
     
     /**
@@ -144,29 +211,113 @@ public class Cow implements Comparable<Cow>
     }
     
     /**
-     * Adds the milk takings for the appropriate milking session
+     * Returns the milk takings for the given milking session.
+     * @param aMilkingSession a milking session
+     * @return the linked Milk Taking object for aMilkingSession, or null if
+     * none is recorded
+     */
+    MilkTakings getMilkTakings(TimePeriod aMilkingSession)
+    {
+        if (aMilkingSession == TimePeriod.AM)
+        {
+            return amMilkTakings;
+        }
+        else
+        {
+            return pmMilkTakings;
+        }
+    }
+    
+    /**
+     * Confirms whether the given milk takings of this cow are still recorded.
+     * The caller must hold the herd's lock.
+     * @param aMilkTakings milk takings of the receiver
+     * @return true if aMilkTakings has not been deleted, false otherwise
+     */
+    boolean isRecorded(MilkTakings aMilkTakings)
+    {
+        return getMilkTakings(aMilkTakings.getMilkingSession()) == aMilkTakings;
+    }
+    
+    /**
+     * Returns the sum of the milk yields currently recorded for this cow,
+     * counting a missing milking session as zero.
+     * @return the recorded milk yield of the receiver in centilitres
+     */
+    int getRecordedMilkYield()
+    {
+        int total = 0;
+        if (amMilkTakings != null)
+        {
+            total = total + amMilkTakings.getMilkYieldCentilitres();
+        }
+        if (pmMilkTakings != null)
+        {
+            total = total + pmMilkTakings.getMilkYieldCentilitres();
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Returns the milk yields of this cow for the days before today. The
+     * caller must hold the herd's lock.
+     * @return the receiver's yield history
+     */
+    YieldHistory getHistory()
+    {
+        return history;
+    }
+    
+    /**
+     * Replaces the milk yields of this cow for the days before today, for
+     * example when loading a snapshot. The caller must hold the herd's write
+     * lock, unless no other thread can see the cow yet.
+     * @param someAmYields the AM milk yields, oldest first
+     * @param somePmYields the PM milk yields, oldest first
+     * 
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    void setHistory(int[] someAmYields, int[] somePmYields) throws IllegalArgumentException
+    {
+        history.setDays(someAmYields, somePmYields);
+    }
+    
+    /**
+     * Adds milk takings with the given milk yield for the appropriate
+     * milking session. The caller must hold the herd's write lock.
      * @param aMilkingSession a milking session
-     * @param aMilkTakings a Milk Takings object
+     * @param aMilkYield a milk yield in centilitres
+     * @return the new MilkTakings object
      */
-    void addMilkTakings(TimePeriod aMilkingSession, MilkTakings aMilkTakings)
+    MilkTakings addMilkTakings(TimePeriod aMilkingSession, int aMilkYield)
     {
+        MilkTakings newMilkTakings = new MilkTakings(aMilkingSession, aMilkYield, this);
+        MilkTakings oldMilkTakings = getMilkTakings(aMilkingSession);
         if (aMilkingSession == TimePeriod.AM)  // if it's for an AM milking session...
         {
-            amMilkTakings = aMilkTakings;  // .. add as AM milk takings,
+            amMilkTakings = newMilkTakings;  // .. add as AM milk takings,
         }
         else
         {
-            pmMilkTakings = aMilkTakings;  // else, add as PM milk takings.
+            pmMilkTakings = newMilkTakings;  // else, add as PM milk takings.
+        }
+        if (oldMilkTakings == null)
+        {
+            herd.milkTakingsRecorded(this, aMilkingSession);
         }
+        
+        return newMilkTakings;
     }
     
     /**
      * Removes the milk takings currently recorded for the appropriate
-     * milking session.
+     * milking session. The caller must hold the herd's write lock.
      * @param aMilkingSession a milking session
      */
     void removeMilkTakings(TimePeriod aMilkingSession)
     {
+        MilkTakings oldMilkTakings = getMilkTakings(aMilkingSession);
         if (aMilkingSession == TimePeriod.AM)  // if AM selected..
         {
             amMilkTakings = null;  // .. remove AM MilkTakings,
@@ -175,5 +326,9 @@ public class Cow implements Comparable<Cow>
         {
             pmMilkTakings = null;  // else, remove PM MilkTakings.
         }
+        if (oldMilkTakings != null)
+        {
+            herd.milkTakingsMissing(this, aMilkingSession);
+        }
     }
 }
@@ -0,0 +1,313 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import milkingintervals.*;
+import timeperiod.*;
+
+/**
+ * Reads farms, herds, cows and milk takings from comma-separated parlour
+ * exports into a coordinating object. Each line holds one record:
+ * <pre>
+ * FARM,farmId,name,location
+ * HERD,farmId,herdId,name,8|9
+ * COW,farmId,herdId,cowId
+ * TAKINGS,farmId,herdId,cowId,AM|PM,milkYield
+ * </pre>
+ * Milk yields are in litres with up to two decimal places, such as 20.75.
+ * Blank lines, including lines of spaces, and lines starting with '#' are
+ * ignored, as is a byte order mark at the start. The input is read a line
+ * at a time, and rows that break the rules of the coordinating object
+ * (such as duplicate IDs or duplicate takings for a milking session) are
+ * reported rather than stopping the import.
+ * @author Michael Gallichan
+ */
+public class CsvImporter
+{
+    // class variables
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_FIELDS = 6;
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    
+    // link variables
+    private final MaxTCoord maxT;
+    
+    // instance variables
+    private final String[] fields = new String[MAX_FIELDS];  // reused for every row
+    private Farm lastFarm;  // farm and herd of the previous row, as rows
+    private Herd lastHerd;  // for the same herd usually arrive together
+    
+    // constructor
+    /**
+     * Creates a new importer that adds records to the given coordinating
+     * object.
+     * @param aMaxT a coordinating object
+     */
+    public CsvImporter(MaxTCoord aMaxT)
+    {
+        maxT = aMaxT;
+    }
+    
+    // public protocol
+    
+    /**
+     * Imports all records from the given file.
+     * @param aFile a comma-separated parlour export
+     * @return a report of the records added and rows rejected
+     *
+     * @throws IOException if aFile cannot be read
+     */
+    public ImportReport importCsv(Path aFile) throws IOException
+    {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();  // reports malformed input, as Files.newBufferedReader does
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(aFile), decoder),
+                                                        BUFFER_SIZE))
+        {
+            return importCsv(reader);
+        }
+    }
+    
+    /**
+     * Imports all records from the given reader, which is buffered here
+     * unless it is already a BufferedReader.
+     * @param aReader a reader of comma-separated parlour export data
+     * @return a report of the records added and rows rejected
+     *
+     * @throws IOException if aReader cannot be read
+     */
+    public ImportReport importCsv(Reader aReader) throws IOException
+    {
+        ImportReport report = new ImportReport();
+        BufferedReader reader = (aReader instanceof BufferedReader ? (BufferedReader)aReader
+                                                                   : new BufferedReader(aReader, BUFFER_SIZE));
+        lastFarm = null;
+        lastHerd = null;
+        
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith(BYTE_ORDER_MARK))
+            {
+                line = line.substring(1);
+            }
+            String text = line.trim();  // the same string unless there are spaces to remove
+            if (text.isEmpty() || text.charAt(0) == '#')
+            {
+                continue;
+            }
+            
+            String reason = importRow(line, report);
+            if (reason != null)
+            {
+                report.rowRejected(lineNumber, reason);
+            }
+        }
+        
+        return report;
+    }
+    
+    // private protocol
+    
+    /**
+     * Adds the record on the given line and counts it in the report.
+     * @return null if the record was added, otherwise the reason it was not
+     */
+    private String importRow(String aLine, ImportReport aReport)
+    {
+        int count = split(aLine);
+        String type = fields[0];
+        
+        if (type.equals("FARM"))
+        {
+            if (count != 4)
+            {
+                return "FARM rows need 4 fields.";
+            }
+            if (maxT.createFarm(fields[1], fields[2], fields[3]) == null)
+            {
+                return "Farm ID '" + fields[1] + "' is already in use.";
+            }
+            aReport.farmAdded();
+            return null;
+        }
+        
+        if (type.equals("HERD"))
+        {
+            if (count != 5)
+            {
+                return "HERD rows need 5 fields.";
+            }
+            Farm farm = findFarm(fields[1]);
+            if (farm == null)
+            {
+                return "Farm '" + fields[1] + "' does not exist.";
+            }
+            MilkingIntervals interval = parseInterval(fields[4]);
+            if (interval == null)
+            {
+                return "Milking interval '" + fields[4] + "' is not 8 or 9.";
+            }
+            if (maxT.createHerd(fields[2], fields[3], interval, farm) == null)
+            {
+                return "Herd ID '" + fields[2] + "' is already in use.";
+            }
+            aReport.herdAdded();
+            return null;
+        }
+        
+        if (type.equals("COW"))
+        {
+            if (count != 4)
+            {
+                return "COW rows need 4 fields.";
+            }
+            Herd herd = findHerd(fields[1], fields[2]);
+            if (herd == null)
+            {
+                return "Herd '" + fields[2] + "' does not exist on farm '" + fields[1] + "'.";
+            }
+            if (maxT.createCow(fields[3], herd) == null)
+            {
+                return "Cow ID '" + fields[3] + "' is already in use.";
+            }
+            aReport.cowAdded();
+            return null;
+        }
+        
+        if (type.equals("TAKINGS"))
+        {
+            if (count != 6)
+            {
+                return "TAKINGS rows need 6 fields.";
+            }
+            Herd herd = findHerd(fields[1], fields[2]);
+            if (herd == null)
+            {
+                return "Herd '" + fields[2] + "' does not exist on farm '" + fields[1] + "'.";
+            }
+            Cow cow = herd.getCow(fields[3]);
+            if (cow == null)
+            {
+                return "Cow '" + fields[3] + "' does not exist in herd '" + fields[2] + "'.";
+            }
+            TimePeriod session = parseSession(fields[4]);
+            if (session == null)
+            {
+                return "Milking session '" + fields[4] + "' is not AM or PM.";
+            }
+            int milkYield = Centilitres.parse(fields[5]);
+            if (milkYield < 0)
+            {
+                return "Milk yield '" + fields[5] + "' is not a milk yield in litres with at most two decimal places.";
+            }
+            if (maxT.createMilkTakings(session, milkYield, cow) == null)
+            {
+                return "Milk takings for cow '" + fields[3] + "' for this milking session have already been recorded.";
+            }
+            aReport.milkTakingsAdded();
+            return null;
+        }
+        
+        return "Record type '" + type + "' is not recognised.";
+    }
+    
+    /**
+     * Splits the given line at its commas into the fields array.
+     * @return the number of fields found, which is more than MAX_FIELDS if
+     * the line has too many
+     */
+    private int split(String aLine)
+    {
+        int count = 0;
+        int start = 0;
+        int comma;
+        while ((comma = aLine.indexOf(',', start)) >= 0)
+        {
+            if (count == MAX_FIELDS)
+            {
+                return MAX_FIELDS + 1;
+            }
+            fields[count++] = aLine.substring(start, comma).trim();
+            start = comma + 1;
+        }
+        if (count == MAX_FIELDS)
+        {
+            return MAX_FIELDS + 1;
+        }
+        fields[count++] = aLine.substring(start).trim();
+        
+        return count;
+    }
+    
+    /**
+     * Returns the farm with the given ID, reusing the farm of the previous row
+     * where possible.
+     */
+    private Farm findFarm(String aFarmId)
+    {
+        if (lastFarm == null || !lastFarm.getId().equals(aFarmId))
+        {
+            lastFarm = maxT.findFarm(aFarmId);
+            lastHerd = null;
+        }
+        
+        return lastFarm;
+    }
+    
+    /**
+     * Returns the herd with the given ID on the farm with the given ID,
+     * reusing the herd of the previous row where possible.
+     */
+    private Herd findHerd(String aFarmId, String aHerdId)
+    {
+        Farm farm = findFarm(aFarmId);
+        if (farm == null)
+        {
+            return null;
+        }
+        if (lastHerd == null || !lastHerd.getId().equals(aHerdId))
+        {
+            lastHerd = farm.getHerd(aHerdId);
+        }
+        
+        return lastHerd;
+    }
+    
+    /**
+     * Returns the milking interval whose first interval is the given text, or
+     * null if there is none.
+     */
+    private static MilkingIntervals parseInterval(String aText)
+    {
+        for (MilkingIntervals eachInterval : MilkingIntervals.values())
+        {
+            if (aText.equals(String.valueOf(eachInterval.toInt())))
+            {
+                return eachInterval;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Returns the milking session named by the given text, or null if there
+     * is none.
+     */
+    private static TimePeriod parseSession(String aText)
+    {
+        for (TimePeriod eachSession : TimePeriod.values())
+        {
+            if (aText.equals(eachSession.toString()))
+            {
+                return eachSession;
+            }
+        }
+        
+        return null;
+    }
+}
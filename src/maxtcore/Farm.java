@@ -2,9 +2,11 @@
 package maxtcore;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * Defines objects that represent a physical farm.
+ * Defines objects that represent a physical farm. The herds may be read by
+ * any thread; changes to them are made while holding the farm's lock.
  * @author Michael Gallichan
  */
 public class Farm implements Comparable<Farm>
@@ -15,7 +17,11 @@ public class Farm implements Comparable<Farm>
     private final String location;
     
     // link variables
-    private Collection<Herd> herds;
+    private final Collection<Herd> herds;
+    private final Map<String, Herd> herdsById;
+    
+    // synchronization variables
+    private final Object lock = new Object();
     
     // constructor
     /**
@@ -30,7 +36,8 @@ public class Farm implements Comparable<Farm>
         name = aName;
         location = aLocation;
         
-        herds = new TreeSet<>();
+        herds = new ConcurrentSkipListSet<>();
+        herdsById = new ConcurrentHashMap<>();
     }
     
     // public protocol
@@ -73,6 +80,15 @@ public class Farm implements Comparable<Farm>
     
     // package protocol
     
+    /**
+     * Returns the lock to hold while changing the herds on this farm.
+     * @return the receiver's lock
+     */
+    Object getLock()
+    {
+        return lock;
+    }
+    
     /**
      * Returns the herds on this farm.
      * @return a collection of all linked Herd objects
@@ -82,12 +98,23 @@ public class Farm implements Comparable<Farm>
         return herds;
     }
     
+    /**
+     * Returns the herd on this farm with the given ID.
+     * @param anId a herd ID
+     * @return the linked Herd object with ID anId, or null if there is none
+     */
+    Herd getHerd(String anId)
+    {
+        return herdsById.get(anId);
+    }
+    
     /**
      * Adds the herd to this farm.
      * @param aHerd a herd
      */
     void addHerd(Herd aHerd)
     {
+        herdsById.put(aHerd.getId(), aHerd);
         herds.add(aHerd);
     }
     
@@ -98,6 +125,7 @@ public class Farm implements Comparable<Farm>
     void removeHerd(Herd aHerd)
     {
         herds.remove(aHerd);
+        herdsById.remove(aHerd.getId());
     }
     
     /**
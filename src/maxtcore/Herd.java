@@ -1,15 +1,27 @@
 
 package maxtcore;
 
+import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
 import milkingintervals.*;
+import timeperiod.*;
 
 /**
- * Defines objects that represent a herd of cows.
+ * Defines objects that represent a herd of cows. The cows, their milk
+ * takings and the herd's aggregates are guarded by the herd's own lock, so
+ * changes to different herds never wait for each other. A compact herd
+ * keeps its cows in parallel arrays rather than as objects, which suits
+ * very large herds; see CompactCows.
  * @author Michael Gallichan
  */
 public class Herd implements Comparable<Herd>
 {
+    // class variables
+    private static final int INITIAL_DAYS = 8;
+    static final int DEFAULT_AVERAGE_WINDOW = 7;  // days
+    
     // instance variables
     private final String id;
     private final String name;
@@ -17,7 +29,24 @@ public class Herd implements Comparable<Herd>
     
     // link variables
     private final Farm farm;
-    private Collection<Cow> cows;
+    private final Collection<Cow> cows;  // null for a compact herd
+    private final Map<String, Cow> cowsById;
+    private final CompactCows compactCows;  // null unless the herd is compact
+    
+    // aggregate variables, guarded by lock
+    private int numberOfCows;
+    private long totalMilkYield;  // sum of all milk yields recorded for the linked cows, in centilitres
+    private long[] dailyMilkYields;  // totalMilkYield at the end of each day before today
+    private int[] dailyCowCounts;  // numberOfCows at the end of each day before today
+    private int numberOfDays;
+    private int averageWindow;  // days covered by the window sums
+    private long windowMilkYield;  // sum of dailyMilkYields over the last averageWindow days
+    private long windowCowDays;  // sum of dailyCowCounts over the same days
+    private final NavigableSet<Cow> cowsMissingAm;  // cows without AM takings today; null for a compact herd
+    private final NavigableSet<Cow> cowsMissingPm;
+    
+    // synchronization variables
+    private final ReentrantReadWriteLock lock;
     
     // constructor
     /**
@@ -26,15 +55,35 @@ public class Herd implements Comparable<Herd>
      * @param aName A name for the herd
      * @param aMilkingInterval The milking intervals of the herd
      * @param aFarm The farm the herd is on
+     * @param isCompact Whether the herd keeps its cows in compact storage
      */
-    Herd (String anId, String aName, MilkingIntervals aMilkingInterval, Farm aFarm)
+    Herd (String anId, String aName, MilkingIntervals aMilkingInterval, Farm aFarm, boolean isCompact)
     {
         id = anId;
         name = aName;
         milkingInterval = aMilkingInterval;
         
         farm = aFarm;
-        cows = new TreeSet<>();
+        if (isCompact)
+        {
+            cows = null;
+            cowsById = null;
+            compactCows = new CompactCows();
+            cowsMissingAm = null;
+            cowsMissingPm = null;
+        }
+        else
+        {
+            cows = new ConcurrentSkipListSet<>();
+            cowsById = new ConcurrentHashMap<>();
+            compactCows = null;
+            cowsMissingAm = new TreeSet<>();
+            cowsMissingPm = new TreeSet<>();
+        }
+        dailyMilkYields = new long[0];
+        dailyCowCounts = new int[0];
+        averageWindow = DEFAULT_AVERAGE_WINDOW;
+        lock = new ReentrantReadWriteLock();
     }
     
     // public protocol
@@ -65,41 +114,196 @@ public class Herd implements Comparable<Herd>
         return milkingInterval;
     }
     
+    /**
+     * Confirms whether this herd keeps its cows in compact storage, as
+     * parallel arrays with the cows handed out as views.
+     * @return true if the herd is compact, false otherwise
+     */
+    public boolean isCompact()
+    {
+        return compactCows != null;
+    }
+    
+    /**
+     * Returns the number of days over which the herd's rolling average daily
+     * milk yield is kept.
+     * @return the length of the average window in days
+     */
+    public int getAverageWindow()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return averageWindow;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
     /**
      * Returns the number of cows in this herd
      * @return the number of Cow objects linked to this herd
      */
     public int getNumberOfCows()
     {
-        return cows.size();
+        lock.readLock().lock();
+        try
+        {
+            return numberOfCows;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
     }
     
     /**
-     * Returns the average daily milk yield of the herd
-     * @return the average daily milk yield rounded to the nearest litre
+     * Returns the number of cows in this herd without milk takings recorded
+     * for the given milking session today. The count is kept as cows and
+     * milk takings are added and removed, so no cows are visited.
+     * @param aMilkingSession a milking session
+     * @return the number of cows missing milk takings for aMilkingSession
      */
-    public int getAvgDailyMilkYield()
+    public int getNumberOfCowsMissing(TimePeriod aMilkingSession)
     {
-        int total = 0;
-        int count = 0;
-        
-        for (Cow eachCow : cows)
-        {
-            total = total + eachCow.getDailyMilkYield();
-            count++;
-        }
-        
-        int average;
-        if (count == 0)
+        lock.readLock().lock();
+        try
         {
-            average = 0;
+            if (compactCows != null)
+            {
+                return compactCows.getNumberOfCowsMissing(aMilkingSession);
+            }
+            return getCowsMissingSet(aMilkingSession).size();
         }
-        else
+        finally
         {
-            average = total / count;
+            lock.readLock().unlock();
         }
-        
-        return (average);
+    }
+    
+    /**
+     * Returns the average daily milk yield of the herd. The value is taken
+     * from a running total maintained as cows and milk takings are added,
+     * updated and removed, so no cows are visited.
+     * @return the average daily milk yield rounded to the nearest litre
+     */
+    public int getAvgDailyMilkYield()
+    {
+        return getAvgDailyMilkYield(RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield of the herd rounded to whole
+     * litres as the given rounding mode says. The exact average is rounded
+     * once, so an average of 20.495 litres is 20 litres with HALF_UP.
+     * @param aRoundingMode the rounding from the average to whole litres
+     * @return the average daily milk yield in litres
+     * 
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and the
+     * average is not a whole number of litres
+     */
+    public int getAvgDailyMilkYield(RoundingMode aRoundingMode) throws ArithmeticException
+    {
+        return getAverage(Centilitres.PER_LITRE, aRoundingMode);
+    }
+    
+    /**
+     * Returns the average daily milk yield of the herd in centilitres, from
+     * the same running total as getAvgDailyMilkYield.
+     * @return the average daily milk yield rounded to the nearest centilitre
+     */
+    public int getAvgDailyMilkYieldCentilitres()
+    {
+        return getAverage(1, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over the
+     * given number of days before today, from the herd totals kept for each
+     * day, so no cows are visited and nothing is allocated.
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @return the average daily milk yield to the nearest litre, or 0 if the
+     * herd had no cows in those days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    public int getAvgDailyMilkYield(int aNumberOfDays) throws IllegalArgumentException
+    {
+        return getAvgDailyMilkYield(aNumberOfDays, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over the
+     * given number of days before today, rounded once to whole litres as the
+     * given rounding mode says.
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @param aRoundingMode the rounding from the average to whole litres
+     * @return the average daily milk yield in litres, or 0 if the herd had
+     * no cows in those days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and the
+     * average is not a whole number of litres
+     */
+    public int getAvgDailyMilkYield(int aNumberOfDays, RoundingMode aRoundingMode)
+                                    throws IllegalArgumentException, ArithmeticException
+    {
+        return getAverage(aNumberOfDays, Centilitres.PER_LITRE, aRoundingMode);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over the
+     * given number of days before today, in centilitres.
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @return the average daily milk yield to the nearest centilitre, or 0
+     * if the herd had no cows in those days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    public int getAvgDailyMilkYieldCentilitres(int aNumberOfDays) throws IllegalArgumentException
+    {
+        return getAverage(aNumberOfDays, 1, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over its
+     * average window. The sums over the window are kept as each day closes,
+     * so this takes constant time however long the window is.
+     * @return the average daily milk yield to the nearest litre, or 0 if the
+     * herd had no cows in the window
+     */
+    public int getWindowAvgDailyMilkYield()
+    {
+        return getWindowAvgDailyMilkYield(RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over its
+     * average window, rounded once to whole litres as the given rounding
+     * mode says.
+     * @param aRoundingMode the rounding from the average to whole litres
+     * @return the average daily milk yield in litres, or 0 if the herd had
+     * no cows in the window
+     * 
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and the
+     * average is not a whole number of litres
+     */
+    public int getWindowAvgDailyMilkYield(RoundingMode aRoundingMode) throws ArithmeticException
+    {
+        return getWindowAverage(Centilitres.PER_LITRE, aRoundingMode);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow of the herd over its
+     * average window, in centilitres.
+     * @return the average daily milk yield to the nearest centilitre, or 0
+     * if the herd had no cows in the window
+     */
+    public int getWindowAvgDailyMilkYieldCentilitres()
+    {
+        return getWindowAverage(1, RoundingMode.HALF_UP);
     }
     
     /**
@@ -179,52 +383,496 @@ public class Herd implements Comparable<Herd>
     }
     
     /**
-     * Returns the cows in this herd.
+     * Returns the lock guarding this herd's cows, their milk takings and the
+     * herd's aggregates. Changes must hold the write lock.
+     * @return the receiver's lock
+     */
+    ReentrantReadWriteLock getLock()
+    {
+        return lock;
+    }
+    
+    /**
+     * Returns the cows in this herd. For a compact herd this is a list of
+     * views made when the method is called.
      * @return a collection of all linked Cow objects
      */
     Collection<Cow> getCows()
     {
+        if (compactCows != null)
+        {
+            lock.readLock().lock();
+            try
+            {
+                return Collections.unmodifiableList(compactCows.getCows(this));
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+        }
         return Collections.unmodifiableCollection(cows);
     }
     
     /**
-     * Adds cow to this herd.
-     * @param aCow a cow
+     * Returns the cow in this herd with the given ID.
+     * @param anId a cow ID
+     * @return the linked Cow object with ID anId, or null if there is none
      */
-    void addCow(Cow aCow)
+    Cow getCow(String anId)
     {
-        cows.add(aCow);
+        if (compactCows != null)
+        {
+            lock.readLock().lock();
+            try
+            {
+                return compactCows.getCow(this, anId);
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+        }
+        return cowsById.get(anId);
     }
     
     /**
-     * Removes cow from this herd.
+     * Confirms whether the given cow is still in this herd. The caller must
+     * hold the lock.
      * @param aCow a cow
+     * @return true if aCow has not been removed from the receiver, false
+     * otherwise
      */
-    void removeCow(Cow aCow)
+    boolean containsCow(Cow aCow)
     {
-        cows.remove(aCow);
+        if (compactCows != null)
+        {
+            return (aCow instanceof CompactCows.CowView) && compactCows.isCurrent((CompactCows.CowView) aCow);
+        }
+        return cowsById.get(aCow.getId()) == aCow;
     }
     
     /**
-     * Confirms whether milk yield data exists for all cows in the given herd.
-     * @param aHerd a herd of cows
-     * @return false if a null reference is found; true otherwise
+     * Adds a cow with the given ID to this herd. The caller must hold the
+     * write lock and have checked that the ID is not in use.
+     * @param anId a cow ID
+     * @return the new Cow object
      */
-    boolean isHerdMilkingDataComplete()
+    Cow addCow(String anId)
     {
-        for (Cow eachCow : cows)
+        Cow newCow;
+        if (compactCows != null)
+        {
+            newCow = compactCows.addCow(this, anId);
+        }
+        else
         {
-            if (eachCow.getAmMilkTakings() == null)
+            newCow = new Cow(anId, this);
+            cowsById.put(anId, newCow);
+            cows.add(newCow);
+            cowsMissingAm.add(newCow);
+            cowsMissingPm.add(newCow);
+        }
+        numberOfCows++;
+        
+        return newCow;
+    }
+    
+    /**
+     * Removes cow from this herd. The caller must hold the write lock.
+     * @param aCow a cow
+     * @return true if aCow was in this herd, false otherwise
+     */
+    boolean removeCow(Cow aCow)
+    {
+        if (compactCows != null)
+        {
+            if (!containsCow(aCow))
             {
                 return false;
             }
+            totalMilkYield = totalMilkYield - aCow.getRecordedMilkYield();
+            compactCows.removeCow((CompactCows.CowView) aCow);
+            numberOfCows--;
+            return true;
+        }
+        if (containsCow(aCow))  // not a deleted cow whose ID has been used again, which the set would match
+        {
+            cows.remove(aCow);
+            cowsById.remove(aCow.getId());
+            cowsMissingAm.remove(aCow);
+            cowsMissingPm.remove(aCow);
+            numberOfCows--;
+            
+            // the cow's recorded takings no longer count towards the herd
+            totalMilkYield = totalMilkYield - aCow.getRecordedMilkYield();
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Notes that the given cow of this herd now has milk takings recorded for
+     * the given milking session. Called by the cow; the caller must hold the
+     * write lock.
+     * @param aCow a cow of the receiver
+     * @param aMilkingSession a milking session
+     */
+    void milkTakingsRecorded(Cow aCow, TimePeriod aMilkingSession)
+    {
+        if (containsCow(aCow))
+        {
+            getCowsMissingSet(aMilkingSession).remove(aCow);
+        }
+    }
+    
+    /**
+     * Notes that the given cow of this herd no longer has milk takings
+     * recorded for the given milking session. Called by the cow; the caller
+     * must hold the write lock.
+     * @param aCow a cow of the receiver
+     * @param aMilkingSession a milking session
+     */
+    void milkTakingsMissing(Cow aCow, TimePeriod aMilkingSession)
+    {
+        if (containsCow(aCow))
+        {
+            getCowsMissingSet(aMilkingSession).add(aCow);
+        }
+    }
+    
+    /**
+     * Returns the cows in this herd without milk takings recorded for the
+     * given milking session today, in ID order. The cows are kept in an
+     * index as milk takings are added and removed, so only the missing cows
+     * are visited.
+     * @param aMilkingSession a milking session
+     * @return a list of the Cow objects missing milk takings for
+     * aMilkingSession
+     */
+    List<Cow> getCowsMissing(TimePeriod aMilkingSession)
+    {
+        lock.readLock().lock();
+        try
+        {
+            if (compactCows != null)
+            {
+                return compactCows.getCowsMissing(this, aMilkingSession);
+            }
+            return new ArrayList<>(getCowsMissingSet(aMilkingSession));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Adjusts the running milk yield total of this herd by the given amount.
+     * The caller must hold the write lock.
+     * @param aDelta the change in recorded milk yield in centilitres
+     */
+    void adjustTotalMilkYield(int aDelta)
+    {
+        totalMilkYield = totalMilkYield + aDelta;
+    }
+    
+    /**
+     * Returns the number of days before today recorded for this herd. The
+     * caller must hold the lock.
+     * @return numberOfDays
+     */
+    int getNumberOfDays()
+    {
+        return numberOfDays;
+    }
+    
+    /**
+     * Returns the milk yield total of this herd at the end of the given day.
+     * The caller must hold the lock.
+     * @param aDayIndex the position of the day, 0 being the oldest
+     * @return the milk yield total of the day in centilitres
+     */
+    long getDailyMilkYield(int aDayIndex)
+    {
+        return dailyMilkYields[aDayIndex];
+    }
+    
+    /**
+     * Returns the number of cows in this herd at the end of the given day.
+     * The caller must hold the lock.
+     * @param aDayIndex the position of the day, 0 being the oldest
+     * @return the number of cows on the day
+     */
+    int getDailyCowCount(int aDayIndex)
+    {
+        return dailyCowCounts[aDayIndex];
+    }
+    
+    /**
+     * Ends today for this herd: records today's totals, moves each cow's
+     * milk takings into its history and starts the new day with none
+     * recorded. The caller must hold the write lock.
+     */
+    void closeDay()
+    {
+        if (numberOfDays == dailyMilkYields.length)
+        {
+            int capacity = Math.max(INITIAL_DAYS, numberOfDays + (numberOfDays >> 1));
+            dailyMilkYields = Arrays.copyOf(dailyMilkYields, capacity);
+            dailyCowCounts = Arrays.copyOf(dailyCowCounts, capacity);
+        }
+        dailyMilkYields[numberOfDays] = totalMilkYield;
+        dailyCowCounts[numberOfDays] = numberOfCows;
+        numberOfDays++;
+        
+        // slide the window on by a day
+        windowMilkYield = windowMilkYield + totalMilkYield;
+        windowCowDays = windowCowDays + numberOfCows;
+        if (numberOfDays > averageWindow)
+        {
+            int dayLeaving = numberOfDays - averageWindow - 1;
+            windowMilkYield = windowMilkYield - dailyMilkYields[dayLeaving];
+            windowCowDays = windowCowDays - dailyCowCounts[dayLeaving];
+        }
+        
+        if (compactCows != null)
+        {
+            compactCows.closeDay();
+        }
+        else
+        {
+            for (Cow eachCow : cows)
+            {
+                eachCow.getHistory().addDay(getDayYield(eachCow.getAmMilkTakings()),
+                                            getDayYield(eachCow.getPmMilkTakings()));
+                eachCow.removeMilkTakings(TimePeriod.AM);  // marks the cow as missing takings again
+                eachCow.removeMilkTakings(TimePeriod.PM);
+            }
+        }
+        totalMilkYield = 0;
+    }
+    
+    /**
+     * Replaces the daily totals of this herd, for example when loading a
+     * snapshot. The caller must hold the write lock, unless no other thread
+     * can see the herd yet.
+     * @param someMilkYields the milk yield totals, oldest first
+     * @param someCowCounts the numbers of cows, oldest first
+     * 
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    void setDailyTotals(long[] someMilkYields, int[] someCowCounts) throws IllegalArgumentException
+    {
+        if (someMilkYields.length != someCowCounts.length)
+        {
+            throw new IllegalArgumentException("Every day needs a milk yield total and a cow count.");
+        }
+        dailyMilkYields = someMilkYields;
+        dailyCowCounts = someCowCounts;
+        numberOfDays = someMilkYields.length;
+        sumWindow();
+    }
+    
+    /**
+     * Sets the number of days over which the herd's rolling average daily
+     * milk yield is kept. The caller must hold the write lock, unless no
+     * other thread can see the herd yet.
+     * @param aNumberOfDays the length of the window in days
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    void setAverageWindow(int aNumberOfDays) throws IllegalArgumentException
+    {
+        if (aNumberOfDays < 1)
+        {
+            throw new IllegalArgumentException("An average needs at least one day.");
+        }
+        averageWindow = aNumberOfDays;
+        sumWindow();
+    }
+    
+    /**
+     * Recomputes the milk yield total by visiting every cow and compares it
+     * with the running total.
+     * @return true if the running total matches the recomputed total, false
+     * otherwise
+     */
+    boolean isTotalMilkYieldConsistent()
+    {
+        lock.readLock().lock();
+        try
+        {
+            if (compactCows != null)
+            {
+                return (compactCows.getTotalMilkYield() == totalMilkYield);
+            }
+            long total = 0;
+            for (Cow eachCow : cows)
+            {
+                total = total + eachCow.getRecordedMilkYield();
+            }
             
-            if (eachCow.getPmMilkTakings() == null)
+            return (total == totalMilkYield);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Confirms whether milk yield data exists for all cows in this herd, from
+     * the counts of cows missing milk takings, so no cows are visited.
+     * @return false if a cow is missing milk takings; true otherwise
+     */
+    boolean isHerdMilkingDataComplete()
+    {
+        lock.readLock().lock();
+        try
+        {
+            if (compactCows != null)
             {
-                return false;
+                return compactCows.isMilkingDataComplete();
             }
+            return cowsMissingAm.isEmpty() && cowsMissingPm.isEmpty();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns today's average daily milk yield per cow in the given unit of
+     * centilitres, rounded as the given rounding mode says.
+     */
+    private int getAverage(int aUnit, RoundingMode aRoundingMode)
+    {
+        long total;
+        int count;
+        lock.readLock().lock();
+        try
+        {
+            total = totalMilkYield;
+            count = numberOfCows;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return average(total, count, aUnit, aRoundingMode);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow over the given number of
+     * days before today in the given unit of centilitres, rounded as the
+     * given rounding mode says.
+     */
+    private int getAverage(int aNumberOfDays, int aUnit, RoundingMode aRoundingMode) throws IllegalArgumentException
+    {
+        if (aNumberOfDays < 1)
+        {
+            throw new IllegalArgumentException("An average needs at least one day.");
         }
         
-        return true;
+        long total = 0;
+        long cowDays = 0;
+        lock.readLock().lock();
+        try
+        {
+            if (aNumberOfDays == averageWindow)  // kept up to date as each day closes
+            {
+                total = windowMilkYield;
+                cowDays = windowCowDays;
+            }
+            else
+            {
+                for (int day = Math.max(0, numberOfDays - aNumberOfDays); day < numberOfDays; day++)
+                {
+                    total = total + dailyMilkYields[day];
+                    cowDays = cowDays + dailyCowCounts[day];
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return average(total, cowDays, aUnit, aRoundingMode);
+    }
+    
+    /**
+     * Returns the average daily milk yield per cow over the average window
+     * in the given unit of centilitres, rounded as the given rounding mode
+     * says.
+     */
+    private int getWindowAverage(int aUnit, RoundingMode aRoundingMode)
+    {
+        long total;
+        long cowDays;
+        lock.readLock().lock();
+        try
+        {
+            total = windowMilkYield;
+            cowDays = windowCowDays;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return average(total, cowDays, aUnit, aRoundingMode);
+    }
+    
+    /**
+     * Returns the given total in centilitres divided by the given count in
+     * the given unit of centilitres, rounded once as the given rounding mode
+     * says, or 0 if the count is 0.
+     */
+    private static int average(long aTotal, long aCount, int aUnit, RoundingMode aRoundingMode)
+    {
+        if (aCount == 0)
+        {
+            return 0;
+        }
+        return (int) Centilitres.divide(aTotal, aCount * aUnit, aRoundingMode);
+    }
+    
+    /**
+     * Returns the milk yield of the given milk takings for a cow's history,
+     * or YieldHistory.NO_YIELD if there are none.
+     */
+    private static int getDayYield(MilkTakings aMilkTakings)
+    {
+        return (aMilkTakings == null) ? YieldHistory.NO_YIELD : aMilkTakings.getMilkYieldCentilitres();
+    }
+    
+    /**
+     * Returns the index of cows missing milk takings for the given milking
+     * session in an object herd.
+     */
+    private NavigableSet<Cow> getCowsMissingSet(TimePeriod aMilkingSession)
+    {
+        return (aMilkingSession == TimePeriod.AM) ? cowsMissingAm : cowsMissingPm;
+    }
+    
+    /**
+     * Recomputes the window sums from the daily totals.
+     */
+    private void sumWindow()
+    {
+        windowMilkYield = 0;
+        windowCowDays = 0;
+        for (int day = Math.max(0, numberOfDays - averageWindow); day < numberOfDays; day++)
+        {
+            windowMilkYield = windowMilkYield + dailyMilkYields[day];
+            windowCowDays = windowCowDays + dailyCowCounts[day];
+        }
     }
 }
@@ -0,0 +1,148 @@
+
+package maxtcore;
+
+import java.util.*;
+
+/**
+ * Defines objects that summarise the outcome of a bulk import: how many of
+ * each kind of record were added and which rows were rejected.
+ * @author Michael Gallichan
+ */
+public class ImportReport
+{
+    // class variables
+    private static final int MAX_REJECTIONS_KEPT = 1000;
+    
+    // instance variables
+    private int farmsAdded;
+    private int herdsAdded;
+    private int cowsAdded;
+    private int milkTakingsAdded;
+    private int rowsRejected;
+    private final List<String> rejections;
+    
+    // constructor
+    /**
+     * Creates a new ImportReport object with all counts at zero.
+     */
+    ImportReport()
+    {
+        rejections = new ArrayList<>();
+    }
+    
+    // public protocol
+    
+    /**
+     * Returns the number of farms added.
+     * @return farmsAdded
+     */
+    public int getFarmsAdded()
+    {
+        return farmsAdded;
+    }
+    
+    /**
+     * Returns the number of herds added.
+     * @return herdsAdded
+     */
+    public int getHerdsAdded()
+    {
+        return herdsAdded;
+    }
+    
+    /**
+     * Returns the number of cows added.
+     * @return cowsAdded
+     */
+    public int getCowsAdded()
+    {
+        return cowsAdded;
+    }
+    
+    /**
+     * Returns the number of milk takings added.
+     * @return milkTakingsAdded
+     */
+    public int getMilkTakingsAdded()
+    {
+        return milkTakingsAdded;
+    }
+    
+    /**
+     * Returns the number of rows rejected.
+     * @return rowsRejected
+     */
+    public int getRowsRejected()
+    {
+        return rowsRejected;
+    }
+    
+    /**
+     * Returns a description of each rejected row, giving its line number and
+     * the reason it was rejected. Only the first 1000 rejections are kept.
+     * @return an unmodifiable list of rejection descriptions
+     */
+    public List<String> getRejections()
+    {
+        return Collections.unmodifiableList(rejections);
+    }
+    
+    /**
+     * Returns a string summarising the import.
+     * @return a String object representing the receiver
+     */
+    @Override
+    public String toString()
+    {
+        return farmsAdded + " farms, " + herdsAdded + " herds, " + cowsAdded + " cows, "
+             + milkTakingsAdded + " milk takings added; " + rowsRejected + " rows rejected";
+    }
+    
+    // package protocol
+    
+    /**
+     * Counts an added farm.
+     */
+    void farmAdded()
+    {
+        farmsAdded++;
+    }
+    
+    /**
+     * Counts an added herd.
+     */
+    void herdAdded()
+    {
+        herdsAdded++;
+    }
+    
+    /**
+     * Counts an added cow.
+     */
+    void cowAdded()
+    {
+        cowsAdded++;
+    }
+    
+    /**
+     * Counts added milk takings.
+     */
+    void milkTakingsAdded()
+    {
+        milkTakingsAdded++;
+    }
+    
+    /**
+     * Counts a rejected row and records why it was rejected.
+     * @param aLineNumber the line number of the row
+     * @param aReason the reason the row was rejected
+     */
+    void rowRejected(long aLineNumber, String aReason)
+    {
+        rowsRejected++;
+        if (rejections.size() < MAX_REJECTIONS_KEPT)
+        {
+            rejections.add("Line " + aLineNumber + ": " + aReason);
+        }
+    }
+}
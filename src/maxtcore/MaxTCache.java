@@ -0,0 +1,178 @@
+
+package maxtcore;
+
+import java.util.concurrent.atomic.*;
+import farmingresources.*;
+
+/**
+ * Remembers the MaxT value found for each cell of the Yield Table, so a herd
+ * whose average yield falls in the same row, milking interval and milking
+ * session as before needs neither a MaxT Table lookup nor the formatting of
+ * the value. Each entry keeps the yield value it was found for, so an entry
+ * left behind by a cell change is never used. Replacing the MaxT Table drops
+ * every entry.
+ * @author Michael Gallichan
+ */
+class MaxTCache
+{
+    // instance variables
+    private volatile Entries entries;  // replaced whole with the MaxT Table
+    
+    // aggregate variables
+    private final LongAdder hits;
+    private final LongAdder misses;
+    
+    // constructor
+    
+    /**
+     * Creates an empty cache for a Yield Table of the given size.
+     * @param aMaxTTable the MaxT Table the values are found in
+     * @param aNumberOfCells the number of cells in the Yield Table
+     */
+    MaxTCache(MaxTTable aMaxTTable, int aNumberOfCells)
+    {
+        entries = new Entries(aMaxTTable, aNumberOfCells);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns the MaxT value in seconds for the given Yield Table cell.
+     * @param aCellIndex the position of a cell, or -1 if the average yield
+     * is not covered by the Yield Table
+     * @param aYieldValue the current value of the cell, or 0 if there is no
+     * cell
+     * @param aMaxTTable the MaxT Table to use
+     * @return the MaxT value in seconds, or MaxTTable.NO_VALUE if there is
+     * none
+     */
+    int getMaxTSeconds(int aCellIndex, int aYieldValue, MaxTTable aMaxTTable)
+    {
+        return getEntry(aCellIndex, aYieldValue, aMaxTTable).seconds;
+    }
+    
+    /**
+     * Returns the formatted MaxT value for the given Yield Table cell.
+     * @param aCellIndex the position of a cell, or -1 if the average yield
+     * is not covered by the Yield Table
+     * @param aYieldValue the current value of the cell, or 0 if there is no
+     * cell
+     * @param aMaxTTable the MaxT Table to use
+     * @return the MaxT value, or null if there is none
+     */
+    String getMaxTValue(int aCellIndex, int aYieldValue, MaxTTable aMaxTTable)
+    {
+        return getEntry(aCellIndex, aYieldValue, aMaxTTable).value;
+    }
+    
+    /**
+     * Drops the entry for the given Yield Table cell after its value changes.
+     * @param aCellIndex the position of a cell
+     */
+    void invalidate(int aCellIndex)
+    {
+        entries.values.set(aCellIndex, null);
+    }
+    
+    /**
+     * Drops every entry and finds values in the given MaxT Table from now on.
+     * @param aMaxTTable the MaxT Table the values are found in
+     */
+    void setMaxTTable(MaxTTable aMaxTTable)
+    {
+        entries = new Entries(aMaxTTable, entries.values.length());
+    }
+    
+    /**
+     * Counts lookups answered without the cache, from the MaxT value worked
+     * out for every cell, as hits.
+     * @param aNumberOfLookups the number of lookups answered
+     */
+    void countHits(int aNumberOfLookups)
+    {
+        hits.add(aNumberOfLookups);
+    }
+    
+    /**
+     * Returns the number of lookups answered without using the MaxT Table.
+     * @return the number of hits
+     */
+    long getHits()
+    {
+        return hits.sum();
+    }
+    
+    /**
+     * Returns the number of lookups that had to use the MaxT Table.
+     * @return the number of misses
+     */
+    long getMisses()
+    {
+        return misses.sum();
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns the entry for the given cell, finding and keeping it if it is
+     * missing or out of date. Values for yields outside the Yield Table, and
+     * values from a MaxT Table other than the current one, are found but not
+     * kept.
+     */
+    private Entry getEntry(int aCellIndex, int aYieldValue, MaxTTable aMaxTTable)
+    {
+        Entries current = entries;
+        boolean isCacheable = (aCellIndex >= 0 && current.maxTTable == aMaxTTable);
+        if (isCacheable)
+        {
+            Entry entry = current.values.get(aCellIndex);
+            if (entry != null && entry.yieldValue == aYieldValue)
+            {
+                hits.increment();
+                return entry;
+            }
+        }
+        
+        misses.increment();
+        Entry entry = new Entry(aYieldValue, aMaxTTable.getMaxTSeconds(aYieldValue));
+        if (isCacheable)
+        {
+            current.values.set(aCellIndex, entry);
+        }
+        return entry;
+    }
+    
+    /**
+     * The entries found in one MaxT Table, one per Yield Table cell.
+     */
+    private static class Entries
+    {
+        private final MaxTTable maxTTable;
+        private final AtomicReferenceArray<Entry> values;
+        
+        private Entries(MaxTTable aMaxTTable, int aNumberOfCells)
+        {
+            maxTTable = aMaxTTable;
+            values = new AtomicReferenceArray<>(aNumberOfCells);
+        }
+    }
+    
+    /**
+     * The MaxT value found for one yield value.
+     */
+    private static class Entry
+    {
+        private final int yieldValue;
+        private final int seconds;
+        private final String value;  // formatted once, when found
+        
+        private Entry(int aYieldValue, int aNumberOfSeconds)
+        {
+            yieldValue = aYieldValue;
+            seconds = aNumberOfSeconds;
+            value = (aNumberOfSeconds == MaxTTable.NO_VALUE ? null : MaxTTable.formatMaxT(aNumberOfSeconds));
+        }
+    }
+}
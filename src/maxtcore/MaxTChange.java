@@ -0,0 +1,200 @@
+
+package maxtcore;
+
+import java.util.*;
+import changetype.*;
+import timeperiod.*;
+
+/**
+ * Defines objects that describe one change to a coordinating object, such as
+ * a herd being added or the milk yield of some milk takings being updated.
+ * Each change names the farm, herd and cow it affects, as far as they apply.
+ * @author Michael Gallichan
+ */
+public class MaxTChange
+{
+    // instance variables
+    private final ChangeType changeType;
+    private final TimePeriod milkingSession;  // null unless milk takings changed
+    private final String yieldTableKey;  // null unless a yield value changed
+    
+    // link variables
+    private final Farm farm;
+    private final Herd herd;
+    private final Cow cow;
+    
+    // constructor
+    /**
+     * Creates a new MaxTChange object with the given values.
+     * @param aChangeType the kind of change
+     * @param aFarm the farm affected, or null
+     * @param aHerd the herd affected, or null
+     * @param aCow the cow affected, or null
+     * @param aMilkingSession the milking session of the milk takings affected,
+     *        or null
+     * @param aYieldTableKey the Yield Table map key of the value affected, or
+     *        null
+     */
+    MaxTChange(ChangeType aChangeType, Farm aFarm, Herd aHerd, Cow aCow,
+               TimePeriod aMilkingSession, String aYieldTableKey)
+    {
+        changeType = aChangeType;
+        milkingSession = aMilkingSession;
+        yieldTableKey = aYieldTableKey;
+        
+        farm = aFarm;
+        herd = aHerd;
+        cow = aCow;
+    }
+    
+    // public protocol
+    
+    /**
+     * Returns the kind of change.
+     * @return changeType
+     */
+    public ChangeType getChangeType()
+    {
+        return changeType;
+    }
+    
+    /**
+     * Returns the farm affected by the change.
+     * @return the farm, or null for a change to the Yield Table or the day
+     */
+    public Farm getFarm()
+    {
+        return farm;
+    }
+    
+    /**
+     * Returns the herd affected by the change.
+     * @return the herd, or null for a change to a farm or the Yield Table
+     */
+    public Herd getHerd()
+    {
+        return herd;
+    }
+    
+    /**
+     * Returns the cow affected by the change.
+     * @return the cow, or null unless a cow or its milk takings changed
+     */
+    public Cow getCow()
+    {
+        return cow;
+    }
+    
+    /**
+     * Returns the milking session of the milk takings affected by the change.
+     * @return the milking session, or null unless milk takings changed
+     */
+    public TimePeriod getMilkingSession()
+    {
+        return milkingSession;
+    }
+    
+    /**
+     * Returns the Yield Table map key of the value affected by the change.
+     * @return the map key, or null unless a yield value changed
+     */
+    public String getYieldTableKey()
+    {
+        return yieldTableKey;
+    }
+    
+    /**
+     * A string representation of the change.
+     * @return a String representing this change
+     */
+    @Override
+    public String toString()
+    {
+        String subject;
+        if (farm == null && yieldTableKey == null)
+        {
+            return changeType.toString();
+        }
+        else if (yieldTableKey != null)
+        {
+            subject = yieldTableKey;
+        }
+        else if (cow != null)
+        {
+            subject = farm.getId() + "/" + herd.getId() + "/" + cow.getId();
+        }
+        else if (herd != null)
+        {
+            subject = farm.getId() + "/" + herd.getId();
+        }
+        else
+        {
+            subject = farm.getId();
+        }
+        if (milkingSession != null)
+        {
+            subject = subject + " " + milkingSession;
+        }
+        
+        return changeType + ": " + subject;
+    }
+    
+    /**
+     * Confirms whether the given object is a change of the same kind to the
+     * same farm, herd, cow, milking session and Yield Table value. Farms,
+     * herds and cows are compared by ID, as a compact herd gives out a new
+     * object for a cow each time it is looked up.
+     * @param o an object
+     * @return true if o describes the same change, false otherwise
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof MaxTChange))
+        {
+            return false;
+        }
+        MaxTChange c = (MaxTChange) o;
+        return changeType == c.changeType && Objects.equals(getId(farm), getId(c.farm))
+               && Objects.equals(getId(herd), getId(c.herd)) && Objects.equals(getId(cow), getId(c.cow))
+               && milkingSession == c.milkingSession && Objects.equals(yieldTableKey, c.yieldTableKey);
+    }
+    
+    /**
+     * Returns the hashCode of the change
+     * @return hashCode
+     */
+    @Override
+    public int hashCode()
+    {
+        int code = 17;
+        code = 37*code + changeType.hashCode();
+        code = 37*code + Objects.hashCode(getId(farm));
+        code = 37*code + Objects.hashCode(getId(herd));
+        code = 37*code + Objects.hashCode(getId(cow));
+        code = 37*code + Objects.hashCode(milkingSession);
+        code = 37*code + Objects.hashCode(yieldTableKey);
+        return code;
+    }
+    
+    // private protocol
+    
+    private static String getId(Farm aFarm)
+    {
+        return (aFarm == null) ? null : aFarm.getId();
+    }
+    
+    private static String getId(Herd aHerd)
+    {
+        return (aHerd == null) ? null : aHerd.getId();
+    }
+    
+    private static String getId(Cow aCow)
+    {
+        return (aCow == null) ? null : aCow.getId();
+    }
+}
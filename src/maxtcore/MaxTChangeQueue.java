@@ -0,0 +1,99 @@
+
+package maxtcore;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Collects the changes waiting to be reported to one listener and reports
+ * them through the listener's executor. Only one report is outstanding at a
+ * time, so changes made while it waits to run are coalesced into it.
+ * @author Michael Gallichan
+ */
+class MaxTChangeQueue implements Runnable
+{
+    // link variables
+    private final MaxTListener listener;
+    private final Executor executor;
+    
+    // aggregate variables
+    private List<MaxTChange> pendingChanges;
+    private final Set<MaxTChange> pendingUpdates;  // updates since the last addition or deletion
+    
+    // constructor
+    /**
+     * Creates a new queue reporting to the given listener.
+     * @param aListener a listener
+     * @param anExecutor the executor that runs the listener
+     */
+    MaxTChangeQueue(MaxTListener aListener, Executor anExecutor)
+    {
+        listener = aListener;
+        executor = anExecutor;
+        pendingChanges = new ArrayList<>();
+        pendingUpdates = new HashSet<>();
+    }
+    
+    // public protocol
+    
+    /**
+     * Reports all the waiting changes to the listener.
+     */
+    @Override
+    public void run()
+    {
+        List<MaxTChange> changes;
+        synchronized (this)
+        {
+            changes = pendingChanges;
+            pendingChanges = new ArrayList<>();
+            pendingUpdates.clear();
+        }
+        if (!changes.isEmpty())
+        {
+            listener.maxTChanged(Collections.unmodifiableList(changes));
+        }
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns the listener the receiver reports to.
+     * @return listener
+     */
+    MaxTListener getListener()
+    {
+        return listener;
+    }
+    
+    /**
+     * Queues the given change, and schedules a report if none is waiting. An
+     * update that repeats one already waiting since the last addition or
+     * deletion is dropped.
+     * @param aChange a change
+     */
+    void add(MaxTChange aChange)
+    {
+        boolean mustSchedule;
+        synchronized (this)
+        {
+            if (aChange.getChangeType().isUpdate())
+            {
+                if (!pendingUpdates.add(aChange))
+                {
+                    return;  // already waiting to be reported
+                }
+            }
+            else
+            {
+                pendingUpdates.clear();
+            }
+            mustSchedule = pendingChanges.isEmpty();
+            pendingChanges.add(aChange);
+        }
+        if (mustSchedule)
+        {
+            executor.execute(this);
+        }
+    }
+}
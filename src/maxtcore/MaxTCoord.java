@@ -1,31 +1,98 @@
 
 package maxtcore;
 
+import java.math.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import timeperiod.*;
 import milkingintervals.*;
 import farmingresources.*;
+import changetype.*;
 
 /**
- * Coordinating object for the MaxT core system
+ * Coordinating object for the MaxT core system.
+ * <p>
+ * Any number of threads may use a coordinating object at once. Reads do not
+ * lock, apart from briefly taking a herd's read lock for its aggregates.
+ * Changes lock only what they touch: the coordinator for farms, a farm for
+ * its herds and a herd for its cows and milk takings, always in that order,
+ * so parlours recording takings for different herds never wait for each
+ * other. Every change also holds the shared side of a state lock whose
+ * exclusive side is taken only to save a consistent snapshot. Changes to
+ * the milk takings of a cow that another thread has deleted are ignored.
+ * <p>
+ * While changes are journalled, every method that makes a change throws an
+ * IllegalStateException without making it if the journal could not be
+ * written, until the journal has been compacted again.
+ * <p>
+ * Listeners added with addMaxTListener are told about each change after it
+ * is made, in the order the changes were made to each farm, herd and cow.
  * @author Michael Gallichan
  */
 public class MaxTCoord
 {
+    // class variables
+    private static final int DEFAULT_PARALLEL_REPORT_THRESHOLD = 50000;  // cows
+    private static final int REPORT_TASK_SIZE = 8192;  // cows handled by one task, see ReportTask.weigh
+    
     // link variables
-    private Collection<Farm> farms;
-    private YieldTable yieldTable;
-    private final MaxTTable maxTTable;
+    private final Collection<Farm> farms;
+    private final Map<String, Farm> farmsById;
+    private final YieldTable yieldTable;
+    private volatile MaxTTable maxTTable;
+    private final MaxTCache maxTCache;  // MaxT values by Yield Table cell
+    private volatile MaxTLookup maxTLookup;  // rebuilt in the background after changes
+    private volatile MaxTJournal journal;  // null unless changes are being journalled
+    private final List<MaxTChangeQueue> changeQueues;  // one per listener
+    
+    // instance variables
+    private volatile boolean checkingAggregates;
+    private long journalGeneration;  // generation of the journal that follows this state
+    private volatile int currentDay;  // number of days closed since the system started
+    private volatile RoundingMode yieldRounding;  // from average yields to Yield Table rows
+    private volatile boolean compactHerds;  // storage for herds added from now on
+    private volatile int parallelReportThreshold;
+    private volatile ForkJoinPool reportPool;  // null to use the common pool
+    
+    // synchronization variables
+    private final ReentrantReadWriteLock stateLock;  // shared by changes, exclusive for snapshots
+    private final Object farmsLock;  // held while changing farms
+    private final Object yieldTableLock;  // held while changing the Yield Table
+    private final Object lookupLock;  // held while building a MaxT lookup
+    private final AtomicBoolean lookupRebuildPending;
+    private final Runnable lookupRebuild;
     
     // constructor
     /**
-     * Creates a new coordinating object
+     * Creates a new coordinating object using the given yield table
+     * @param aYieldTable an empty yield table
      */
-    private MaxTCoord()
+    private MaxTCoord(YieldTable aYieldTable)
     {
-        farms = new TreeSet<>();
-        yieldTable = new YieldTable();
+        farms = new ConcurrentSkipListSet<>();
+        farmsById = new ConcurrentHashMap<>();
+        yieldTable = aYieldTable;
         maxTTable = MaxTTable.getMaxTTable();
+        maxTCache = new MaxTCache(maxTTable, aYieldTable.getNumberOfCells());
+        maxTLookup = new MaxTLookup(aYieldTable.getCellValues(), maxTTable);
+        lookupLock = new Object();
+        lookupRebuildPending = new AtomicBoolean();
+        lookupRebuild = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                rebuildMaxTLookup();
+            }
+        };
+        stateLock = new ReentrantReadWriteLock();
+        farmsLock = new Object();
+        yieldTableLock = new Object();
+        parallelReportThreshold = DEFAULT_PARALLEL_REPORT_THRESHOLD;
+        yieldRounding = RoundingMode.HALF_UP;
+        changeQueues = new CopyOnWriteArrayList<>();
     }
     
     // public protocol
@@ -85,6 +152,40 @@ public class MaxTCoord
         return Collections.unmodifiableMap(milkTakings);
     }
     
+    /**
+     * Returns the farm in the system with the given ID.
+     * @param anId a farm ID
+     * @return the Farm object with ID anId, or null if there is none
+     */
+    public Farm findFarm(String anId)
+    {
+        return farmsById.get(anId);
+    }
+    
+    /**
+     * Returns the herd on the given farm with the given ID.
+     * @param aFarm a farm
+     * @param anId a herd ID
+     * @return the Herd object linked to aFarm with ID anId, or null if there
+     * is none
+     */
+    public Herd findHerd(Farm aFarm, String anId)
+    {
+        return aFarm.getHerd(anId);
+    }
+    
+    /**
+     * Returns the cow in the given herd with the given ID.
+     * @param aHerd a herd
+     * @param anId a cow ID
+     * @return the Cow object linked to aHerd with ID anId, or null if there
+     * is none
+     */
+    public Cow findCow(Herd aHerd, String anId)
+    {
+        return aHerd.getCow(anId);
+    }
+    
     /**
      * Adds a farm to the system with the given attributes.
      * @param anId a unique ID
@@ -96,22 +197,7 @@ public class MaxTCoord
      */
     public void addFarm(String anId, String aName, String aLocation) throws IllegalArgumentException
     {
-        boolean idExists = false;
-        for (Farm eachFarm : farms)
-        {
-            if (anId.equals(eachFarm.getId()))  // Is farm id unique?
-            {
-                idExists = true;
-                break;
-            }
-        }
-        
-        if (!idExists)  // only add new farm if id is unique
-        {
-            Farm newFarm = new Farm(anId, aName, aLocation);
-            farms.add(newFarm);
-        }
-        else
+        if (createFarm(anId, aName, aLocation) == null)
         {
             throw new IllegalArgumentException("The supplied Farm ID is already in use.");
         }
@@ -126,14 +212,37 @@ public class MaxTCoord
      */
     public void deleteFarm(Farm aFarm) throws IllegalArgumentException
     {
-        if (aFarm.getHerds().isEmpty())  // if farm has no linked herds..
+        checkJournal();
+        stateLock.readLock().lock();
+        try
         {
-            farms.remove(aFarm);  // .. remove all links to aFarm to delete it,
+            synchronized (farmsLock)
+            {
+                synchronized (aFarm.getLock())
+                {
+                    if (aFarm.getHerds().isEmpty())  // if farm has no linked herds..
+                    {
+                        farms.remove(aFarm);  // .. remove all links to aFarm to delete it,
+                        farmsById.remove(aFarm.getId());
+                        MaxTJournal currentJournal = journal;
+                        if (currentJournal != null)
+                        {
+                            currentJournal.recordDeleteFarm(aFarm);
+                        }
+                        fireChange(ChangeType.FARM_DELETED, aFarm, null, null, null, null);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException("A farm cannot be deleted if herds are attached to it.");
+                    }
+                }
+            }
         }
-        else
+        finally
         {
-            throw new IllegalArgumentException("A farm cannot be deleted if herds are attached to it.");
+            stateLock.readLock().unlock();
         }
+        compactJournalIfDue();
     }
     
     /**
@@ -148,23 +257,7 @@ public class MaxTCoord
      */
     public void addHerd(String anId, String aName, MilkingIntervals aMilkingInterval, Farm aFarm) throws IllegalArgumentException
     {
-        boolean idExists = false;
-        Collection<Herd> herdList = aFarm.getHerds();
-        for (Herd eachHerd : herdList)
-        {
-            if (anId.equals(eachHerd.getId()))  // Is id unique in aFarm?
-            {
-                idExists = true;
-                break;
-            }
-        }
-        
-        if (!idExists)  // only add new Herd if id is unique in aFarm
-        {
-            Herd newHerd = new Herd(anId, aName, aMilkingInterval, aFarm);
-            aFarm.addHerd(newHerd);
-        }
-        else
+        if (createHerd(anId, aName, aMilkingInterval, aFarm) == null)
         {
             throw new IllegalArgumentException("The supplied Herd ID is already in use.");
         }
@@ -179,43 +272,89 @@ public class MaxTCoord
      */
     public void deleteHerd(Herd aHerd) throws IllegalArgumentException
     {
-        if (aHerd.getCows().isEmpty())
+        Farm farm = aHerd.getFarm();
+        Lock herdLock = aHerd.getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        try
         {
-            aHerd.getFarm().removeHerd(aHerd);
+            synchronized (farm.getLock())
+            {
+                herdLock.lock();
+                try
+                {
+                    if (aHerd.getNumberOfCows() == 0)
+                    {
+                        farm.removeHerd(aHerd);
+                        MaxTJournal currentJournal = journal;
+                        if (currentJournal != null)
+                        {
+                            currentJournal.recordDeleteHerd(aHerd);
+                        }
+                        fireChange(ChangeType.HERD_DELETED, farm, aHerd, null, null, null);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException("A herd cannot be deleted if cows are associated with it.");
+                    }
+                }
+                finally
+                {
+                    herdLock.unlock();
+                }
+            }
         }
-        else
+        finally
         {
-            throw new IllegalArgumentException("A herd cannot be deleted if cows are associated with it.");
+            stateLock.readLock().unlock();
         }
+        compactJournalIfDue();
     }
     
     /**
-     * Adds a cow to the given herd.
-     * @param anId a unique ID
+     * Sets the number of days over which the given herd's rolling average
+     * daily milk yield is kept, for getWindowAvgYieldPerCow. Herds start
+     * with a window of 7 days.
      * @param aHerd a herd
+     * @param aNumberOfDays the length of the window in days
      * 
-     * @throws IllegalArgumentException if a Cow object already linked to the 
-     * given Herd object has the given ID.
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
      */
-    public void addCow(String anId, Herd aHerd) throws IllegalArgumentException
+    public void setAverageWindow(Herd aHerd, int aNumberOfDays) throws IllegalArgumentException
     {
-        boolean idExists = false;
-        Collection<Cow> cowList = aHerd.getCows();
-        for (Cow eachCow : cowList)
+        Lock herdLock = aHerd.getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
         {
-            if (anId.equals(eachCow.getId()))  // Is id unique in aHerd?
+            aHerd.setAverageWindow(aNumberOfDays);
+            MaxTJournal currentJournal = journal;
+            if (currentJournal != null)
             {
-                idExists = true;
-                break;
+                currentJournal.recordSetAverageWindow(aHerd, aNumberOfDays);
             }
+            fireChange(ChangeType.HERD_UPDATED, aHerd.getFarm(), aHerd, null, null, null);
         }
-        
-        if (!idExists)  // only add new Cow if id is unique in aHerd
+        finally
         {
-            Cow newCow = new Cow(anId, aHerd);
-            aHerd.addCow(newCow);
+            herdLock.unlock();
+            stateLock.readLock().unlock();
         }
-        else
+        compactJournalIfDue();
+    }
+    
+    /**
+     * Adds a cow to the given herd.
+     * @param anId a unique ID
+     * @param aHerd a herd
+     * 
+     * @throws IllegalArgumentException if a Cow object already linked to the 
+     * given Herd object has the given ID.
+     */
+    public void addCow(String anId, Herd aHerd) throws IllegalArgumentException
+    {
+        if (createCow(anId, aHerd) == null)
         {
             throw new IllegalArgumentException("The supplied Cow ID is already in use.");
         }
@@ -227,66 +366,201 @@ public class MaxTCoord
      */
     public void deleteCow(Cow aCow)
     {
-        aCow.getHerd().removeCow(aCow);
+        Lock herdLock = aCow.getHerd().getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
+        {
+            if (aCow.getHerd().removeCow(aCow))
+            {
+                MaxTJournal currentJournal = journal;
+                if (currentJournal != null)
+                {
+                    currentJournal.recordDeleteCow(aCow);
+                }
+                fireChange(ChangeType.COW_DELETED, aCow.getHerd().getFarm(), aCow.getHerd(), aCow, null, null);
+            }
+        }
+        finally
+        {
+            herdLock.unlock();
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
     }
     
     /**
      * Adds a record of milk takings from the given cow.
      * @param aMilkingSession a milking session
-     * @param aMilkYield a milk yield
+     * @param aMilkYield a milk yield in litres
      * @param aCow a cow
      * 
      * @throws IllegalArgumentException if a MilkTakings object is already linked
-     * to aCow for aMilkingSession
+     * to aCow for aMilkingSession, or aMilkYield is negative
      */
     public void addMilkTakings(TimePeriod aMilkingSession, int aMilkYield, Cow aCow) throws IllegalArgumentException
     {
-        boolean takingsExist = false;
-        if (aMilkingSession == TimePeriod.AM)  // if takings for AM milking session..
+        addMilkTakingsCentilitres(aMilkingSession, Centilitres.fromLitres(aMilkYield), aCow);
+    }
+    
+    /**
+     * Adds a record of milk takings from the given cow, measured in
+     * centilitres.
+     * @param aMilkingSession a milking session
+     * @param aMilkYield a milk yield in centilitres
+     * @param aCow a cow
+     * 
+     * @throws IllegalArgumentException if a MilkTakings object is already linked
+     * to aCow for aMilkingSession, or aMilkYield is negative
+     */
+    public void addMilkTakingsCentilitres(TimePeriod aMilkingSession, int aMilkYield, Cow aCow) throws IllegalArgumentException
+    {
+        if (createMilkTakings(aMilkingSession, aMilkYield, aCow) == null)
         {
-            if (aCow.getAmMilkTakings() != null)  // .. and cow already has AM milk takings..
-            {
-                takingsExist = true;  // .. throw exception,
-            }
+            throw new IllegalArgumentException("Milk takings for this cow for this milking session have already been recorded.");
         }
-        else                         // OR, if takings for PM milking session..
+    }
+    
+    /**
+     * Updates the given milk takings with the given milk yield value.
+     * @param aMilkTakings a milk takings
+     * @param aMilkYield a milk yield in litres
+     * 
+     * @throws IllegalArgumentException if aMilkYield is negative
+     */
+    public void updateMilkTakings(MilkTakings aMilkTakings, int aMilkYield) throws IllegalArgumentException
+    {
+        updateMilkTakingsCentilitres(aMilkTakings, Centilitres.fromLitres(aMilkYield));
+    }
+    
+    /**
+     * Updates the given milk takings with the given milk yield value,
+     * measured in centilitres.
+     * @param aMilkTakings a milk takings
+     * @param aMilkYield a milk yield in centilitres
+     * 
+     * @throws IllegalArgumentException if aMilkYield is negative
+     */
+    public void updateMilkTakingsCentilitres(MilkTakings aMilkTakings, int aMilkYield) throws IllegalArgumentException
+    {
+        Cow cow = aMilkTakings.getCow();
+        checkMilkYield(aMilkYield, cow);
+        Herd herd = cow.getHerd();
+        Lock herdLock = herd.getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
         {
-            if (aCow.getPmMilkTakings() != null)  // .. and cow already has PM milk takings..
+            if (!cow.isRecorded(aMilkTakings) || !herd.containsCow(cow))
             {
-                takingsExist = true;  // .. throw exception.
+                return;  // deleted by another thread
             }
+            int change = aMilkYield - aMilkTakings.getMilkYieldCentilitres();
+            aMilkTakings.setMilkYield(aMilkYield);
+            herd.adjustTotalMilkYield(change);
+            MaxTJournal currentJournal = journal;
+            if (currentJournal != null)
+            {
+                currentJournal.recordUpdateMilkTakings(aMilkTakings);
+            }
+            fireChange(ChangeType.MILK_TAKINGS_UPDATED, herd.getFarm(), herd, cow,
+                       aMilkTakings.getMilkingSession(), null);
         }
-        
-        if (!takingsExist)
+        finally
         {
-            MilkTakings newMilkTakings = new MilkTakings(aMilkingSession, aMilkYield, aCow);
-            aCow.addMilkTakings(aMilkingSession, newMilkTakings);
-            
+            herdLock.unlock();
+            stateLock.readLock().unlock();
         }
-        else
+        compactJournalIfDue();
+    }
+    
+    /**
+     * Removes the milk takings for the given milking session from the given cow.
+     * @param aMilkingSession a milking session
+     * @param aCow a cow
+     */
+    public void deleteMilkTakings(TimePeriod aMilkingSession, Cow aCow)
+    {
+        Lock herdLock = aCow.getHerd().getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
         {
-            throw new IllegalArgumentException("Milk takings for this cow for this milking session have already been recorded.");
+            MilkTakings oldMilkTakings = aCow.getMilkTakings(aMilkingSession);
+            if (oldMilkTakings != null && aCow.getHerd().containsCow(aCow))  // only recorded takings count towards the herd
+            {
+                aCow.removeMilkTakings(aMilkingSession);
+                aCow.getHerd().adjustTotalMilkYield(-oldMilkTakings.getMilkYieldCentilitres());
+                MaxTJournal currentJournal = journal;
+                if (currentJournal != null)
+                {
+                    currentJournal.recordDeleteMilkTakings(aMilkingSession, aCow);
+                }
+                fireChange(ChangeType.MILK_TAKINGS_DELETED, aCow.getHerd().getFarm(), aCow.getHerd(), aCow,
+                           aMilkingSession, null);
+            }
         }
+        finally
+        {
+            herdLock.unlock();
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
     }
     
     /**
-     * Updates the given milk takings with the given milk yield value.
-     * @param aMilkTakings a milk takings
-     * @param aMilkYield a milk yield
+     * Returns the number of the current day. The system starts on day 0 and
+     * each call of advanceDay starts the next one.
+     * @return the current day
      */
-    public void updateMilkTakings(MilkTakings aMilkTakings, int aMilkYield)
+    public int getCurrentDay()
     {
-        aMilkTakings.setMilkYield(aMilkYield);
+        return currentDay;
     }
     
     /**
-     * Removes the milk takings for the given milking session from the given cow.
-     * @param aMilkingSession a milking session
-     * @param aCow a cow
+     * Ends the current day: moves every cow's milk takings into its milking
+     * history and starts a new day with no milk takings recorded. Waits for
+     * changes in progress to finish, as saving a snapshot does.
      */
-    public void deleteMilkTakings(TimePeriod aMilkingSession, Cow aCow)
+    public void advanceDay()
     {
-        aCow.removeMilkTakings(aMilkingSession);
+        checkJournal();
+        stateLock.writeLock().lock();
+        try
+        {
+            for (Farm eachFarm : farms)
+            {
+                for (Herd eachHerd : eachFarm.getHerds())
+                {
+                    Lock herdLock = eachHerd.getLock().writeLock();
+                    herdLock.lock();
+                    try
+                    {
+                        eachHerd.closeDay();
+                    }
+                    finally
+                    {
+                        herdLock.unlock();
+                    }
+                }
+            }
+            currentDay++;
+            MaxTJournal currentJournal = journal;
+            if (currentJournal != null)
+            {
+                currentJournal.recordAdvanceDay(currentDay);
+            }
+            fireChange(ChangeType.DAY_ADVANCED, null, null, null, null, null);
+        }
+        finally
+        {
+            stateLock.writeLock().unlock();
+        }
+        compactJournalIfDue();
     }
     
     /**
@@ -295,7 +569,26 @@ public class MaxTCoord
      */
     public static MaxTCoord getMaxT()
     {
-        MaxTCoord maxT = new MaxTCoord();
+        MaxTCoord maxT = new MaxTCoord(new YieldTable());
+        
+        return maxT;
+    }
+    
+    /**
+     * Returns a coordinating object in the default state apart from its Yield
+     * Table, which has one row every aYieldStep litres of average daily milk
+     * yield from aMinYield up to aMaxYield.
+     * @param aMinYield the average daily yield of the first Yield Table row
+     * @param aMaxYield the average daily yield of the last Yield Table row
+     * @param aYieldStep the difference in average daily yield between rows
+     * @return a MaxTCoord object
+     * 
+     * @throws IllegalArgumentException if the range is empty or negative, or
+     * aYieldStep is not positive or does not divide the range exactly
+     */
+    public static MaxTCoord getMaxT(int aMinYield, int aMaxYield, int aYieldStep) throws IllegalArgumentException
+    {
+        MaxTCoord maxT = new MaxTCoord(new YieldTable(aMinYield, aMaxYield, aYieldStep));
         
         return maxT;
     }
@@ -310,6 +603,33 @@ public class MaxTCoord
         return Collections.unmodifiableMap(theYieldTable);
     }
     
+    /**
+     * Returns the average daily yield of the first Yield Table row.
+     * @return the minimum average daily yield covered by the Yield Table
+     */
+    public int getYieldTableMinYield()
+    {
+        return yieldTable.getMinYield();
+    }
+    
+    /**
+     * Returns the average daily yield of the last Yield Table row.
+     * @return the maximum average daily yield with a Yield Table row
+     */
+    public int getYieldTableMaxYield()
+    {
+        return yieldTable.getMaxYield();
+    }
+    
+    /**
+     * Returns the difference in average daily yield between Yield Table rows.
+     * @return the Yield Table step
+     */
+    public int getYieldTableStep()
+    {
+        return yieldTable.getYieldStep();
+    }
+    
     /**
      * Returns the Yield Table value for the given getMapKey (made up of the
  average daily milk yield, milking interval and milking session.
@@ -326,10 +646,71 @@ public class MaxTCoord
      * interval and milking session values with the given yield value.
      * @param mapKey the concatenated string that constitutes the Yield Table map key
      * @param aYieldValue an expected yield for the milking session
+     * 
+     * @throws IllegalArgumentException if mapKey does not identify a cell of
+     * the Yield Table or aYieldValue is negative
+     */
+    public void updateYieldValue(String mapKey, int aYieldValue) throws IllegalArgumentException
+    {
+        if (aYieldValue < 0)
+        {
+            throw new IllegalArgumentException("The Yield Table value for key '" + mapKey + "' cannot be negative.");
+        }
+        checkJournal();
+        stateLock.readLock().lock();
+        try
+        {
+            synchronized (yieldTableLock)  // so the journal sees changes in the order they are made
+            {
+                yieldTable.updateYieldValue(mapKey, aYieldValue);
+                int cellIndex = yieldTable.getCellIndex(mapKey);
+                maxTCache.invalidate(cellIndex);
+                MaxTJournal currentJournal = journal;
+                if (currentJournal != null)
+                {
+                    currentJournal.recordUpdateYieldValue(cellIndex, aYieldValue);
+                }
+                fireChange(ChangeType.YIELD_VALUE_UPDATED, null, null, null, null, mapKey);
+            }
+        }
+        finally
+        {
+            stateLock.readLock().unlock();
+        }
+        requestMaxTLookupRebuild();
+        compactJournalIfDue();
+    }
+    
+    /**
+     * Updates the Yield Table cells identified by the given map keys with the
+     * given yield values, leaving the other cells as they are. The cells
+     * change together: lookups see either none or all of the new values, the
+     * journal records one entry, and listeners are told once, with a
+     * YIELD_TABLE_UPDATED change.
+     * @param someYieldValues the new yield values by Yield Table map key
+     * 
+     * @throws IllegalArgumentException if a map key does not identify a cell
+     * of the Yield Table or a yield value is null or negative, in which case
+     * no cell is changed
+     */
+    public void updateYieldValues(Map<String, Integer> someYieldValues) throws IllegalArgumentException
+    {
+        changeYieldValues(someYieldValues, false);
+    }
+    
+    /**
+     * Replaces every value of the Yield Table with the given yield values, as
+     * one change in the same way as updateYieldValues. Cells whose map keys
+     * are not given are left without a value.
+     * @param someYieldValues the new yield values by Yield Table map key
+     * 
+     * @throws IllegalArgumentException if a map key does not identify a cell
+     * of the Yield Table or a yield value is null or negative, in which case
+     * no cell is changed
      */
-    public void updateYieldValue(String mapKey, int aYieldValue)
+    public void replaceYieldValues(Map<String, Integer> someYieldValues) throws IllegalArgumentException
     {
-        yieldTable.updateYieldValue(mapKey, aYieldValue);
+        changeYieldValues(someYieldValues, true);
     }
     
     /**
@@ -339,15 +720,141 @@ public class MaxTCoord
      * @param aHerd a herd of cows
      * @param aMilkingSession a milking session
      * @return the average yield per cow as an integer
+     * 
+     * @throws IllegalStateException if aggregate checking is on and the milk
+     * yield total of aHerd is inconsistent
      */
-    public int getAvgYieldPerCow(Herd aHerd, TimePeriod aMilkingSession)
+    public int getAvgYieldPerCow(Herd aHerd, TimePeriod aMilkingSession) throws IllegalStateException
     {
-        int avgDailyMilkYield = aHerd.getAvgDailyMilkYield();
-        MilkingIntervals milkingIntervals = aHerd.getMilkingIntervals();
+        return getYieldValue(getYieldCellIndex(aHerd, aMilkingSession));
+    }
+    
+    /**
+     * Extracts the milk yield value for the given milking session from the
+     * Yield Value table according to the given herd's average daily milk
+     * yield over the given number of days before today, rather than today's
+     * milk takings alone.
+     * @param aHerd a herd of cows
+     * @param aMilkingSession a milking session
+     * @param aNumberOfDays the number of days, for example 7, 14 or 30
+     * @return the average yield per cow as an integer
+     * 
+     * @throws IllegalArgumentException if aNumberOfDays is less than 1
+     */
+    public int getAvgYieldPerCow(Herd aHerd, TimePeriod aMilkingSession, int aNumberOfDays) throws IllegalArgumentException
+    {
+        int avgDailyMilkYield = aHerd.getAvgDailyMilkYield(aNumberOfDays, yieldRounding);
+        
+        return yieldTable.getValue(avgDailyMilkYield, aHerd.getMilkingIntervals(), aMilkingSession);
+    }
+    
+    /**
+     * Extracts the milk yield value for the given milking session from the
+     * Yield Value table according to the given herd's average daily milk
+     * yield over its average window. The window sums are kept as each day
+     * closes, so this takes constant time.
+     * @param aHerd a herd of cows
+     * @param aMilkingSession a milking session
+     * @return the average yield per cow as an integer
+     */
+    public int getWindowAvgYieldPerCow(Herd aHerd, TimePeriod aMilkingSession)
+    {
+        int avgDailyMilkYield = aHerd.getWindowAvgDailyMilkYield(yieldRounding);
         
-        return yieldTable.getValue(yieldTable.getMapKey(avgDailyMilkYield, 
-                                                     milkingIntervals, 
-                                                     aMilkingSession));
+        return yieldTable.getValue(avgDailyMilkYield, aHerd.getMilkingIntervals(), aMilkingSession);
+    }
+    
+    /**
+     * Sets how average daily milk yields are rounded to whole litres before
+     * the Yield Table row covering them is found. The exact average is
+     * rounded once, not first to the centilitre. The default is HALF_UP.
+     * @param aRoundingMode a rounding mode
+     * 
+     * @throws IllegalArgumentException if aRoundingMode is null or
+     * UNNECESSARY, which most averages could not meet
+     */
+    public void setYieldRounding(RoundingMode aRoundingMode) throws IllegalArgumentException
+    {
+        if (aRoundingMode == null || aRoundingMode == RoundingMode.UNNECESSARY)
+        {
+            throw new IllegalArgumentException("Average yields need a rounding mode that can round.");
+        }
+        yieldRounding = aRoundingMode;
+    }
+    
+    /**
+     * Returns how average daily milk yields are rounded to whole litres for
+     * the Yield Table.
+     * @return the rounding mode
+     */
+    public RoundingMode getYieldRounding()
+    {
+        return yieldRounding;
+    }
+    
+    /**
+     * Sets whether herds added from now on keep their cows in compact
+     * storage: parallel arrays of IDs and yields, with the Cow and
+     * MilkTakings objects handed out as views. Compact herds use far less
+     * memory for very large herds. Existing herds keep their storage.
+     * @param isCompact true to add compact herds, false otherwise
+     */
+    public void setCompactHerds(boolean isCompact)
+    {
+        compactHerds = isCompact;
+    }
+    
+    /**
+     * Confirms whether herds added from now on keep their cows in compact
+     * storage.
+     * @return true if new herds are compact, false otherwise
+     */
+    public boolean isCompactHerds()
+    {
+        return compactHerds;
+    }
+    
+    /**
+     * Turns checking of the herd milk yield totals on or off. While checking
+     * is on, getAvgYieldPerCow recomputes the total of the given herd from its
+     * cows and compares it with the running total first.
+     * @param isChecking true to check the totals, false otherwise
+     */
+    public void setCheckingAggregates(boolean isChecking)
+    {
+        checkingAggregates = isChecking;
+    }
+    
+    /**
+     * Confirms whether the running milk yield total of the given herd matches
+     * the total recomputed from its cows.
+     * @param aHerd a herd of cows
+     * @return true if the totals match, false otherwise
+     */
+    public boolean isHerdAggregateConsistent(Herd aHerd)
+    {
+        return aHerd.isTotalMilkYieldConsistent();
+    }
+    
+    /**
+     * Returns the MaxT Table used by the receiver.
+     * @return the linked MaxT Table
+     */
+    public MaxTTable getMaxTTable()
+    {
+        return maxTTable;
+    }
+    
+    /**
+     * Replaces the MaxT Table used by the receiver, for example with one
+     * loaded by MaxTTable.loadMaxTTable for different milking equipment.
+     * @param aMaxTTable a MaxT Table
+     */
+    public void setMaxTTable(MaxTTable aMaxTTable)
+    {
+        maxTTable = aMaxTTable;
+        maxTCache.setMaxTTable(aMaxTTable);
+        requestMaxTLookupRebuild();
     }
     
     /**
@@ -361,32 +868,916 @@ public class MaxTCoord
     }
     
     /**
-     * Returns a string representation of all farms.
-     * @return a String object representing the receiver
+     * Extracts the MaxT value in seconds for the given average yield per cow.
+     * @param anAvgYieldPerCow an average milk yield per cow for a herd
+     * @return the MaxT value in seconds, or MaxTTable.NO_VALUE if there is
+     * none
      */
-    @Override
-    public String toString()
+    public int getMaxTSeconds(int anAvgYieldPerCow)
     {
-        return farms.toString();
+        return maxTTable.getMaxTSeconds(anAvgYieldPerCow);
     }
     
     /**
-     * Confirms whether milk yield data exists for all cows in the given herd.
+     * Extracts the MaxT value for the given milking session of the given
+     * herd, as getMaxTValue(getAvgYieldPerCow(aHerd, aMilkingSession))
+     * would. The MaxT value of every Yield Table cell is worked out in the
+     * background whenever the Yield Table or the MaxT Table changes, so this
+     * is a single array index once the herd's cell is known; until the work
+     * is done, values are found and kept one cell at a time.
      * @param aHerd a herd of cows
-     * @return false if a null reference is found; true otherwise
+     * @param aMilkingSession a milking session
+     * @return the MaxT value, or null if there is none
+     * 
+     * @throws IllegalStateException if aggregate checking is on and the milk
+     * yield total of aHerd is inconsistent
      */
-    public boolean isHerdMilkingDataComplete(Herd aHerd)
+    public String getMaxTValue(Herd aHerd, TimePeriod aMilkingSession) throws IllegalStateException
     {
-        return aHerd.isHerdMilkingDataComplete();
+        int cellIndex = getYieldCellIndex(aHerd, aMilkingSession);
+        MaxTTable currentMaxTTable = maxTTable;
+        MaxTLookup lookup = getCurrentMaxTLookup(currentMaxTTable);
+        if (lookup != null)
+        {
+            maxTCache.countHits(1);
+            return lookup.getMaxTValue(cellIndex);
+        }
+        
+        return maxTCache.getMaxTValue(cellIndex, getYieldValue(cellIndex), currentMaxTTable);
     }
     
     /**
-     * Checks if the yield table data is completely filled out by checking for
-     * a zero value.
-     * @return false if a zero value is found, true otherwise
+     * Extracts the MaxT value in seconds for the given milking session of
+     * the given herd, as getMaxTSeconds(getAvgYieldPerCow(aHerd,
+     * aMilkingSession)) would, using the values kept for each Yield Table
+     * cell.
+     * @param aHerd a herd of cows
+     * @param aMilkingSession a milking session
+     * @return the MaxT value in seconds, or MaxTTable.NO_VALUE if there is
+     * none
+     * 
+     * @throws IllegalStateException if aggregate checking is on and the milk
+     * yield total of aHerd is inconsistent
      */
-    public boolean isYieldTableComplete()
+    public int getMaxTSeconds(Herd aHerd, TimePeriod aMilkingSession) throws IllegalStateException
     {
-        return yieldTable.isYieldTableComplete();
+        int cellIndex = getYieldCellIndex(aHerd, aMilkingSession);
+        MaxTTable currentMaxTTable = maxTTable;
+        MaxTLookup lookup = getCurrentMaxTLookup(currentMaxTTable);
+        if (lookup != null)
+        {
+            maxTCache.countHits(1);
+            return lookup.getMaxTSeconds(cellIndex);
+        }
+        
+        return maxTCache.getMaxTSeconds(cellIndex, getYieldValue(cellIndex), currentMaxTTable);
+    }
+    
+    /**
+     * Returns the number of herd MaxT lookups, including those made for
+     * reports, answered without using the MaxT Table: from the MaxT value
+     * worked out for every cell, or from the values kept one cell at a time
+     * while that is being worked out again.
+     * @return the number of cache hits since the receiver was created
+     */
+    public long getMaxTCacheHits()
+    {
+        return maxTCache.getHits();
+    }
+    
+    /**
+     * Returns the number of herd MaxT lookups that had to use the MaxT
+     * Table, because no value was kept for the cell, the cell had changed or
+     * the average yield was outside the Yield Table.
+     * @return the number of cache misses since the receiver was created
+     */
+    public long getMaxTCacheMisses()
+    {
+        return maxTCache.getMisses();
+    }
+    
+    /**
+     * Returns a string representation of all farms.
+     * @return a String object representing the receiver
+     */
+    @Override
+    public String toString()
+    {
+        return farms.toString();
+    }
+    
+    /**
+     * Confirms whether milk yield data exists for all cows in the given herd.
+     * The herd counts its cows missing milk takings as they change, so no
+     * cows are visited.
+     * @param aHerd a herd of cows
+     * @return false if a cow is missing milk takings; true otherwise
+     */
+    public boolean isHerdMilkingDataComplete(Herd aHerd)
+    {
+        return aHerd.isHerdMilkingDataComplete();
+    }
+    
+    /**
+     * Returns the cows in the given herd without milk takings recorded for
+     * the given milking session today, in ID order. The herd keeps an index
+     * of these cows, so only the missing cows are visited however large the
+     * herd is.
+     * @param aHerd a herd of cows
+     * @param aMilkingSession a milking session
+     * @return an unmodifiable list of the Cow objects in aHerd missing milk
+     * takings for aMilkingSession
+     */
+    public List<Cow> getCowsMissingMilkTakings(Herd aHerd, TimePeriod aMilkingSession)
+    {
+        return Collections.unmodifiableList(aHerd.getCowsMissing(aMilkingSession));
+    }
+    
+    /**
+     * Checks if the yield table data is completely filled out, from the
+     * number of cells without a value kept by the Yield Table.
+     * @return false if a cell has no value, true otherwise
+     */
+    public boolean isYieldTableComplete()
+    {
+        return yieldTable.isYieldTableComplete();
+    }
+    
+    /**
+     * Returns the map keys of the Yield Table cells without a value, so a
+     * partly filled table can be completed. Reports still give MaxT values
+     * for the herds whose cells have values.
+     * @return a list of map keys, empty if the Yield Table is complete
+     */
+    public List<String> getMissingYieldCellKeys()
+    {
+        return yieldTable.getMissingCellKeys();
+    }
+    
+    /**
+     * Calculates the MaxT statistics of every herd of every farm.
+     * @return a report with one entry per herd, grouped by farm
+     * 
+     * @throws IllegalStateException if aggregate checking is on and the milk
+     * yield total of a herd is inconsistent
+     */
+    public MaxTReport getReport() throws IllegalStateException
+    {
+        return getReport(farms);
+    }
+    
+    /**
+     * Calculates the MaxT statistics of every herd of the given farms.
+     * @param someFarms the farms to report on
+     * @return a report with one entry per herd, grouped by farm in the order
+     * of someFarms
+     * 
+     * @throws IllegalStateException if aggregate checking is on and the milk
+     * yield total of a herd is inconsistent
+     */
+    public MaxTReport getReport(Collection<Farm> someFarms) throws IllegalStateException
+    {
+        MaxTReport report = new MaxTReport(isYieldTableComplete());
+        List<Herd> herds = new ArrayList<>();
+        long numberOfCows = 0;
+        for (Farm eachFarm : someFarms)
+        {
+            report.addFarm(eachFarm.getId());
+            for (Herd eachHerd : eachFarm.getHerds())
+            {
+                report.addHerd(eachHerd.getId());
+                herds.add(eachHerd);
+                numberOfCows = numberOfCows + eachHerd.getNumberOfCows();
+            }
+        }
+        
+        Herd[] reportHerds = herds.toArray(new Herd[herds.size()]);
+        MaxTTable currentMaxTTable = maxTTable;  // one table for the whole report
+        ForkJoinPool pool = reportPool;
+        int parallelism = (pool == null) ? ForkJoinPool.getCommonPoolParallelism() : pool.getParallelism();
+        if (numberOfCows >= parallelReportThreshold && parallelism >= 2 && reportHerds.length >= 2)
+        {
+            if (pool == null)
+            {
+                pool = ForkJoinPool.commonPool();
+            }
+            try
+            {
+                pool.invoke(new ReportTask(reportHerds, 0, reportHerds.length, currentMaxTTable, report));
+                return report;
+            }
+            catch (RejectedExecutionException e)
+            {
+                // the pool was replaced and shut down meanwhile, so report on this thread instead
+            }
+        }
+        for (int h = 0; h < reportHerds.length; h++)
+        {
+            addHerdToReport(reportHerds[h], h, currentMaxTTable, report);
+        }
+        
+        return report;
+    }
+    
+    /**
+     * Sets the number of threads that calculate the herds of a large report
+     * in parallel. Until this is called, reports use the common fork-join
+     * pool.
+     * @param aParallelism the number of threads, where 1 calculates every
+     *        report on the calling thread
+     * 
+     * @throws IllegalArgumentException if aParallelism is less than 1
+     */
+    public synchronized void setReportParallelism(int aParallelism) throws IllegalArgumentException
+    {
+        if (aParallelism < 1)
+        {
+            throw new IllegalArgumentException("The report parallelism must be at least 1.");
+        }
+        
+        ForkJoinPool oldPool = reportPool;  // synchronized so no replaced pool escapes being shut down
+        if (oldPool != null && oldPool.getParallelism() == aParallelism)
+        {
+            return;
+        }
+        reportPool = new ForkJoinPool(aParallelism);
+        if (oldPool != null)
+        {
+            oldPool.shutdown();  // lets reports already running finish
+        }
+    }
+    
+    /**
+     * Returns the number of threads that calculate the herds of a large
+     * report in parallel.
+     * @return the report parallelism
+     */
+    public int getReportParallelism()
+    {
+        ForkJoinPool pool = reportPool;
+        
+        return (pool == null) ? ForkJoinPool.getCommonPoolParallelism() : pool.getParallelism();
+    }
+    
+    /**
+     * Sets the number of cows below which reports are calculated on the
+     * calling thread, where splitting the work would cost more than it saves.
+     * @param aNumberOfCows the smallest number of cows reported on in parallel
+     * 
+     * @throws IllegalArgumentException if aNumberOfCows is negative
+     */
+    public void setParallelReportThreshold(int aNumberOfCows) throws IllegalArgumentException
+    {
+        if (aNumberOfCows < 0)
+        {
+            throw new IllegalArgumentException("The parallel report threshold cannot be negative.");
+        }
+        
+        parallelReportThreshold = aNumberOfCows;
+    }
+    
+    /**
+     * Returns the number of cows below which reports are calculated on the
+     * calling thread.
+     * @return parallelReportThreshold
+     */
+    public int getParallelReportThreshold()
+    {
+        return parallelReportThreshold;
+    }
+    
+    /**
+     * Returns the journal recording the receiver's changes.
+     * @return the journal, or null if changes are not being journalled
+     */
+    public MaxTJournal getJournal()
+    {
+        return journal;
+    }
+    
+    /**
+     * Adds a listener to be told about every later change to the receiver.
+     * Changes are queued while the receiver is locked and the listener is
+     * run through the given executor, which should run tasks one at a time
+     * on another thread, for example the Swing event dispatch thread. While a
+     * report waits for the executor, further changes join it.
+     * @param aListener a listener
+     * @param anExecutor the executor that runs the listener
+     * 
+     * @throws IllegalArgumentException if aListener or anExecutor is null
+     */
+    public void addMaxTListener(MaxTListener aListener, Executor anExecutor) throws IllegalArgumentException
+    {
+        if (aListener == null || anExecutor == null)
+        {
+            throw new IllegalArgumentException("A listener needs an executor to run it.");
+        }
+        changeQueues.add(new MaxTChangeQueue(aListener, anExecutor));
+    }
+    
+    /**
+     * Stops telling the given listener about changes to the receiver. Changes
+     * already waiting for the listener are still reported.
+     * @param aListener a listener added with addMaxTListener
+     */
+    public void removeMaxTListener(MaxTListener aListener)
+    {
+        for (MaxTChangeQueue eachQueue : changeQueues)
+        {
+            if (eachQueue.getListener() == aListener)
+            {
+                changeQueues.remove(eachQueue);
+            }
+        }
+    }
+    
+    // package protocol
+    
+    /**
+     * Sets the journal that records the receiver's changes.
+     * @param aJournal a journal, or null to stop journalling changes
+     */
+    void setJournal(MaxTJournal aJournal)
+    {
+        journal = aJournal;
+    }
+    
+    /**
+     * Returns the lock whose shared side every change holds. Holding the
+     * exclusive side keeps the receiver unchanged, for example while saving a
+     * snapshot.
+     * @return the receiver's state lock
+     */
+    ReadWriteLock getStateLock()
+    {
+        return stateLock;
+    }
+    
+    /**
+     * Returns the generation of the journal that follows the receiver's
+     * current state in a snapshot.
+     * @return journalGeneration
+     */
+    long getJournalGeneration()
+    {
+        return journalGeneration;
+    }
+    
+    /**
+     * Sets the generation of the journal that follows the receiver's current
+     * state in a snapshot.
+     * @param aGeneration a journal generation
+     */
+    void setJournalGeneration(long aGeneration)
+    {
+        journalGeneration = aGeneration;
+    }
+    
+    /**
+     * Sets the number of the current day, for example when loading a
+     * snapshot.
+     * @param aDay a day number
+     */
+    void setCurrentDay(int aDay)
+    {
+        currentDay = aDay;
+    }
+    
+    /**
+     * Returns the Yield Table object used by the receiver.
+     * @return the linked Yield Table
+     */
+    YieldTable getLinkedYieldTable()
+    {
+        return yieldTable;
+    }
+    
+    /**
+     * Adds a farm to the system with the given attributes, unless a farm
+     * already exists with the given ID.
+     * @param anId a unique ID
+     * @param aName a name
+     * @param aLocation a location
+     * @return the new Farm object, or null if the ID is already in use
+     */
+    Farm createFarm(String anId, String aName, String aLocation)
+    {
+        Farm newFarm;
+        checkJournal();
+        stateLock.readLock().lock();
+        try
+        {
+            synchronized (farmsLock)
+            {
+                boolean idExists = farmsById.containsKey(anId);  // Is farm id unique?
+                
+                if (idExists)  // only add new farm if id is unique
+                {
+                    return null;
+                }
+                
+                // journal the farm before other threads can see it and add to it
+                newFarm = new Farm(anId, aName, aLocation);
+                MaxTJournal currentJournal = journal;
+                if (currentJournal != null)
+                {
+                    currentJournal.recordAddFarm(newFarm);
+                }
+                farmsById.put(anId, newFarm);
+                farms.add(newFarm);
+                fireChange(ChangeType.FARM_ADDED, newFarm, null, null, null, null);
+            }
+        }
+        finally
+        {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
+        
+        return newFarm;
+    }
+    
+    /**
+     * Adds a herd to the given farm, unless a herd already linked to the farm
+     * has the given ID.
+     * @param anId a unique ID
+     * @param aName a name
+     * @param aMilkingInterval a milking interval
+     * @param aFarm a farm
+     * @return the new Herd object, or null if the ID is already in use
+     */
+    Herd createHerd(String anId, String aName, MilkingIntervals aMilkingInterval, Farm aFarm)
+    {
+        return createHerd(anId, aName, aMilkingInterval, aFarm, compactHerds);
+    }
+    
+    /**
+     * Adds a herd to the given farm with the given storage, unless a herd
+     * already linked to the farm has the given ID.
+     * @param anId a unique ID
+     * @param aName a name
+     * @param aMilkingInterval a milking interval
+     * @param aFarm a farm
+     * @param isCompact whether the herd keeps its cows in compact storage
+     * @return the new Herd object, or null if the ID is already in use
+     */
+    Herd createHerd(String anId, String aName, MilkingIntervals aMilkingInterval, Farm aFarm,
+                    boolean isCompact)
+    {
+        Herd newHerd;
+        checkJournal();
+        stateLock.readLock().lock();
+        try
+        {
+            synchronized (aFarm.getLock())
+            {
+                boolean idExists = (aFarm.getHerd(anId) != null);  // Is id unique in aFarm?
+                
+                if (idExists)  // only add new Herd if id is unique in aFarm
+                {
+                    return null;
+                }
+                
+                newHerd = new Herd(anId, aName, aMilkingInterval, aFarm, isCompact);
+                MaxTJournal currentJournal = journal;
+                if (currentJournal != null)
+                {
+                    currentJournal.recordAddHerd(newHerd);
+                }
+                aFarm.addHerd(newHerd);
+                fireChange(ChangeType.HERD_ADDED, aFarm, newHerd, null, null, null);
+            }
+        }
+        finally
+        {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
+        
+        return newHerd;
+    }
+    
+    /**
+     * Adds a cow to the given herd, unless a cow already linked to the herd
+     * has the given ID.
+     * @param anId a unique ID
+     * @param aHerd a herd
+     * @return the new Cow object, or null if the ID is already in use
+     */
+    Cow createCow(String anId, Herd aHerd)
+    {
+        Cow newCow;
+        Lock herdLock = aHerd.getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
+        {
+            boolean idExists = (aHerd.getCow(anId) != null);  // Is id unique in aHerd?
+            
+            if (idExists)  // only add new Cow if id is unique in aHerd
+            {
+                return null;
+            }
+            
+            newCow = aHerd.addCow(anId);
+            MaxTJournal currentJournal = journal;
+            if (currentJournal != null)
+            {
+                currentJournal.recordAddCow(newCow);
+            }
+            fireChange(ChangeType.COW_ADDED, aHerd.getFarm(), aHerd, newCow, null, null);
+        }
+        finally
+        {
+            herdLock.unlock();
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
+        
+        return newCow;
+    }
+    
+    /**
+     * Adds a record of milk takings from the given cow, unless milk takings
+     * are already recorded for the cow for the given milking session.
+     * @param aMilkingSession a milking session
+     * @param aMilkYield a milk yield in centilitres
+     * @param aCow a cow
+     * @return the new MilkTakings object, or null if takings already exist
+     * 
+     * @throws IllegalArgumentException if aMilkYield is negative
+     */
+    MilkTakings createMilkTakings(TimePeriod aMilkingSession, int aMilkYield, Cow aCow) throws IllegalArgumentException
+    {
+        checkMilkYield(aMilkYield, aCow);
+        MilkTakings newMilkTakings;
+        Lock herdLock = aCow.getHerd().getLock().writeLock();
+        checkJournal();
+        stateLock.readLock().lock();
+        herdLock.lock();
+        try
+        {
+            if (aCow.getMilkTakings(aMilkingSession) != null)  // if cow already has takings for the session..
+            {
+                return null;  // .. leave them as they are.
+            }
+            if (!aCow.getHerd().containsCow(aCow))
+            {
+                return null;  // deleted by another thread
+            }
+            
+            newMilkTakings = aCow.addMilkTakings(aMilkingSession, aMilkYield);
+            aCow.getHerd().adjustTotalMilkYield(aMilkYield);
+            MaxTJournal currentJournal = journal;
+            if (currentJournal != null)
+            {
+                currentJournal.recordAddMilkTakings(newMilkTakings);
+            }
+            fireChange(ChangeType.MILK_TAKINGS_ADDED, aCow.getHerd().getFarm(), aCow.getHerd(), aCow,
+                       aMilkingSession, null);
+        }
+        finally
+        {
+            herdLock.unlock();
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfDue();
+        
+        return newMilkTakings;
+    }
+    
+    // private protocol
+    
+    /**
+     * Refuses a negative milk yield, which compact herds could not tell from
+     * milk takings that were never recorded.
+     */
+    private static void checkMilkYield(int aMilkYield, Cow aCow) throws IllegalArgumentException
+    {
+        if (aMilkYield < 0)
+        {
+            throw new IllegalArgumentException("The milk yield of Cow '" + aCow.getId() + "' cannot be negative.");
+        }
+    }
+    
+    /**
+     * Queues a change with the given values for every listener. Called with
+     * the locks of the changed objects held, so each listener sees changes to
+     * the same object in the order they were made.
+     */
+    private void fireChange(ChangeType aChangeType, Farm aFarm, Herd aHerd, Cow aCow,
+                            TimePeriod aMilkingSession, String aYieldTableKey)
+    {
+        if (changeQueues.isEmpty())
+        {
+            return;
+        }
+        MaxTChange change = new MaxTChange(aChangeType, aFarm, aHerd, aCow, aMilkingSession, aYieldTableKey);
+        for (MaxTChangeQueue eachQueue : changeQueues)
+        {
+            eachQueue.add(change);
+        }
+    }
+    
+    /**
+     * Returns the position of the Yield Table cell for today's average daily
+     * milk yield of the given herd, or -1 if no row covers it.
+     */
+    private int getYieldCellIndex(Herd aHerd, TimePeriod aMilkingSession) throws IllegalStateException
+    {
+        if (checkingAggregates && !aHerd.isTotalMilkYieldConsistent())
+        {
+            throw new IllegalStateException("The milk yield total of Herd '" + aHerd.getId() + "' is inconsistent.");
+        }
+        
+        int avgDailyMilkYield = aHerd.getAvgDailyMilkYield(yieldRounding);  // rounded once from the exact average
+        MilkingIntervals milkingIntervals = aHerd.getMilkingIntervals();
+        
+        return yieldTable.getCellIndex(avgDailyMilkYield, milkingIntervals, aMilkingSession);
+    }
+    
+    /**
+     * Changes the Yield Table cells identified by the given map keys in one
+     * step, starting from the current values or, when replacing, from an
+     * empty table. Only the cells whose values actually change are
+     * journalled and have their cached MaxT values dropped.
+     */
+    private void changeYieldValues(Map<String, Integer> someYieldValues, boolean isReplacing)
+                                   throws IllegalArgumentException
+    {
+        // check every key and value before anything changes
+        int[] indexes = new int[someYieldValues.size()];
+        int[] newValues = new int[someYieldValues.size()];
+        int n = 0;
+        for (Map.Entry<String, Integer> eachValue : someYieldValues.entrySet())
+        {
+            indexes[n] = yieldTable.getCellIndex(eachValue.getKey());
+            if (indexes[n] < 0)
+            {
+                throw new IllegalArgumentException("The Yield Table key '" + eachValue.getKey() + "' is not recognised.");
+            }
+            if (eachValue.getValue() == null)
+            {
+                throw new IllegalArgumentException("The Yield Table key '" + eachValue.getKey() + "' has no value.");
+            }
+            if (eachValue.getValue() < 0)
+            {
+                throw new IllegalArgumentException("The Yield Table value for key '" + eachValue.getKey()
+                                                   + "' cannot be negative.");
+            }
+            newValues[n] = eachValue.getValue();
+            n++;
+        }
+        
+        boolean changed = false;
+        checkJournal();
+        stateLock.readLock().lock();
+        try
+        {
+            synchronized (yieldTableLock)  // so the journal sees changes in the order they are made
+            {
+                int[] oldValues = yieldTable.getCellValues();
+                int[] values = isReplacing ? new int[oldValues.length] : oldValues.clone();
+                for (int i = 0; i < n; i++)
+                {
+                    values[indexes[i]] = newValues[i];
+                }
+                
+                int[] changedIndexes = new int[values.length];
+                int numberChanged = 0;
+                for (int cell = 0; cell < values.length; cell++)
+                {
+                    if (values[cell] != oldValues[cell])
+                    {
+                        changedIndexes[numberChanged] = cell;
+                        numberChanged++;
+                    }
+                }
+                if (numberChanged > 0)
+                {
+                    yieldTable.setCellValues(values);
+                    int[] changedValues = new int[numberChanged];
+                    for (int i = 0; i < numberChanged; i++)
+                    {
+                        maxTCache.invalidate(changedIndexes[i]);
+                        changedValues[i] = values[changedIndexes[i]];
+                    }
+                    MaxTJournal currentJournal = journal;
+                    if (currentJournal != null)
+                    {
+                        currentJournal.recordUpdateYieldValues(Arrays.copyOf(changedIndexes, numberChanged),
+                                                               changedValues);
+                    }
+                    fireChange(ChangeType.YIELD_TABLE_UPDATED, null, null, null, null, null);
+                    changed = true;
+                }
+            }
+        }
+        finally
+        {
+            stateLock.readLock().unlock();
+        }
+        if (changed)
+        {
+            requestMaxTLookupRebuild();
+            compactJournalIfDue();
+        }
+    }
+    
+    /**
+     * Returns the published MaxT lookup if it was built from the current
+     * Yield Table values and the given MaxT Table, or null if it is out of
+     * date. A lookup found out of date for the current MaxT Table is
+     * rebuilt, which also catches Yield Table changes made while replaying
+     * a journal or loading a snapshot.
+     */
+    private MaxTLookup getCurrentMaxTLookup(MaxTTable aMaxTTable)
+    {
+        MaxTLookup lookup = maxTLookup;
+        if (lookup.isBuiltFrom(yieldTable.getCellValues(), aMaxTTable))
+        {
+            return lookup;
+        }
+        if (aMaxTTable == maxTTable)
+        {
+            requestMaxTLookupRebuild();
+        }
+        return null;
+    }
+    
+    /**
+     * Starts building a new MaxT lookup in the common pool unless one is
+     * already waiting to start, in which case that one sees the latest
+     * change.
+     */
+    private void requestMaxTLookupRebuild()
+    {
+        if (lookupRebuildPending.compareAndSet(false, true))
+        {
+            ForkJoinPool.commonPool().execute(lookupRebuild);
+        }
+    }
+    
+    /**
+     * Builds a MaxT lookup from the current Yield Table values and MaxT
+     * Table and publishes it. Builds run one at a time, so a later build
+     * always publishes after an earlier one.
+     */
+    private void rebuildMaxTLookup()
+    {
+        synchronized (lookupLock)
+        {
+            lookupRebuildPending.set(false);  // changes from here on need another build
+            maxTLookup = new MaxTLookup(yieldTable.getCellValues(), maxTTable);
+        }
+    }
+    
+    /**
+     * Returns the value of the given Yield Table cell, or 0 if there is no
+     * cell.
+     */
+    private int getYieldValue(int aCellIndex)
+    {
+        return (aCellIndex < 0 ? 0 : yieldTable.getCellValue(aCellIndex));
+    }
+    
+    /**
+     * Calculates the MaxT statistics of the given herd and sets them at the
+     * given position of the given report.
+     */
+    private void addHerdToReport(Herd aHerd, int aHerdIndex, MaxTTable aMaxTTable, MaxTReport aReport)
+    {
+        int cowCount = aHerd.getNumberOfCows();
+        boolean complete = (cowCount > 0 && aHerd.isHerdMilkingDataComplete());
+        boolean yieldDataComplete = true;  // a herd without a row is missing no cells
+        int amAvgYieldPerCow = 0;
+        int pmAvgYieldPerCow = 0;
+        int amMaxTSeconds = MaxTTable.NO_VALUE;
+        int pmMaxTSeconds = MaxTTable.NO_VALUE;
+        if (complete)
+        {
+            int amCellIndex = getYieldCellIndex(aHerd, TimePeriod.AM);
+            int pmCellIndex = getYieldCellIndex(aHerd, TimePeriod.PM);
+            amAvgYieldPerCow = getYieldValue(amCellIndex);
+            pmAvgYieldPerCow = getYieldValue(pmCellIndex);
+            yieldDataComplete = (amCellIndex < 0 || amAvgYieldPerCow != 0)
+                                && (pmCellIndex < 0 || pmAvgYieldPerCow != 0);
+            MaxTLookup lookup = getCurrentMaxTLookup(aMaxTTable);
+            if (!yieldDataComplete)
+            {
+                amAvgYieldPerCow = 0;  // the herd's row of the Yield Table is still being filled in
+                pmAvgYieldPerCow = 0;
+            }
+            else if (lookup != null)
+            {
+                amMaxTSeconds = lookup.getMaxTSeconds(amCellIndex);
+                pmMaxTSeconds = lookup.getMaxTSeconds(pmCellIndex);
+                maxTCache.countHits(2);  // one for each milking session
+            }
+            else
+            {
+                amMaxTSeconds = maxTCache.getMaxTSeconds(amCellIndex, amAvgYieldPerCow, aMaxTTable);
+                pmMaxTSeconds = maxTCache.getMaxTSeconds(pmCellIndex, pmAvgYieldPerCow, aMaxTTable);
+            }
+        }
+        
+        aReport.setHerdStatistics(aHerdIndex, cowCount, complete, yieldDataComplete,
+                                  amAvgYieldPerCow, pmAvgYieldPerCow, amMaxTSeconds, pmMaxTSeconds);
+    }
+    
+    /**
+     * Refuses a change before it is made if it could not be journalled.
+     */
+    private void checkJournal() throws IllegalStateException
+    {
+        MaxTJournal currentJournal = journal;
+        if (currentJournal != null)
+        {
+            currentJournal.checkWritable();
+        }
+    }
+    
+    /**
+     * Requests a background compaction of the journal if it has grown too
+     * large. Called only once every lock taken for a change has been
+     * released.
+     */
+    private void compactJournalIfDue()
+    {
+        MaxTJournal currentJournal = journal;
+        if (currentJournal != null)
+        {
+            currentJournal.compactIfDue();
+        }
+    }
+    
+    /**
+     * Calculates the statistics of a range of herds of a report, splitting
+     * the range in two while its herds weigh more than REPORT_TASK_SIZE.
+     * Reports are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private class ReportTask extends RecursiveAction
+    {
+        private final Herd[] herds;
+        private final int first;
+        private final int end;
+        private final MaxTTable maxTTable;
+        private final MaxTReport report;
+        
+        ReportTask(Herd[] someHerds, int aFirst, int anEnd, MaxTTable aMaxTTable, MaxTReport aReport)
+        {
+            herds = someHerds;
+            first = aFirst;
+            end = anEnd;
+            maxTTable = aMaxTTable;
+            report = aReport;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            long size = 0;
+            int middle = first;
+            for (int h = first; h < end; h++)
+            {
+                size = size + weigh(herds[h]);
+            }
+            
+            if (size <= REPORT_TASK_SIZE || end - first < 2)
+            {
+                for (int h = first; h < end; h++)
+                {
+                    addHerdToReport(herds[h], h, maxTTable, report);
+                }
+                return;
+            }
+            
+            // split where half of the work lies on each side
+            long half = 0;
+            while (middle < end - 1 && half * 2 < size)
+            {
+                half = half + weigh(herds[middle]);
+                middle++;
+            }
+            if (middle == first)
+            {
+                middle++;
+            }
+            invokeAll(new ReportTask(herds, first, middle, maxTTable, report),
+                      new ReportTask(herds, middle, end, maxTTable, report));
+        }
+        
+        /**
+         * Returns the work of reporting on the given herd in cows, the unit
+         * of REPORT_TASK_SIZE and of the parallel report threshold. An empty
+         * herd still weighs one, so an estate of many small herds is split
+         * as well.
+         */
+        private long weigh(Herd aHerd)
+        {
+            return aHerd.getNumberOfCows() + 1;
+        }
     }
 }
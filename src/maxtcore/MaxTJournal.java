@@ -0,0 +1,1050 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.logging.*;
+import java.util.zip.*;
+import milkingintervals.*;
+import timeperiod.*;
+
+/**
+ * Records every change made to a coordinating object in an append-only
+ * journal file, so that the changes made since the last snapshot can be
+ * replayed after a crash.
+ * <p>
+ * Callers only add a record to an in-memory batch; a background thread
+ * writes each batch to the file and forces it to disk with a single sync,
+ * so bursts of changes share one sync and no caller waits for the disk.
+ * When the journal grows beyond a threshold it is compacted on a background
+ * thread: the whole state is saved as a snapshot and the journal is emptied.
+ * <p>
+ * If a batch cannot be written, the journal is cut back to the end of the
+ * last batch that was, and no further records are accepted: changes to the
+ * coordinating object are refused with an IllegalStateException until a
+ * compaction, started at once in the background, saves the whole state
+ * again.
+ * <p>
+ * Each record is framed by its length and a CRC-32 checksum, so a record
+ * torn by a crash is detected and dropped on replay. The snapshot and the
+ * journal carry a generation number so that a journal already contained in
+ * a newer snapshot is never replayed twice.
+ * @author Michael Gallichan
+ */
+public class MaxTJournal
+{
+    // class variables
+    private static final int MAGIC = 0x4D41584A;  // "MAXJ"
+    private static final short VERSION = 2;  // 1 held milk yields in whole litres
+    private static final int HEADER_SIZE = 4 + 2 + 8;
+    private static final long MAX_HEAP_READ_BYTES = 64L << 20;  // larger journals are mapped
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+    private static final int INITIAL_BATCH_SIZE = 1 << 16;
+    private static final MilkingIntervals[] INTERVALS = MilkingIntervals.values();
+    private static final TimePeriod[] SESSIONS = TimePeriod.values();
+    private static final Logger LOGGER = Logger.getLogger(MaxTJournal.class.getName());
+    
+    // record types
+    private static final byte ADD_FARM = 1;
+    private static final byte DELETE_FARM = 2;
+    private static final byte ADD_HERD = 3;
+    private static final byte DELETE_HERD = 4;
+    private static final byte ADD_COW = 5;
+    private static final byte DELETE_COW = 6;
+    private static final byte ADD_MILK_TAKINGS = 7;
+    private static final byte UPDATE_MILK_TAKINGS = 8;
+    private static final byte DELETE_MILK_TAKINGS = 9;
+    private static final byte UPDATE_YIELD_VALUE = 10;
+    private static final byte ADVANCE_DAY = 11;
+    private static final byte SET_AVERAGE_WINDOW = 12;
+    private static final byte UPDATE_YIELD_VALUES = 13;
+    
+    // link variables
+    private final MaxTCoord maxT;
+    
+    // instance variables
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final Thread writerThread;
+    private final ExecutorService compactor;  // runs compactions due after changes
+    private final AtomicBoolean compactionPending = new AtomicBoolean();
+    private final Runnable compaction;
+    private final Object lock = new Object();
+    private final CRC32 checksum = new CRC32();  // used under lock only
+    private ByteBuffer batch;       // records waiting to be written, guarded by lock
+    private ByteBuffer spareBatch;  // batch being written by the writer thread
+    private long recordsAdded;      // guarded by lock
+    private long recordsWritten;    // guarded by lock
+    private boolean writing;        // guarded by lock
+    private boolean closed;         // guarded by lock
+    private IOException failure;    // guarded by lock
+    private long journalSize;       // guarded by lock
+    private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    
+    // constructor
+    /**
+     * Creates a new journal appending to the given open channel and starts
+     * its writer thread.
+     * @param aMaxT the coordinating object whose changes are recorded
+     * @param aSnapshotFile the snapshot file written when compacting
+     * @param aChannel an open channel positioned at the end of the journal
+     */
+    private MaxTJournal(MaxTCoord aMaxT, Path aSnapshotFile, FileChannel aChannel) throws IOException
+    {
+        maxT = aMaxT;
+        snapshotFile = aSnapshotFile;
+        channel = aChannel;
+        journalSize = aChannel.size();
+        batch = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+        spareBatch = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+        
+        writerThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeBatches();
+            }
+        }, "MaxT journal writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        
+        compactor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable aTask)
+            {
+                Thread thread = new Thread(aTask, "MaxT journal compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        compaction = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                compactNowIfDue();
+            }
+        };
+    }
+    
+    // public protocol
+    
+    /**
+     * Restores a coordinating object from the given snapshot file, replays
+     * the changes recorded in the given journal file since that snapshot, and
+     * attaches a journal so that further changes are recorded. Either file
+     * may be missing, in which case it is created when first needed.
+     * @param aSnapshotFile a snapshot file
+     * @param aJournalFile a journal file
+     * @return a MaxTCoord object whose changes are journalled
+     *
+     * @throws IOException if either file cannot be read, or the journal is
+     * newer than the snapshot
+     */
+    public static MaxTCoord open(Path aSnapshotFile, Path aJournalFile) throws IOException
+    {
+        MaxTCoord maxT;
+        if (Files.exists(aSnapshotFile))
+        {
+            maxT = MaxTSnapshot.load(aSnapshotFile);
+        }
+        else
+        {
+            maxT = MaxTCoord.getMaxT();
+        }
+        
+        FileChannel channel = FileChannel.open(aJournalFile, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+        short version;
+        try
+        {
+            version = replay(channel, maxT, aJournalFile);
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        
+        MaxTJournal journal = new MaxTJournal(maxT, aSnapshotFile, channel);
+        maxT.setJournal(journal);
+        if (version != VERSION)
+        {
+            journal.compact();  // rewrite both files in the current formats before recording more
+        }
+        
+        return maxT;
+    }
+    
+    /**
+     * Sets the journal size in bytes beyond which the journal is compacted
+     * into a new snapshot.
+     * @param aNumberOfBytes a journal size
+     */
+    public void setCompactionThreshold(long aNumberOfBytes)
+    {
+        synchronized (lock)
+        {
+            compactionThreshold = aNumberOfBytes;
+        }
+    }
+    
+    /**
+     * Waits until every change recorded so far has been forced to disk.
+     *
+     * @throws IOException if the journal could not be written since it was
+     * last compacted
+     */
+    public void sync() throws IOException
+    {
+        synchronized (lock)
+        {
+            long target = recordsAdded;
+            boolean interrupted = false;
+            while (recordsWritten < target && failure == null)
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+    
+    /**
+     * Saves the whole state of the coordinating object as a new snapshot
+     * and empties the journal. Changes to the coordinating object wait until
+     * this method has finished. This also recovers a journal that could not
+     * be written, since the snapshot holds the changes it lost.
+     *
+     * @throws IOException if the snapshot or the journal could not be written
+     */
+    public void compact() throws IOException
+    {
+        Lock exclusiveLock = maxT.getStateLock().writeLock();
+        exclusiveLock.lock();
+        try
+        {
+            compactHoldingStateLock();
+        }
+        finally
+        {
+            exclusiveLock.unlock();
+        }
+    }
+    
+    /**
+     * Writes any outstanding changes, stops the writer thread and closes the
+     * journal file. Changes made afterwards are no longer recorded.
+     *
+     * @throws IOException if the journal could not be written or closed
+     */
+    public void close() throws IOException
+    {
+        Lock exclusiveLock = maxT.getStateLock().writeLock();
+        exclusiveLock.lock();
+        try
+        {
+            sync();
+        }
+        finally
+        {
+            // detach while no change is in progress, so none is half recorded
+            maxT.setJournal(null);
+            synchronized (lock)
+            {
+                closed = true;
+                lock.notifyAll();
+            }
+            exclusiveLock.unlock();
+            
+            try
+            {
+                writerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            compactor.shutdown();
+            channel.close();
+        }
+    }
+    
+    // package protocol
+    
+    /**
+     * Checks that changes can still be recorded, so a change can be refused
+     * before it is made.
+     *
+     * @throws IllegalStateException if the journal could not be written
+     */
+    void checkWritable() throws IllegalStateException
+    {
+        synchronized (lock)
+        {
+            checkNotFailed();
+        }
+    }
+    
+    /**
+     * Records the addition of a farm.
+     * @param aFarm the added farm
+     */
+    void recordAddFarm(Farm aFarm)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(ADD_FARM);
+            putString(aFarm.getId());
+            putString(aFarm.getName());
+            putString(aFarm.getLocation());
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the deletion of a farm.
+     * @param aFarm the deleted farm
+     */
+    void recordDeleteFarm(Farm aFarm)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(DELETE_FARM);
+            putString(aFarm.getId());
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the addition of a herd.
+     * @param aHerd the added herd
+     */
+    void recordAddHerd(Herd aHerd)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(ADD_HERD);
+            putHerd(aHerd);
+            putString(aHerd.getName());
+            putByte((byte) aHerd.getMilkingIntervals().ordinal());
+            putByte((byte) (aHerd.isCompact() ? 1 : 0));
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the deletion of a herd.
+     * @param aHerd the deleted herd
+     */
+    void recordDeleteHerd(Herd aHerd)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(DELETE_HERD);
+            putHerd(aHerd);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the addition of a cow.
+     * @param aCow the added cow
+     */
+    void recordAddCow(Cow aCow)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(ADD_COW);
+            putCow(aCow);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the deletion of a cow.
+     * @param aCow the deleted cow
+     */
+    void recordDeleteCow(Cow aCow)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(DELETE_COW);
+            putCow(aCow);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the addition of milk takings.
+     * @param aMilkTakings the added milk takings
+     */
+    void recordAddMilkTakings(MilkTakings aMilkTakings)
+    {
+        recordMilkTakings(ADD_MILK_TAKINGS, aMilkTakings);
+    }
+    
+    /**
+     * Records a change to the milk yield of milk takings.
+     * @param aMilkTakings the updated milk takings
+     */
+    void recordUpdateMilkTakings(MilkTakings aMilkTakings)
+    {
+        recordMilkTakings(UPDATE_MILK_TAKINGS, aMilkTakings);
+    }
+    
+    /**
+     * Records the deletion of the milk takings for a milking session.
+     * @param aMilkingSession the milking session
+     * @param aCow the cow whose milk takings were deleted
+     */
+    void recordDeleteMilkTakings(TimePeriod aMilkingSession, Cow aCow)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(DELETE_MILK_TAKINGS);
+            putCow(aCow);
+            putByte((byte) aMilkingSession.ordinal());
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records a change to a Yield Table cell.
+     * @param aCellIndex the position of the cell in the Yield Table
+     * @param aYieldValue the new value of the cell
+     */
+    void recordUpdateYieldValue(int aCellIndex, int aYieldValue)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(UPDATE_YIELD_VALUE);
+            putInt(aCellIndex);
+            putInt(aYieldValue);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records changes to several Yield Table cells made together, as one
+     * record that is replayed in one step.
+     * @param someCellIndexes the positions of the cells in the Yield Table
+     * @param someYieldValues the new values of the cells, in the same order
+     */
+    void recordUpdateYieldValues(int[] someCellIndexes, int[] someYieldValues)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(UPDATE_YIELD_VALUES);
+            putInt(someCellIndexes.length);
+            for (int i = 0; i < someCellIndexes.length; i++)
+            {
+                putInt(someCellIndexes[i]);
+                putInt(someYieldValues[i]);
+            }
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records a change to the average window of a herd.
+     * @param aHerd the herd
+     * @param aNumberOfDays the new length of its average window
+     */
+    void recordSetAverageWindow(Herd aHerd, int aNumberOfDays)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(SET_AVERAGE_WINDOW);
+            putHerd(aHerd);
+            putInt(aNumberOfDays);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Records the start of a new day.
+     * @param aDay the number of the new day
+     */
+    void recordAdvanceDay(int aDay)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(ADVANCE_DAY);
+            putInt(aDay);
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Compacts the journal on the compactor thread if it has grown beyond
+     * its compaction threshold, so the change that crossed the threshold
+     * does not wait for the snapshot to be saved. Requests made while a
+     * compaction is waiting to run share it.
+     */
+    void compactIfDue()
+    {
+        if (isCompactionDue() && compactionPending.compareAndSet(false, true))
+        {
+            try
+            {
+                compactor.execute(compaction);
+            }
+            catch (RejectedExecutionException e)
+            {
+                compactionPending.set(false);  // closed in the meantime
+            }
+        }
+    }
+    
+    // private protocol
+    
+    /**
+     * Runs on the compactor thread: compacts the journal if it is still
+     * over its threshold. A failed compaction is logged and leaves the
+     * journal growing, since the changes it holds are still safe.
+     */
+    private void compactNowIfDue()
+    {
+        compactionPending.set(false);  // changes from here on may need another compaction
+        Lock exclusiveLock = maxT.getStateLock().writeLock();
+        exclusiveLock.lock();
+        try
+        {
+            if (isCompactionDue())  // another thread may have compacted it first
+            {
+                compactHoldingStateLock();
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.log(Level.SEVERE, "Could not compact the MaxT journal", e);
+        }
+        finally
+        {
+            exclusiveLock.unlock();
+        }
+    }
+    
+    /**
+     * Saves a new snapshot and empties the journal. The caller must hold the
+     * exclusive side of the coordinating object's state lock.
+     */
+    private void compactHoldingStateLock() throws IOException
+    {
+        try
+        {
+            sync();
+        }
+        catch (IOException e)
+        {
+            // the snapshot saved next holds the changes that could not be written
+        }
+        
+        long generation = maxT.getJournalGeneration() + 1;
+        maxT.setJournalGeneration(generation);
+        MaxTSnapshot.save(maxT, snapshotFile);
+        
+        synchronized (lock)
+        {
+            while (writing)
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while compacting the journal.");
+                }
+            }
+            
+            // the snapshot now holds every change, so start an empty journal
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putLong(generation).flip();
+            channel.write(header, 0);
+            channel.position(HEADER_SIZE);
+            channel.force(true);
+            journalSize = HEADER_SIZE;
+            
+            // nothing recorded before the snapshot is waiting any more
+            batch.clear();
+            recordsWritten = recordsAdded;
+            if (failure != null)
+            {
+                LOGGER.log(Level.INFO, "The MaxT journal is being written again after compaction");
+                failure = null;
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Confirms whether the journal has grown beyond its compaction threshold
+     * or could not be written.
+     */
+    private boolean isCompactionDue()
+    {
+        synchronized (lock)
+        {
+            return !closed && (failure != null || journalSize + batch.position() > compactionThreshold);
+        }
+    }
+    
+    /**
+     * Replays the records in the given journal channel against the given
+     * coordinating object, dropping any incomplete or damaged records at the
+     * end of the journal, and leaves the channel positioned after the last
+     * good record. Returns the format version of the journal.
+     */
+    private static short replay(FileChannel aChannel, MaxTCoord aMaxT, Path aJournalFile) throws IOException
+    {
+        long size = aChannel.size();
+        if (size < HEADER_SIZE)
+        {
+            // new or empty journal: start one for the snapshot's generation
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putLong(aMaxT.getJournalGeneration()).flip();
+            aChannel.truncate(0);
+            aChannel.write(header, 0);
+            aChannel.position(HEADER_SIZE);
+            aChannel.force(true);
+            return VERSION;
+        }
+        
+        // the mapping of a large journal is released before the file is cut
+        // back, which some platforms refuse while any part of it is mapped
+        MappedByteBuffer mapping = null;
+        ByteBuffer buffer;
+        if (size <= MAX_HEAP_READ_BYTES)
+        {
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && aChannel.read(buffer, buffer.position()) >= 0)
+            {
+                // keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+        }
+        else
+        {
+            mapping = aChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer = mapping;
+        }
+        
+        short version;
+        long goodEnd = HEADER_SIZE;
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException(aJournalFile + " is not a MaxT journal.");
+            }
+            version = buffer.getShort();
+            if (version < 1 || version > VERSION)
+            {
+                throw new IOException("MaxT journal version " + version + " is not supported.");
+            }
+            int yieldScale = (version >= 2) ? 1 : Centilitres.PER_LITRE;  // version 1 held whole litres
+            long generation = buffer.getLong();
+            if (generation > aMaxT.getJournalGeneration())
+            {
+                throw new IOException(aJournalFile + " is newer than the snapshot it follows.");
+            }
+            
+            if (generation == aMaxT.getJournalGeneration())
+            {
+                CRC32 crc = new CRC32();
+                while (buffer.remaining() >= 4)
+                {
+                    int length = buffer.getInt();
+                    if (length < 1 || length > buffer.remaining() - 4)
+                    {
+                        break;  // torn record
+                    }
+                    ByteBuffer record = buffer.slice();
+                    record.limit(length);
+                    crc.reset();
+                    crc.update(record);
+                    record.rewind();
+                    buffer.position(buffer.position() + length);
+                    if ((int) crc.getValue() != buffer.getInt())
+                    {
+                        break;  // damaged record
+                    }
+                    apply(record, aMaxT, yieldScale);
+                    goodEnd = buffer.position();
+                }
+            }
+            else
+            {
+                // an older journal whose changes the snapshot already holds
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putLong(aMaxT.getJournalGeneration()).flip();
+                aChannel.write(header, 0);
+                version = VERSION;
+            }
+        }
+        finally
+        {
+            if (mapping != null)
+            {
+                MaxTSnapshot.unmap(mapping);
+            }
+        }
+        
+        if (goodEnd < size)
+        {
+            LOGGER.log(Level.WARNING, "Dropping {0} bytes from the end of {1}",
+                       new Object[] {size - goodEnd, aJournalFile});
+            aChannel.truncate(goodEnd);
+            aChannel.force(true);
+        }
+        aChannel.position(goodEnd);
+        
+        return version;
+    }
+    
+    /**
+     * Applies a single journal record to the given coordinating object.
+     * Records that no longer fit the state of the object are skipped. Milk
+     * yields are multiplied by the given scale to give centilitres.
+     */
+    private static void apply(ByteBuffer aRecord, MaxTCoord aMaxT, int aYieldScale)
+    {
+        byte type = aRecord.get();
+        try
+        {
+            switch (type)
+            {
+                case ADD_FARM:
+                    aMaxT.createFarm(getString(aRecord), getString(aRecord), getString(aRecord));
+                    break;
+                case DELETE_FARM:
+                    aMaxT.deleteFarm(aMaxT.findFarm(getString(aRecord)));
+                    break;
+                case ADD_HERD:
+                    Farm farm = aMaxT.findFarm(getString(aRecord));
+                    String herdId = getString(aRecord);
+                    String herdName = getString(aRecord);
+                    MilkingIntervals interval = INTERVALS[aRecord.get()];
+                    boolean isCompact = aRecord.hasRemaining() && aRecord.get() != 0;  // older records have no flag
+                    aMaxT.createHerd(herdId, herdName, interval, farm, isCompact);
+                    break;
+                case DELETE_HERD:
+                    aMaxT.deleteHerd(getHerd(aRecord, aMaxT));
+                    break;
+                case ADD_COW:
+                    Herd herd = getHerd(aRecord, aMaxT);
+                    aMaxT.createCow(getString(aRecord), herd);
+                    break;
+                case DELETE_COW:
+                    aMaxT.deleteCow(getCow(aRecord, aMaxT));
+                    break;
+                case ADD_MILK_TAKINGS:
+                    Cow cow = getCow(aRecord, aMaxT);
+                    aMaxT.createMilkTakings(SESSIONS[aRecord.get()], aRecord.getInt() * aYieldScale, cow);
+                    break;
+                case UPDATE_MILK_TAKINGS:
+                    Cow updatedCow = getCow(aRecord, aMaxT);
+                    MilkTakings milkTakings = updatedCow.getMilkTakings(SESSIONS[aRecord.get()]);
+                    aMaxT.updateMilkTakingsCentilitres(milkTakings, aRecord.getInt() * aYieldScale);
+                    break;
+                case DELETE_MILK_TAKINGS:
+                    Cow deletedFromCow = getCow(aRecord, aMaxT);
+                    aMaxT.deleteMilkTakings(SESSIONS[aRecord.get()], deletedFromCow);
+                    break;
+                case UPDATE_YIELD_VALUE:
+                    aMaxT.getLinkedYieldTable().setCellValue(aRecord.getInt(), aRecord.getInt());
+                    break;
+                case UPDATE_YIELD_VALUES:
+                    YieldTable yieldTable = aMaxT.getLinkedYieldTable();
+                    int[] cellValues = yieldTable.getCellValues().clone();
+                    int numberOfCells = aRecord.getInt();
+                    for (int i = 0; i < numberOfCells; i++)
+                    {
+                        cellValues[aRecord.getInt()] = aRecord.getInt();
+                    }
+                    yieldTable.setCellValues(cellValues);
+                    break;
+                case SET_AVERAGE_WINDOW:
+                    Herd windowHerd = getHerd(aRecord, aMaxT);
+                    aMaxT.setAverageWindow(windowHerd, aRecord.getInt());
+                    break;
+                case ADVANCE_DAY:
+                    if (aRecord.getInt() != aMaxT.getCurrentDay() + 1)
+                    {
+                        throw new IllegalArgumentException("The day does not follow the restored day.");
+                    }
+                    aMaxT.advanceDay();
+                    break;
+                default:
+                    LOGGER.log(Level.WARNING, "Skipping unknown journal record type {0}", type);
+            }
+        }
+        catch (IllegalArgumentException | NullPointerException | IndexOutOfBoundsException e)
+        {
+            LOGGER.log(Level.WARNING, "Skipping journal record of type " + type
+                       + " that does not fit the restored state", e);
+        }
+    }
+    
+    /**
+     * Reads a farm ID and herd ID from the given record and returns the herd.
+     */
+    private static Herd getHerd(ByteBuffer aRecord, MaxTCoord aMaxT)
+    {
+        Farm farm = aMaxT.findFarm(getString(aRecord));
+        return farm.getHerd(getString(aRecord));
+    }
+    
+    /**
+     * Reads a farm ID, herd ID and cow ID from the given record and returns
+     * the cow.
+     */
+    private static Cow getCow(ByteBuffer aRecord, MaxTCoord aMaxT)
+    {
+        Herd herd = getHerd(aRecord, aMaxT);
+        return herd.getCow(getString(aRecord));
+    }
+    
+    /**
+     * Reads a length-prefixed UTF-8 string from the given record.
+     */
+    private static String getString(ByteBuffer aRecord)
+    {
+        int length = aRecord.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        aRecord.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Records the given milk takings with the given record type.
+     */
+    private void recordMilkTakings(byte aType, MilkTakings aMilkTakings)
+    {
+        synchronized (lock)
+        {
+            int start = beginRecord(aType);
+            putCow(aMilkTakings.getCow());
+            putByte((byte) aMilkTakings.getMilkingSession().ordinal());
+            putInt(aMilkTakings.getMilkYieldCentilitres());
+            endRecord(start);
+        }
+    }
+    
+    /**
+     * Starts a record of the given type in the batch, leaving room for its
+     * length, and returns the position of the record.
+     */
+    private int beginRecord(byte aType)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The journal has been closed.");
+        }
+        checkNotFailed();
+        int start = batch.position();
+        putInt(0);
+        putByte(aType);
+        return start;
+    }
+    
+    /**
+     * Completes the record started at the given position with its length
+     * and checksum, and wakes the writer thread.
+     */
+    private void endRecord(int aStart)
+    {
+        int length = batch.position() - aStart - 4;
+        batch.putInt(aStart, length);
+        checksum.reset();
+        checksum.update(batch.array(), aStart + 4, length);
+        putInt((int) checksum.getValue());
+        recordsAdded++;
+        lock.notifyAll();
+    }
+    
+    /**
+     * Refuses further records once a batch could not be written, since
+     * records written after the lost ones would be replayed without them.
+     * The caller must hold the lock.
+     */
+    private void checkNotFailed() throws IllegalStateException
+    {
+        if (failure != null)
+        {
+            throw new IllegalStateException("The journal could not be written, so changes cannot be recorded "
+                                            + "until it is compacted.", failure);
+        }
+    }
+    
+    /**
+     * Runs on the writer thread after a failed write: truncates the journal
+     * to the end of the last good batch so a torn batch is not left in the
+     * file. A failure here is only logged, since replay drops a torn tail.
+     */
+    private void cutBack(long aGoodEnd)
+    {
+        try
+        {
+            channel.truncate(aGoodEnd);
+            channel.position(aGoodEnd);
+        }
+        catch (IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Could not cut the MaxT journal back after a failed write", e);
+        }
+    }
+    
+    private void putHerd(Herd aHerd)
+    {
+        putString(aHerd.getFarm().getId());
+        putString(aHerd.getId());
+    }
+    
+    private void putCow(Cow aCow)
+    {
+        putHerd(aCow.getHerd());
+        putString(aCow.getId());
+    }
+    
+    private void putByte(byte aValue)
+    {
+        ensureSpace(1);
+        batch.put(aValue);
+    }
+    
+    private void putInt(int aValue)
+    {
+        ensureSpace(4);
+        batch.putInt(aValue);
+    }
+    
+    private void putString(String aValue)
+    {
+        byte[] bytes = aValue.getBytes(StandardCharsets.UTF_8);
+        ensureSpace(2 + bytes.length);
+        batch.putShort((short) bytes.length);
+        batch.put(bytes);
+    }
+    
+    /**
+     * Grows the batch if it has less than the given number of bytes free.
+     */
+    private void ensureSpace(int aNumberOfBytes)
+    {
+        if (batch.remaining() < aNumberOfBytes)
+        {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(batch.capacity() * 2,
+                                                             batch.position() + aNumberOfBytes));
+            batch.flip();
+            larger.put(batch);
+            batch = larger;
+        }
+    }
+    
+    /**
+     * Runs on the writer thread: repeatedly takes the current batch, writes
+     * it to the journal and forces it to disk. After a failed write the
+     * journal is cut back to the end of the last good batch and nothing more
+     * is written until a compaction, requested at once, clears the failure.
+     */
+    private void writeBatches()
+    {
+        while (true)
+        {
+            ByteBuffer toWrite;
+            long batchEnd;
+            long goodEnd;
+            synchronized (lock)
+            {
+                while ((batch.position() == 0 || failure != null) && !closed)
+                {
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // keep going until closed
+                    }
+                }
+                if (batch.position() == 0 || failure != null)
+                {
+                    return;  // closed with nothing left that can be written
+                }
+                
+                // swap batches so callers can carry on adding records
+                toWrite = batch;
+                batch = spareBatch;
+                batch.clear();
+                spareBatch = toWrite;
+                batchEnd = recordsAdded;
+                goodEnd = journalSize;
+                writing = true;
+            }
+            
+            IOException error = null;
+            toWrite.flip();
+            int bytes = toWrite.remaining();
+            try
+            {
+                while (toWrite.hasRemaining())
+                {
+                    channel.write(toWrite);
+                }
+                channel.force(false);
+            }
+            catch (IOException e)
+            {
+                error = e;
+                LOGGER.log(Level.SEVERE, "Could not write the MaxT journal", e);
+                cutBack(goodEnd);
+            }
+            
+            synchronized (lock)
+            {
+                writing = false;
+                if (error == null)
+                {
+                    journalSize = journalSize + bytes;
+                    recordsWritten = batchEnd;
+                }
+                else
+                {
+                    failure = error;
+                    batch.clear();  // written after the lost batch, these could not be replayed correctly
+                }
+                lock.notifyAll();
+            }
+            if (error != null)
+            {
+                compactIfDue();  // a snapshot holds the lost changes and lets the journal start again
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+
+package maxtcore;
+
+import java.util.*;
+
+/**
+ * Defines objects that are told about changes to a coordinating object.
+ * @author Michael Gallichan
+ */
+public interface MaxTListener
+{
+    /**
+     * Reports the changes made since this listener was last told about any,
+     * in the order they were made. A burst of changes, such as an import,
+     * arrives as one list, and repeated updates to the same value within it
+     * are reported once.
+     * @param someChanges the changes, oldest first
+     */
+    void maxTChanged(List<MaxTChange> someChanges);
+}
@@ -0,0 +1,92 @@
+
+package maxtcore;
+
+import farmingresources.*;
+
+/**
+ * The MaxT value of every cell of the Yield Table, found in one MaxT Table
+ * from one set of Yield Table values, so a herd's MaxT value is a single
+ * array index once its Yield Table cell is known. A lookup is never changed;
+ * when either table changes a new lookup is built and published in its
+ * place, and until then the old one reports that it is out of date.
+ * @author Michael Gallichan
+ */
+final class MaxTLookup
+{
+    // link variables
+    private final int[] yieldValues;  // the Yield Table values the lookup was built from
+    private final MaxTTable maxTTable;
+    
+    // instance variables
+    private final int[] seconds;  // one per Yield Table cell
+    private final String[] values;  // seconds formatted as min:sec, or null
+    private final int noCellSeconds;  // for averages that no row covers
+    private final String noCellValue;
+    
+    // constructor
+    
+    /**
+     * Finds the MaxT value of each of the given Yield Table values.
+     * @param someYieldValues the values of the Yield Table cells, which must
+     * not change afterwards
+     * @param aMaxTTable the MaxT Table the values are found in
+     */
+    MaxTLookup(int[] someYieldValues, MaxTTable aMaxTTable)
+    {
+        yieldValues = someYieldValues;
+        maxTTable = aMaxTTable;
+        seconds = new int[someYieldValues.length];
+        values = new String[someYieldValues.length];
+        for (int i = 0; i < someYieldValues.length; i++)
+        {
+            seconds[i] = aMaxTTable.getMaxTSeconds(someYieldValues[i]);
+            values[i] = format(seconds[i]);
+        }
+        noCellSeconds = aMaxTTable.getMaxTSeconds(0);
+        noCellValue = format(noCellSeconds);
+    }
+    
+    // package protocol
+    
+    /**
+     * Checks if the receiver was built from the given Yield Table values and
+     * MaxT Table, and so still answers for them.
+     * @param someYieldValues the current values of the Yield Table cells
+     * @param aMaxTTable the MaxT Table in use
+     * @return true if the receiver is up to date, false otherwise
+     */
+    boolean isBuiltFrom(int[] someYieldValues, MaxTTable aMaxTTable)
+    {
+        return (yieldValues == someYieldValues && maxTTable == aMaxTTable);
+    }
+    
+    /**
+     * Returns the MaxT value in seconds for the given Yield Table cell.
+     * @param aCellIndex the position of a cell, or -1 if the average yield
+     * is not covered by the Yield Table
+     * @return the MaxT value in seconds, or MaxTTable.NO_VALUE if there is
+     * none
+     */
+    int getMaxTSeconds(int aCellIndex)
+    {
+        return (aCellIndex < 0 ? noCellSeconds : seconds[aCellIndex]);
+    }
+    
+    /**
+     * Returns the formatted MaxT value for the given Yield Table cell.
+     * @param aCellIndex the position of a cell, or -1 if the average yield
+     * is not covered by the Yield Table
+     * @return the MaxT value, or null if there is none
+     */
+    String getMaxTValue(int aCellIndex)
+    {
+        return (aCellIndex < 0 ? noCellValue : values[aCellIndex]);
+    }
+    
+    // private protocol
+    
+    private static String format(int aNumberOfSeconds)
+    {
+        return (aNumberOfSeconds == MaxTTable.NO_VALUE ? null : MaxTTable.formatMaxT(aNumberOfSeconds));
+    }
+}
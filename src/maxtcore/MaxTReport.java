@@ -0,0 +1,455 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.util.*;
+import farmingresources.*;
+import timeperiod.*;
+
+/**
+ * Holds the MaxT statistics of every herd of a set of farms: the number of
+ * cows, the average yield per cow and the MaxT value for each milking
+ * session. The values are kept in primitive arrays with one entry per herd,
+ * the herds of each farm lying together in the order of the farms, so a
+ * report for hundreds of farms needs only a handful of objects.
+ * <p>
+ * Reports are produced by MaxTCoord.getReport and do not change afterwards.
+ * @author Michael Gallichan
+ */
+public class MaxTReport
+{
+    // class variables
+    private static final int INITIAL_CAPACITY = 16;
+    private static final String[] HEADERS = {
+        "           AM MaxT   PM MaxT    Cow    Avg per cow",
+        "Herd      (min:sec) (min:sec)   qty     (AM, PM)",
+        "---------+---------+---------+-------+-------------"};
+    private static final String INCOMPLETE_YIELD_TABLE = String.format("%n Some MaxT values cannot be calculated until%n"
+                                                                       + " Yield Table data is complete ");
+    private static final String NO_MAXT = "XX:XX";
+    
+    // instance variables
+    private final boolean yieldTableComplete;
+    private int numberOfFarms;
+    private String[] farmIds;
+    private int[] firstHerds;  // index of each farm's first herd, plus one past the last herd
+    private int numberOfHerds;
+    private String[] herdIds;
+    private int[] cowCounts;
+    private boolean[] milkingDataComplete;
+    private boolean[] yieldDataComplete;
+    private int[] amAvgYieldsPerCow;
+    private int[] pmAvgYieldsPerCow;
+    private int[] amMaxTSeconds;
+    private int[] pmMaxTSeconds;
+    
+    // constructor
+    /**
+     * Creates a new, empty MaxTReport object.
+     * @param isYieldTableComplete whether every Yield Table cell had a value
+     *        when the report was made
+     */
+    MaxTReport(boolean isYieldTableComplete)
+    {
+        yieldTableComplete = isYieldTableComplete;
+        farmIds = new String[INITIAL_CAPACITY];
+        firstHerds = new int[INITIAL_CAPACITY + 1];
+        herdIds = new String[INITIAL_CAPACITY];
+        cowCounts = new int[INITIAL_CAPACITY];
+        milkingDataComplete = new boolean[INITIAL_CAPACITY];
+        yieldDataComplete = new boolean[INITIAL_CAPACITY];
+        amAvgYieldsPerCow = new int[INITIAL_CAPACITY];
+        pmAvgYieldsPerCow = new int[INITIAL_CAPACITY];
+        amMaxTSeconds = new int[INITIAL_CAPACITY];
+        pmMaxTSeconds = new int[INITIAL_CAPACITY];
+    }
+    
+    // public protocol
+    
+    /**
+     * Confirms whether the Yield Table was complete when the report was made.
+     * Without a complete Yield Table, MaxT values are calculated only for the
+     * herds whose Yield Table cells have values; see isYieldDataComplete.
+     * @return yieldTableComplete
+     */
+    public boolean isYieldTableComplete()
+    {
+        return yieldTableComplete;
+    }
+    
+    /**
+     * Returns the number of farms in the report.
+     * @return numberOfFarms
+     */
+    public int getNumberOfFarms()
+    {
+        return numberOfFarms;
+    }
+    
+    /**
+     * Returns the ID of the farm at the given position.
+     * @param aFarmIndex the position of a farm in the report
+     * @return the farm ID
+     */
+    public String getFarmId(int aFarmIndex)
+    {
+        return farmIds[aFarmIndex];
+    }
+    
+    /**
+     * Returns the position of the first herd of the farm at the given
+     * position. The farm's herds run up to the first herd of the next farm.
+     * @param aFarmIndex the position of a farm in the report
+     * @return the position of the farm's first herd
+     */
+    public int getFirstHerd(int aFarmIndex)
+    {
+        return firstHerds[aFarmIndex];
+    }
+    
+    /**
+     * Returns the number of herds of the farm at the given position.
+     * @param aFarmIndex the position of a farm in the report
+     * @return the number of herds on the farm
+     */
+    public int getNumberOfHerds(int aFarmIndex)
+    {
+        return firstHerds[aFarmIndex + 1] - firstHerds[aFarmIndex];
+    }
+    
+    /**
+     * Returns the number of herds in the report.
+     * @return numberOfHerds
+     */
+    public int getNumberOfHerds()
+    {
+        return numberOfHerds;
+    }
+    
+    /**
+     * Returns the ID of the herd at the given position.
+     * @param aHerdIndex the position of a herd in the report
+     * @return the herd ID
+     */
+    public String getHerdId(int aHerdIndex)
+    {
+        return herdIds[aHerdIndex];
+    }
+    
+    /**
+     * Returns the number of cows in the herd at the given position.
+     * @param aHerdIndex the position of a herd in the report
+     * @return the number of cows
+     */
+    public int getCowCount(int aHerdIndex)
+    {
+        return cowCounts[aHerdIndex];
+    }
+    
+    /**
+     * Confirms whether the herd at the given position had cows with milk
+     * takings recorded for both milking sessions. Average yields and MaxT
+     * values are only calculated for such herds.
+     * @param aHerdIndex the position of a herd in the report
+     * @return true if the herd's milking data was complete, false otherwise
+     */
+    public boolean isMilkingDataComplete(int aHerdIndex)
+    {
+        return milkingDataComplete[aHerdIndex];
+    }
+    
+    /**
+     * Confirms whether the Yield Table cells used by the herd at the given
+     * position, those of its row and milking intervals for both milking
+     * sessions, had values. MaxT values are only calculated for such herds.
+     * A herd whose milking data is incomplete has no row, so is not missing
+     * any cells.
+     * @param aHerdIndex the position of a herd in the report
+     * @return true if the herd's Yield Table cells were complete, false
+     * otherwise
+     */
+    public boolean isYieldDataComplete(int aHerdIndex)
+    {
+        return yieldDataComplete[aHerdIndex];
+    }
+    
+    /**
+     * Returns the average yield per cow of the herd at the given position for
+     * the given milking session.
+     * @param aHerdIndex the position of a herd in the report
+     * @param aMilkingSession a milking session
+     * @return the average yield per cow, or 0 if it was not calculated
+     */
+    public int getAvgYieldPerCow(int aHerdIndex, TimePeriod aMilkingSession)
+    {
+        if (aMilkingSession == TimePeriod.AM)
+        {
+            return amAvgYieldsPerCow[aHerdIndex];
+        }
+        else
+        {
+            return pmAvgYieldsPerCow[aHerdIndex];
+        }
+    }
+    
+    /**
+     * Returns the MaxT value in seconds of the herd at the given position for
+     * the given milking session.
+     * @param aHerdIndex the position of a herd in the report
+     * @param aMilkingSession a milking session
+     * @return the MaxT value in seconds, or MaxTTable.NO_VALUE if there is
+     * none
+     */
+    public int getMaxTSeconds(int aHerdIndex, TimePeriod aMilkingSession)
+    {
+        if (aMilkingSession == TimePeriod.AM)
+        {
+            return amMaxTSeconds[aHerdIndex];
+        }
+        else
+        {
+            return pmMaxTSeconds[aHerdIndex];
+        }
+    }
+    
+    /**
+     * Writes the statistics table of the farm at the given position, one line
+     * per herd after the column headers, in the layout of the 'Overall
+     * Statistics' screen.
+     * @param aFarmIndex the position of a farm in the report
+     * @param anOutput where to write the table
+     *
+     * @throws IOException if anOutput cannot be written
+     */
+    public void writeFarm(int aFarmIndex, Appendable anOutput) throws IOException
+    {
+        for (String eachHeader : HEADERS)
+        {
+            anOutput.append(eachHeader).append('\n');
+        }
+        
+        StringBuilder line = new StringBuilder(64);
+        boolean yieldDataMissing = false;
+        for (int h = firstHerds[aFarmIndex]; h < firstHerds[aFarmIndex + 1]; h++)
+        {
+            line.setLength(0);
+            appendHerdLine(h, line);
+            anOutput.append(line).append('\n');
+            yieldDataMissing = yieldDataMissing || (milkingDataComplete[h] && !yieldDataComplete[h]);
+        }
+        
+        if (yieldDataMissing)
+        {
+            anOutput.append(INCOMPLETE_YIELD_TABLE).append('\n');
+        }
+    }
+    
+    /**
+     * Returns the statistics table of the farm at the given position, as
+     * written by writeFarm.
+     * @param aFarmIndex the position of a farm in the report
+     * @return the farm's statistics table
+     */
+    public String getFarmText(int aFarmIndex)
+    {
+        StringBuilder text = new StringBuilder();
+        try
+        {
+            writeFarm(aFarmIndex, text);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);  // a StringBuilder never throws
+        }
+        
+        return text.toString();
+    }
+    
+    /**
+     * Writes the statistics table of every farm in the report, each headed by
+     * the farm ID.
+     * @param anOutput where to write the tables
+     *
+     * @throws IOException if anOutput cannot be written
+     */
+    public void write(Appendable anOutput) throws IOException
+    {
+        for (int f = 0; f < numberOfFarms; f++)
+        {
+            anOutput.append("Farm ").append(farmIds[f]).append('\n');
+            writeFarm(f, anOutput);
+            anOutput.append('\n');
+        }
+    }
+    
+    /**
+     * Returns the statistics tables of every farm in the report.
+     * @return a String object representing the receiver
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        try
+        {
+            write(text);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);  // a StringBuilder never throws
+        }
+        
+        return text.toString();
+    }
+    
+    // package protocol
+    
+    /**
+     * Starts the next farm of the report. The herds added afterwards belong to
+     * this farm until the next farm is started.
+     * @param aFarmId the farm ID
+     */
+    void addFarm(String aFarmId)
+    {
+        if (numberOfFarms == farmIds.length)
+        {
+            farmIds = Arrays.copyOf(farmIds, numberOfFarms * 2);
+            firstHerds = Arrays.copyOf(firstHerds, numberOfFarms * 2 + 1);
+        }
+        farmIds[numberOfFarms] = aFarmId;
+        firstHerds[numberOfFarms] = numberOfHerds;
+        numberOfFarms++;
+        firstHerds[numberOfFarms] = numberOfHerds;
+    }
+    
+    /**
+     * Adds a herd to the farm started last, with no statistics yet.
+     * @param aHerdId the herd ID
+     * @return the position of the herd in the report
+     */
+    int addHerd(String aHerdId)
+    {
+        if (numberOfHerds == herdIds.length)
+        {
+            int capacity = numberOfHerds * 2;
+            herdIds = Arrays.copyOf(herdIds, capacity);
+            cowCounts = Arrays.copyOf(cowCounts, capacity);
+            milkingDataComplete = Arrays.copyOf(milkingDataComplete, capacity);
+            yieldDataComplete = Arrays.copyOf(yieldDataComplete, capacity);
+            amAvgYieldsPerCow = Arrays.copyOf(amAvgYieldsPerCow, capacity);
+            pmAvgYieldsPerCow = Arrays.copyOf(pmAvgYieldsPerCow, capacity);
+            amMaxTSeconds = Arrays.copyOf(amMaxTSeconds, capacity);
+            pmMaxTSeconds = Arrays.copyOf(pmMaxTSeconds, capacity);
+        }
+        herdIds[numberOfHerds] = aHerdId;
+        numberOfHerds++;
+        firstHerds[numberOfFarms] = numberOfHerds;
+        
+        return numberOfHerds - 1;
+    }
+    
+    /**
+     * Sets the statistics of the herd at the given position. Statistics of
+     * different herds may be set from different threads once every herd has
+     * been added.
+     * @param aHerdIndex the position of a herd in the report
+     * @param aCowCount the number of cows in the herd
+     * @param isMilkingDataComplete whether the herd's milking data is complete
+     * @param isYieldDataComplete whether the herd's Yield Table cells have
+     *        values
+     * @param anAmAvgYieldPerCow the AM average yield per cow, or 0
+     * @param aPmAvgYieldPerCow the PM average yield per cow, or 0
+     * @param anAmMaxTSeconds the AM MaxT in seconds, or MaxTTable.NO_VALUE
+     * @param aPmMaxTSeconds the PM MaxT in seconds, or MaxTTable.NO_VALUE
+     */
+    void setHerdStatistics(int aHerdIndex, int aCowCount, boolean isMilkingDataComplete,
+                           boolean isYieldDataComplete, int anAmAvgYieldPerCow, int aPmAvgYieldPerCow,
+                           int anAmMaxTSeconds, int aPmMaxTSeconds)
+    {
+        cowCounts[aHerdIndex] = aCowCount;
+        milkingDataComplete[aHerdIndex] = isMilkingDataComplete;
+        yieldDataComplete[aHerdIndex] = isYieldDataComplete;
+        amAvgYieldsPerCow[aHerdIndex] = anAmAvgYieldPerCow;
+        pmAvgYieldsPerCow[aHerdIndex] = aPmAvgYieldPerCow;
+        amMaxTSeconds[aHerdIndex] = anAmMaxTSeconds;
+        pmMaxTSeconds[aHerdIndex] = aPmMaxTSeconds;
+    }
+    
+    // private protocol
+    
+    /**
+     * Appends the statistics line of the herd at the given position, laid
+     * out as "%-8s :  %5s  :  %5s  :  %3d  :  %2dL, %2dL".
+     */
+    private void appendHerdLine(int aHerdIndex, StringBuilder aLine)
+    {
+        boolean complete = milkingDataComplete[aHerdIndex] && yieldDataComplete[aHerdIndex];
+        int amAvg = amAvgYieldsPerCow[aHerdIndex];
+        int pmAvg = pmAvgYieldsPerCow[aHerdIndex];
+        
+        padRight(aLine, herdIds[aHerdIndex], 8);
+        aLine.append(" :  ");
+        appendMaxT(aLine, complete, amMaxTSeconds[aHerdIndex]);
+        aLine.append("  :  ");
+        appendMaxT(aLine, complete, pmMaxTSeconds[aHerdIndex]);
+        aLine.append("  :  ");
+        padLeft(aLine, Integer.toString(cowCounts[aHerdIndex]), 3);
+        aLine.append("  :");
+        if (amAvg != 0 && pmAvg != 0)
+        {
+            aLine.append("  ");
+            padLeft(aLine, Integer.toString(amAvg), 2);
+            aLine.append("L, ");
+            padLeft(aLine, Integer.toString(pmAvg), 2);
+            aLine.append('L');
+        }
+    }
+    
+    /**
+     * Appends the given MaxT in seconds as min:sec in a column five wide, as
+     * "XX:XX" if there is no value, or as blanks if it was not calculated.
+     */
+    private static void appendMaxT(StringBuilder aLine, boolean isCalculated, int aNumberOfSeconds)
+    {
+        if (!isCalculated)
+        {
+            aLine.append("     ");
+        }
+        else if (aNumberOfSeconds == MaxTTable.NO_VALUE)
+        {
+            aLine.append(NO_MAXT);
+        }
+        else
+        {
+            // as MaxTTable.formatMaxT, without the cost of String.format
+            int minutes = aNumberOfSeconds / 60;
+            int seconds = aNumberOfSeconds % 60;
+            padLeft(aLine, (minutes < 10) ? "0" + minutes : Integer.toString(minutes), 2);
+            aLine.append(':').append((char) ('0' + seconds / 10)).append((char) ('0' + seconds % 10));
+        }
+    }
+    
+    /**
+     * Appends the given text followed by spaces up to the given width.
+     */
+    private static void padRight(StringBuilder aLine, String aText, int aWidth)
+    {
+        aLine.append(aText);
+        for (int i = aText.length(); i < aWidth; i++)
+        {
+            aLine.append(' ');
+        }
+    }
+    
+    /**
+     * Appends spaces up to the given width followed by the given text.
+     */
+    private static void padLeft(StringBuilder aLine, String aText, int aWidth)
+    {
+        for (int i = aText.length(); i < aWidth; i++)
+        {
+            aLine.append(' ');
+        }
+        aLine.append(aText);
+    }
+}
@@ -0,0 +1,71 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * Writes the MaxT report of every farm in a snapshot without a display, for
+ * example from a nightly job:
+ * <pre>
+ * java maxtcore.MaxTReportRunner maxt.snapshot [report.txt]
+ * </pre>
+ * The report goes to the given file, or to standard output if none is given.
+ * @author Michael Gallichan
+ */
+public class MaxTReportRunner
+{
+    // class variables
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+    
+    // constructor
+    /**
+     * Prevents MaxTReportRunner objects being created; all methods are static.
+     */
+    private MaxTReportRunner()
+    {
+    }
+    
+    // public protocol
+    
+    /**
+     * Loads the snapshot named by the first argument and writes its report to
+     * the file named by the second argument, or to standard output.
+     * @param args the snapshot file and, optionally, the report file
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            System.err.println("Usage: java maxtcore.MaxTReportRunner <snapshot> [<report>]");
+            System.exit(EXIT_USAGE);
+        }
+        
+        try
+        {
+            MaxTReport report = MaxTSnapshot.load(Paths.get(args[0])).getReport();
+            if (args.length == 2)
+            {
+                try (Writer output = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8))
+                {
+                    report.write(output);
+                }
+            }
+            else
+            {
+                Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+                                                   BUFFER_SIZE);
+                report.write(output);
+                output.flush();
+            }
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            System.err.println("The MaxT report could not be produced: " + e.getMessage());
+            System.exit(EXIT_FAILED);
+        }
+    }
+}
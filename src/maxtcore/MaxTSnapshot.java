@@ -0,0 +1,490 @@
+
+package maxtcore;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.locks.*;
+import milkingintervals.*;
+import timeperiod.*;
+
+/**
+ * Saves the whole state of a coordinating object to a compact binary file
+ * and restores it again. The file starts with a magic number and a format
+ * version, the generation of the journal that follows it and the current
+ * day, then the Yield Table and then every farm with its herds, cows, milk
+ * takings and milking history. Milk yields are held in centilitres. Files
+ * are written through a channel. They are read back into a heap buffer, or
+ * for very large files through a memory-mapped buffer that is released as
+ * soon as the file has been read, so the next save can replace the file
+ * (Windows refuses to replace a file while a mapping of it is open).
+ * Changes to the coordinating object wait while it is being saved, so a
+ * snapshot is always consistent.
+ * @author Michael Gallichan
+ */
+public class MaxTSnapshot
+{
+    // class variables
+    private static final int MAGIC = 0x4D415854;  // "MAXT"
+    private static final short VERSION = 6;  // 1 had no journal generation, 2 no history, 3 no windows,
+                                              // 4 and earlier held yields in whole litres, 5 no compact herds
+    private static final int BUFFER_SIZE = 1 << 17;
+    private static final long MAX_HEAP_READ_BYTES = 64L << 20;  // larger files are mapped
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final byte HAS_AM_TAKINGS = 1;
+    private static final byte HAS_PM_TAKINGS = 2;
+    private static final MilkingIntervals[] INTERVALS = MilkingIntervals.values();
+    private static final int CELLS_PER_ROW = INTERVALS.length * TimePeriod.values().length;
+    
+    // constructor
+    /**
+     * Prevents MaxTSnapshot objects being created; all methods are static.
+     */
+    private MaxTSnapshot()
+    {
+    }
+    
+    // public protocol
+    
+    /**
+     * Writes the state of the given coordinating object to the given file,
+     * replacing any existing file only once the new one is complete.
+     * @param aMaxT a coordinating object
+     * @param aFile the file to write
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(MaxTCoord aMaxT, Path aFile) throws IOException
+    {
+        Path tempFile = aFile.resolveSibling(aFile.getFileName() + ".tmp");
+        Lock exclusiveLock = aMaxT.getStateLock().writeLock();
+        exclusiveLock.lock();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            Writer writer = new Writer(channel);
+            writer.putInt(MAGIC);
+            writer.putShort(VERSION);
+            writer.putLong(aMaxT.getJournalGeneration());
+            writer.putInt(aMaxT.getCurrentDay());
+            
+            YieldTable yieldTable = aMaxT.getLinkedYieldTable();
+            writer.putInt(yieldTable.getMinYield());
+            writer.putInt(yieldTable.getMaxYield());
+            writer.putInt(yieldTable.getYieldStep());
+            int cells = yieldTable.getNumberOfCells();
+            for (int i = 0; i < cells; i++)
+            {
+                writer.putInt(yieldTable.getCellValue(i));
+            }
+            
+            writer.putInt(aMaxT.getFarms().size());
+            for (Farm eachFarm : aMaxT.getFarms())
+            {
+                writer.putString(eachFarm.getId());
+                writer.putString(eachFarm.getName());
+                writer.putString(eachFarm.getLocation());
+                writer.putInt(eachFarm.getHerds().size());
+                for (Herd eachHerd : eachFarm.getHerds())
+                {
+                    writer.putString(eachHerd.getId());
+                    writer.putString(eachHerd.getName());
+                    writer.putByte((byte) eachHerd.getMilkingIntervals().ordinal());
+                    writer.putByte((byte) (eachHerd.isCompact() ? 1 : 0));
+                    writer.putInt(eachHerd.getAverageWindow());
+                    int days = eachHerd.getNumberOfDays();
+                    writer.putInt(days);
+                    for (int d = 0; d < days; d++)
+                    {
+                        writer.putLong(eachHerd.getDailyMilkYield(d));
+                        writer.putInt(eachHerd.getDailyCowCount(d));
+                    }
+                    writer.putInt(eachHerd.getNumberOfCows());
+                    for (Cow eachCow : eachHerd.getCows())
+                    {
+                        writeCow(writer, eachCow);
+                    }
+                }
+            }
+            
+            writer.flush();
+            channel.force(true);
+        }
+        finally
+        {
+            exclusiveLock.unlock();
+        }
+        
+        Files.move(tempFile, aFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Reads a coordinating object from the given file.
+     * @param aFile a file written by save
+     * @return a MaxTCoord object in the state that was saved
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot or
+     * has a version this class cannot read
+     */
+    public static MaxTCoord load(Path aFile) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(aFile, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            MappedByteBuffer mapping = null;
+            ByteBuffer buffer;
+            if (size <= MAX_HEAP_READ_BYTES)
+            {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+                {
+                    // keep reading until the buffer is full or the file ends
+                }
+                buffer.flip();
+            }
+            else
+            {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                buffer = mapping;
+            }
+            
+            try
+            {
+                return read(new Reader(buffer));
+            }
+            catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e)
+            {
+                throw new IOException(aFile + " is truncated or damaged.", e);
+            }
+            finally
+            {
+                if (mapping != null)
+                {
+                    unmap(mapping);
+                }
+            }
+        }
+    }
+    
+    // package protocol
+    
+    /**
+     * Releases the given mapping now rather than when the buffer is garbage
+     * collected, so the mapped file can be replaced or truncated. The buffer
+     * must not be used afterwards. Where the JVM offers no way to do this the
+     * mapping is left to the garbage collector.
+     */
+    static void unmap(MappedByteBuffer aMapping)
+    {
+        try
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(unsafeField.get(null), aMapping);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            // not supported by this JVM; the mapping goes when the buffer is collected
+        }
+    }
+    
+    // private protocol
+    
+    /**
+     * Writes the given cow and its milk takings.
+     */
+    private static void writeCow(Writer aWriter, Cow aCow) throws IOException
+    {
+        MilkTakings amMilkTakings = aCow.getAmMilkTakings();
+        MilkTakings pmMilkTakings = aCow.getPmMilkTakings();
+        byte flags = 0;
+        if (amMilkTakings != null)
+        {
+            flags |= HAS_AM_TAKINGS;
+        }
+        if (pmMilkTakings != null)
+        {
+            flags |= HAS_PM_TAKINGS;
+        }
+        
+        aWriter.putString(aCow.getId());
+        aWriter.putByte(flags);
+        if (amMilkTakings != null)
+        {
+            aWriter.putInt(amMilkTakings.getMilkYieldCentilitres());
+        }
+        if (pmMilkTakings != null)
+        {
+            aWriter.putInt(pmMilkTakings.getMilkYieldCentilitres());
+        }
+        
+        YieldHistory history = aCow.getHistory();
+        int days = history.getNumberOfDays();
+        aWriter.putInt(days);
+        for (int d = 0; d < days; d++)
+        {
+            aWriter.putInt(history.getMilkYield(d, TimePeriod.AM));
+            aWriter.putInt(history.getMilkYield(d, TimePeriod.PM));
+        }
+    }
+    
+    /**
+     * Builds a coordinating object from the snapshot held in the given reader.
+     */
+    private static MaxTCoord read(Reader aReader) throws IOException
+    {
+        if (aReader.getInt() != MAGIC)
+        {
+            throw new IOException("The file is not a MaxT snapshot.");
+        }
+        short version = aReader.getShort();
+        if (version < 1 || version > VERSION)
+        {
+            throw new IOException("MaxT snapshot version " + version + " is not supported.");
+        }
+        long journalGeneration = (version >= 2) ? aReader.getLong() : 0;
+        int currentDay = (version >= 3) ? aReader.getInt() : 0;
+        int yieldScale = (version >= 5) ? 1 : Centilitres.PER_LITRE;  // older files hold whole litres
+        
+        int minYield = aReader.getInt();
+        int maxYield = aReader.getInt();
+        int yieldStep = aReader.getInt();
+        if (yieldStep > 0 && maxYield >= minYield)  // other ranges are refused by the Yield Table
+        {
+            long rows = ((long) maxYield - minYield) / yieldStep + 1;
+            aReader.checkRemaining(rows * CELLS_PER_ROW * 4);
+        }
+        MaxTCoord maxT = MaxTCoord.getMaxT(minYield, maxYield, yieldStep);
+        maxT.setJournalGeneration(journalGeneration);
+        maxT.setCurrentDay(currentDay);
+        YieldTable yieldTable = maxT.getLinkedYieldTable();
+        int[] cellValues = new int[yieldTable.getNumberOfCells()];
+        for (int i = 0; i < cellValues.length; i++)
+        {
+            cellValues[i] = aReader.getInt();
+        }
+        yieldTable.setCellValues(cellValues);
+        
+        int farmCount = aReader.getInt();
+        for (int f = 0; f < farmCount; f++)
+        {
+            Farm farm = maxT.createFarm(aReader.getString(), aReader.getString(), aReader.getString());
+            checkCreated(farm);
+            int herdCount = aReader.getInt();
+            for (int h = 0; h < herdCount; h++)
+            {
+                String herdId = aReader.getString();
+                String herdName = aReader.getString();
+                MilkingIntervals interval = INTERVALS[aReader.getByte()];
+                boolean isCompact = (version >= 6) && aReader.getByte() != 0;
+                Herd herd = maxT.createHerd(herdId, herdName, interval, farm, isCompact);
+                checkCreated(herd);
+                if (version >= 4)
+                {
+                    herd.setAverageWindow(aReader.getInt());
+                }
+                if (version >= 3)
+                {
+                    int days = aReader.getCount(8 + 4);
+                    long[] milkYields = new long[days];
+                    int[] cowCounts = new int[days];
+                    for (int d = 0; d < days; d++)
+                    {
+                        milkYields[d] = aReader.getLong() * yieldScale;
+                        cowCounts[d] = aReader.getInt();
+                    }
+                    herd.setDailyTotals(milkYields, cowCounts);
+                }
+                int cowCount = aReader.getInt();
+                for (int c = 0; c < cowCount; c++)
+                {
+                    Cow cow = maxT.createCow(aReader.getString(), herd);
+                    checkCreated(cow);
+                    byte flags = aReader.getByte();
+                    if ((flags & HAS_AM_TAKINGS) != 0)
+                    {
+                        maxT.createMilkTakings(TimePeriod.AM, aReader.getInt() * yieldScale, cow);
+                    }
+                    if ((flags & HAS_PM_TAKINGS) != 0)
+                    {
+                        maxT.createMilkTakings(TimePeriod.PM, aReader.getInt() * yieldScale, cow);
+                    }
+                    if (version >= 3)
+                    {
+                        int days = aReader.getCount(4 + 4);
+                        int[] amYields = new int[days];
+                        int[] pmYields = new int[days];
+                        for (int d = 0; d < days; d++)
+                        {
+                            amYields[d] = scaleYield(aReader.getInt(), yieldScale);
+                            pmYields[d] = scaleYield(aReader.getInt(), yieldScale);
+                        }
+                        cow.setHistory(amYields, pmYields);
+                    }
+                }
+            }
+        }
+        
+        return maxT;
+    }
+    
+    /**
+     * Converts a milking history yield read from the file to centilitres,
+     * leaving sessions with nothing recorded as they are.
+     */
+    private static int scaleYield(int aMilkYield, int aYieldScale)
+    {
+        return (aMilkYield == YieldHistory.NO_YIELD) ? aMilkYield : aMilkYield * aYieldScale;
+    }
+    
+    /**
+     * Rejects a snapshot that would create the same farm, herd or cow twice.
+     */
+    private static void checkCreated(Object aCreatedObject) throws IOException
+    {
+        if (aCreatedObject == null)
+        {
+            throw new IOException("The snapshot contains a duplicate ID.");
+        }
+    }
+    
+    /**
+     * Buffers values and writes them to a channel in large blocks.
+     */
+    private static class Writer
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        
+        Writer(FileChannel aChannel)
+        {
+            channel = aChannel;
+        }
+        
+        void putByte(byte aValue) throws IOException
+        {
+            ensureSpace(1);
+            buffer.put(aValue);
+        }
+        
+        void putShort(short aValue) throws IOException
+        {
+            ensureSpace(2);
+            buffer.putShort(aValue);
+        }
+        
+        void putInt(int aValue) throws IOException
+        {
+            ensureSpace(4);
+            buffer.putInt(aValue);
+        }
+        
+        void putLong(long aValue) throws IOException
+        {
+            ensureSpace(8);
+            buffer.putLong(aValue);
+        }
+        
+        void putString(String aValue) throws IOException
+        {
+            byte[] bytes = aValue.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES)
+            {
+                throw new IOException("'" + aValue.substring(0, 20) + "...' is too long to save.");
+            }
+            ensureSpace(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        private void ensureSpace(int aNumberOfBytes) throws IOException
+        {
+            if (buffer.remaining() < aNumberOfBytes)
+            {
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Reads values from a snapshot file held in a buffer.
+     */
+    private static class Reader
+    {
+        private final ByteBuffer buffer;
+        private byte[] bytes = new byte[64];
+        
+        Reader(ByteBuffer aBuffer)
+        {
+            buffer = aBuffer;
+        }
+        
+        byte getByte()
+        {
+            return buffer.get();
+        }
+        
+        short getShort()
+        {
+            return buffer.getShort();
+        }
+        
+        int getInt()
+        {
+            return buffer.getInt();
+        }
+        
+        long getLong()
+        {
+            return buffer.getLong();
+        }
+        
+        int getCount(int aBytesEach)
+        {
+            int count = buffer.getInt();
+            if (count < 0)
+            {
+                throw new BufferUnderflowException();
+            }
+            checkRemaining((long) count * aBytesEach);
+            return count;
+        }
+        
+        void checkRemaining(long aNumberOfBytes)
+        {
+            if (aNumberOfBytes > buffer.remaining())
+            {
+                throw new BufferUnderflowException();  // more items than the file holds
+            }
+        }
+        
+        String getString()
+        {
+            int length = buffer.getShort() & MAX_STRING_BYTES;
+            if (length > bytes.length)
+            {
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
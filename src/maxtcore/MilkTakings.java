@@ -1,6 +1,7 @@
 
 package maxtcore;
 
+import java.math.*;
 import timeperiod.*;
 
 /**
@@ -12,7 +13,7 @@ public class MilkTakings
 {
     // instance variables
     private final TimePeriod milkingSession;
-    private int milkYield;
+    private volatile int milkYield;  // in centilitres, written under the herd's lock
     
     // link variables
     private final Cow cow;
@@ -21,8 +22,7 @@ public class MilkTakings
     /**
      * Creates a new MilkTakings object with the given values.
      * @param aMilkingSession The milking session
-     * @param aMilkYield The amount of milk obtained (rounded to the nearest 
-     *        litre.
+     * @param aMilkYield The amount of milk obtained in centilitres
      */
     MilkTakings(TimePeriod aMilkingSession, int aMilkYield, Cow aCow)
     {
@@ -44,10 +44,19 @@ public class MilkTakings
     }
     
     /**
-     * Returns the receiver's milk yield.
-     * @return milkYield
+     * Returns the receiver's milk yield to the nearest litre.
+     * @return the milk yield in litres
      */
     public int getMilkYield()
+    {
+        return Centilitres.toLitres(getMilkYieldCentilitres(), RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Returns the receiver's milk yield in centilitres.
+     * @return milkYield
+     */
+    public int getMilkYieldCentilitres()
     {
         return milkYield;
     }
@@ -59,14 +68,23 @@ public class MilkTakings
     @Override
     public String toString()
     {
-        return milkingSession.toString() + " milk yield: " + milkYield;
+        return milkingSession.toString() + " milk yield: " + Centilitres.format(getMilkYieldCentilitres());
     }
     
     // package protocol
     
+    /**
+     * Returns the cow these milk takings were obtained from.
+     * @return the linked Cow object
+     */
+    Cow getCow()
+    {
+        return cow;
+    }
+    
     /**
      * Updates a milk yield to the given value.
-     * @param aMilkYield a milk yield
+     * @param aMilkYield a milk yield in centilitres
      */
     void setMilkYield(int aMilkYield)
     {
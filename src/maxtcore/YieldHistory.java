@@ -0,0 +1,141 @@
+
+package maxtcore;
+
+import java.math.*;
+import java.util.*;
+import timeperiod.*;
+
+/**
+ * Defines objects that hold the daily milk yields of one cow, in
+ * centilitres, for every day
+ * before the current one. The AM and PM yields are kept in two primitive
+ * arrays indexed by day, oldest first, which grow by half as days are
+ * added, so a long history costs eight bytes a day and no objects.
+ * @author Michael Gallichan
+ */
+class YieldHistory
+{
+    // class variables
+    static final int NO_YIELD = -1;  // no milk takings were recorded for the session
+    private static final int[] NO_DAYS = new int[0];
+    private static final int INITIAL_CAPACITY = 8;
+    
+    // instance variables
+    private int[] amYields;
+    private int[] pmYields;
+    private int numberOfDays;
+    
+    // constructor
+    /**
+     * Creates a new, empty YieldHistory object.
+     */
+    YieldHistory()
+    {
+        amYields = NO_DAYS;
+        pmYields = NO_DAYS;
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns the number of days in this history.
+     * @return numberOfDays
+     */
+    int getNumberOfDays()
+    {
+        return numberOfDays;
+    }
+    
+    /**
+     * Returns the milk yield recorded for the given milking session of the
+     * given day.
+     * @param aDayIndex the position of the day, 0 being the oldest
+     * @param aMilkingSession a milking session
+     * @return the milk yield, or NO_YIELD if none was recorded
+     *
+     * @throws IndexOutOfBoundsException if aDayIndex is not in this history
+     */
+    int getMilkYield(int aDayIndex, TimePeriod aMilkingSession) throws IndexOutOfBoundsException
+    {
+        if (aDayIndex < 0 || aDayIndex >= numberOfDays)
+        {
+            throw new IndexOutOfBoundsException("Day " + aDayIndex + " is not in the history.");
+        }
+        if (aMilkingSession == TimePeriod.AM)
+        {
+            return amYields[aDayIndex];
+        }
+        else
+        {
+            return pmYields[aDayIndex];
+        }
+    }
+    
+    /**
+     * Returns the average daily milk yield over the given number of most
+     * recent days, counting only days with milk takings recorded.
+     * @param aNumberOfDays the length of the window
+     * @return the average daily milk yield to the nearest centilitre, or 0
+     * if no milk takings were recorded in the window
+     */
+    int getAvgDailyMilkYield(int aNumberOfDays)
+    {
+        long total = 0;
+        int recordedDays = 0;
+        for (int day = Math.max(0, numberOfDays - aNumberOfDays); day < numberOfDays; day++)
+        {
+            int amYield = amYields[day];
+            int pmYield = pmYields[day];
+            if (amYield != NO_YIELD || pmYield != NO_YIELD)
+            {
+                total = total + Math.max(amYield, 0) + Math.max(pmYield, 0);
+                recordedDays++;
+            }
+        }
+        
+        if (recordedDays == 0)
+        {
+            return 0;
+        }
+        return (int) Centilitres.divide(total, recordedDays, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Adds a day to the end of this history.
+     * @param anAmYield the AM milk yield, or NO_YIELD
+     * @param aPmYield the PM milk yield, or NO_YIELD
+     */
+    void addDay(int anAmYield, int aPmYield)
+    {
+        if (numberOfDays == amYields.length)
+        {
+            int capacity = Math.max(INITIAL_CAPACITY, numberOfDays + (numberOfDays >> 1));
+            amYields = Arrays.copyOf(amYields, capacity);
+            pmYields = Arrays.copyOf(pmYields, capacity);
+        }
+        amYields[numberOfDays] = anAmYield;
+        pmYields[numberOfDays] = aPmYield;
+        numberOfDays++;
+    }
+    
+    /**
+     * Replaces this history with the given yields, for example when loading
+     * a snapshot. The arrays are used as they are, without spare capacity,
+     * and the caller must hold the herd's write lock unless no other thread
+     * can see the cow yet.
+     * @param someAmYields the AM milk yields, oldest first
+     * @param somePmYields the PM milk yields, oldest first
+     *
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    void setDays(int[] someAmYields, int[] somePmYields) throws IllegalArgumentException
+    {
+        if (someAmYields.length != somePmYields.length)
+        {
+            throw new IllegalArgumentException("Every day needs an AM and a PM yield.");
+        }
+        amYields = someAmYields;
+        pmYields = somePmYields;
+        numberOfDays = someAmYields.length;
+    }
+}
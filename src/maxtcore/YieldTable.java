@@ -1,46 +1,71 @@
 package maxtcore;
 
+import java.math.*;
 import java.util.*;
 import milkingintervals.*;
 import timeperiod.*;
 
 /**
  * Stores expected milk yield values according to milking session, milking
- * intervals and average daily milk yield
+ * intervals and average daily milk yield. Changes copy the values and then
+ * publish the copy, so lookups never lock and always see a whole table.
  * @author Michael Gallichan
  */
 public class YieldTable
 {
+    // class variables
+    private static final int DEFAULT_MIN_YIELD = 20;
+    private static final int DEFAULT_MAX_YIELD = 25;
+    private static final int DEFAULT_YIELD_STEP = 1;
+    private static final MilkingIntervals[] INTERVALS = MilkingIntervals.values();
+    private static final TimePeriod[] SESSIONS = TimePeriod.values();
+    
     // instance variables
-    private Map<String, Integer> yieldTable;
+    private final int minYield;
+    private final int maxYield;
+    private final int yieldStep;
+    private final int rows;
+    private volatile Cells cells;  // replaced as a whole, so the values and their count always agree
     
-    // constructor
+    // constructors
     
     /**
-     * Creates a new yield table object and sets up the default keys with 0
-     * values.
+     * Creates a new yield table object covering average daily yields of 20 to
+     * 25 litres and sets up the default cells with 0 values.
      */
     YieldTable()
     {
-        yieldTable = new HashMap<>();
-        
-        // array of required values to be used as keys
-        int yields[] = {20,21,22,23,24,25};
-        
-        // create keys for all required values
-        for (int i=0; i<yields.length; i++)
+        this(DEFAULT_MIN_YIELD, DEFAULT_MAX_YIELD, DEFAULT_YIELD_STEP);
+    }
+    
+    /**
+     * Creates a new yield table object with one row every aYieldStep litres
+     * from aMinYield up to aMaxYield and sets up the cells with 0 values. Each
+     * row covers the average daily yields from its own yield up to, but not
+     * including, the yield of the next row.
+     * @param aMinYield the average daily yield of the first row
+     * @param aMaxYield the average daily yield of the last row
+     * @param aYieldStep the difference in average daily yield between rows
+     * 
+     * @throws IllegalArgumentException if the range is empty or negative, or
+     * aYieldStep is not positive or does not divide the range exactly
+     */
+    YieldTable(int aMinYield, int aMaxYield, int aYieldStep) throws IllegalArgumentException
+    {
+        if (aMinYield < 0 || aMaxYield < aMinYield)
         {
-            for (MilkingIntervals interval : MilkingIntervals.values())
-            {
-                for (TimePeriod session : TimePeriod.values())
-                {
-                    yieldTable.put(yields[i] + "," 
-                                 + interval.toString() + "," 
-                                 + session.toString(),
-                                   0);
-                }
-            }
+            throw new IllegalArgumentException("The Yield Table range must run from a non-negative minimum up to the maximum.");
         }
+        if (aYieldStep < 1 || (aMaxYield - aMinYield) % aYieldStep != 0)
+        {
+            throw new IllegalArgumentException("The Yield Table step must be positive and divide the range exactly.");
+        }
+        
+        minYield = aMinYield;
+        maxYield = aMaxYield;
+        yieldStep = aYieldStep;
+        rows = (aMaxYield - aMinYield) / aYieldStep + 1;
+        cells = new Cells(new int[rows * INTERVALS.length * SESSIONS.length]);
     }
     
     // public protocol
@@ -52,14 +77,90 @@ public class YieldTable
      */
     public int getValue(String mapKey)
     {
-        if (yieldTable.containsKey(mapKey))
+        int index = getCellIndex(mapKey);
+        if (index < 0)
         {
-            return yieldTable.get(mapKey);
+            return 0;
         }
-        else
+        
+        return cells.values[index];
+    }
+    
+    /**
+     * Returns the Yield Table value for the given average daily yield, milking
+     * interval and milking session.
+     * @param anAvgDailyYield an average daily yield value
+     * @param aMilkingInterval a milking interval
+     * @param aMilkingSession a milking session
+     * @return the appropriate expected milk yield value as an integer, or 0 if
+     * no row of the table covers anAvgDailyYield
+     */
+    public int getValue(int anAvgDailyYield, MilkingIntervals aMilkingInterval,
+                        TimePeriod aMilkingSession)
+    {
+        int index = getCellIndex(anAvgDailyYield, aMilkingInterval, aMilkingSession);
+        if (index < 0)
+        {
+            return 0;
+        }
+        
+        return cells.values[index];
+    }
+    
+    /**
+     * Returns the Yield Table value for the given average daily yield in
+     * centilitres, milking interval and milking session. The yield is
+     * rounded to whole litres as the given rounding mode says and then
+     * looked up as getValue does, so with HALF_UP an average of 20.9 litres
+     * uses the row covering 21 litres.
+     * @param anAvgDailyYield an average daily yield in centilitres
+     * @param aRoundingMode the rounding from the yield to whole litres
+     * @param aMilkingInterval a milking interval
+     * @param aMilkingSession a milking session
+     * @return the appropriate expected milk yield value as an integer, or 0 if
+     * no row of the table covers anAvgDailyYield
+     * 
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and
+     * anAvgDailyYield is not a whole number of litres
+     */
+    public int getValueForCentilitres(long anAvgDailyYield, RoundingMode aRoundingMode,
+                                      MilkingIntervals aMilkingInterval, TimePeriod aMilkingSession)
+                                      throws ArithmeticException
+    {
+        int index = getCellIndexForCentilitres(anAvgDailyYield, aRoundingMode, aMilkingInterval, aMilkingSession);
+        if (index < 0)
         {
             return 0;
         }
+        
+        return cells.values[index];
+    }
+    
+    /**
+     * Returns the average daily yield of the first row of the table.
+     * @return minYield
+     */
+    public int getMinYield()
+    {
+        return minYield;
+    }
+    
+    /**
+     * Returns the average daily yield of the last row of the table.
+     * @return maxYield
+     */
+    public int getMaxYield()
+    {
+        return maxYield;
+    }
+    
+    /**
+     * Returns the difference in average daily yield between rows of the table.
+     * @return yieldStep
+     */
+    public int getYieldStep()
+    {
+        return yieldStep;
     }
     
     /**
@@ -67,7 +168,7 @@ public class YieldTable
      * @param anAvgDailyYield an average daily yield value
      * @param aMilkingInterval a milking interval
      * @param aMilkingSession a milking session
-     * @return a String object concatenating the given arguments as 
+     * @return a String object concatenating the given arguments as
      * comma-separated values
      */
     public String getMapKey(int anAvgDailyYield, MilkingIntervals aMilkingInterval,
@@ -86,47 +187,346 @@ public class YieldTable
     @Override
     public String toString()
     {
-        return yieldTable.toString();
+        return getYieldTable().toString();
     }
     
     // package protocol
     
     /**
      * Returns the Yield Table data.
-     * @return a map of the Yield Table data
+     * @return a map of the Yield Table data keyed by map key
      */
     Map<String, Integer> getYieldTable()
     {
+        int[] current = cells.values;
+        Map<String, Integer> yieldTable = new LinkedHashMap<>();
+        for (int row = 0; row < rows; row++)
+        {
+            int yield = minYield + row * yieldStep;
+            for (MilkingIntervals interval : INTERVALS)
+            {
+                for (TimePeriod session : SESSIONS)
+                {
+                    yieldTable.put(getMapKey(yield, interval, session),
+                                   current[getIndex(row, interval, session)]);
+                }
+            }
+        }
+        
         return yieldTable;
     }
     
     /**
-     * Puts the given yield value (aYieldValue) into the map for the key made
-     * up of the first three arguments.
+     * Puts the given yield value (aYieldValue) into the cell identified by
+     * the given map key.
      * @param mapKey the concatenated string that constitutes the Yield Table map key
      * @param aYieldValue the yield expected for the other given criteria
+     *
+     * @throws IllegalArgumentException if mapKey does not identify a cell of
+     * the table
+     */
+    void updateYieldValue(String mapKey, int aYieldValue) throws IllegalArgumentException
+    {
+        int index = getCellIndex(mapKey);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("The supplied Yield Table key is not recognised.");
+        }
+        
+        setCellValue(index, aYieldValue);
+    }
+    
+    /**
+     * Returns the number of cells in the table.
+     * @return the number of yield values held
+     */
+    int getNumberOfCells()
+    {
+        return cells.values.length;
+    }
+    
+    /**
+     * Returns the position of the cell identified by the given map key,
+     * counting along the rows with the milking sessions of each milking
+     * interval together.
+     * @param mapKey the concatenated string that constitutes the Yield Table map key
+     * @return the position of the cell, or -1 if mapKey does not identify a
+     * cell of the table
+     */
+    int getCellIndex(String mapKey)
+    {
+        // the milking interval contains a comma, so split on the outer ones
+        int first = mapKey.indexOf(',');
+        int last = mapKey.lastIndexOf(',');
+        if (first < 0 || last <= first)
+        {
+            return -1;
+        }
+        
+        int yield;
+        try
+        {
+            yield = Integer.parseInt(mapKey.substring(0, first));
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+        // keys name rows exactly, so the yield must be on a row boundary
+        if (yield < minYield || yield > maxYield || (yield - minYield) % yieldStep != 0)
+        {
+            return -1;
+        }
+        int row = (yield - minYield) / yieldStep;
+        
+        String intervalText = mapKey.substring(first + 1, last);
+        String sessionText = mapKey.substring(last + 1);
+        for (MilkingIntervals interval : INTERVALS)
+        {
+            if (interval.toString().equals(intervalText))
+            {
+                for (TimePeriod session : SESSIONS)
+                {
+                    if (session.toString().equals(sessionText))
+                    {
+                        return getIndex(row, interval, session);
+                    }
+                }
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Returns the position of the cell for the given average daily yield in
+     * whole litres, milking interval and milking session, finding its row as
+     * getValue does.
+     * @param anAvgDailyYield an average daily yield in litres
+     * @param aMilkingInterval a milking interval
+     * @param aMilkingSession a milking session
+     * @return the position of the cell, or -1 if no row of the table covers
+     * anAvgDailyYield
+     */
+    int getCellIndex(int anAvgDailyYield, MilkingIntervals aMilkingInterval, TimePeriod aMilkingSession)
+    {
+        int row = getRow(anAvgDailyYield);  // a row covers whole litres up to the next row
+        if (row < 0)
+        {
+            return -1;
+        }
+        
+        return getIndex(row, aMilkingInterval, aMilkingSession);
+    }
+    
+    /**
+     * Returns the position of the cell for the given average daily yield in
+     * centilitres, milking interval and milking session, rounding the yield
+     * to whole litres and finding its row as getValueForCentilitres does.
+     * @param anAvgDailyYield an average daily yield in centilitres
+     * @param aRoundingMode the rounding from the yield to whole litres
+     * @param aMilkingInterval a milking interval
+     * @param aMilkingSession a milking session
+     * @return the position of the cell, or -1 if no row of the table covers
+     * anAvgDailyYield
+     * 
+     * @throws ArithmeticException if aRoundingMode is UNNECESSARY and
+     * anAvgDailyYield is not a whole number of litres
+     */
+    int getCellIndexForCentilitres(long anAvgDailyYield, RoundingMode aRoundingMode,
+                                   MilkingIntervals aMilkingInterval, TimePeriod aMilkingSession)
+                                   throws ArithmeticException
+    {
+        long litres = Centilitres.divide(anAvgDailyYield, Centilitres.PER_LITRE, aRoundingMode);
+        if (litres > Integer.MAX_VALUE)
+        {
+            return -1;
+        }
+        
+        return getCellIndex((int) litres, aMilkingInterval, aMilkingSession);
+    }
+    
+    /**
+     * Returns the value of the cell at the given position, counting along the
+     * rows with the milking sessions of each milking interval together.
+     * @param anIndex the position of a cell
+     * @return the yield value of the cell
      */
-    void updateYieldValue(String mapKey, int aYieldValue)
+    int getCellValue(int anIndex)
     {
-        yieldTable.put(mapKey, aYieldValue);
+        return cells.values[anIndex];
     }
     
     /**
-     * Checks if the yield table data is completely filled out by checking for
-     * a zero value.
-     * @return false if a zero value is found, true otherwise
+     * Returns the values of all cells, counting along the rows with the
+     * milking sessions of each milking interval together. The array is the
+     * one the table holds and must not be changed; every change to the table
+     * replaces it, so it also identifies the version of the table.
+     * @return the yield value of each cell
+     */
+    int[] getCellValues()
+    {
+        return cells.values;
+    }
+    
+    /**
+     * Replaces the value of the cell at the given position, counting along
+     * the rows with the milking sessions of each milking interval together.
+     * @param anIndex the position of a cell
+     * @param aYieldValue the yield expected for the cell
+     */
+    synchronized void setCellValue(int anIndex, int aYieldValue)
+    {
+        Cells current = cells;
+        int[] changed = current.values.clone();
+        int missing = current.numberOfMissing;
+        if (changed[anIndex] == 0)
+        {
+            missing--;
+        }
+        if (aYieldValue == 0)
+        {
+            missing++;
+        }
+        changed[anIndex] = aYieldValue;
+        cells = new Cells(changed, missing);
+    }
+    
+    /**
+     * Replaces the values of all cells, counting along the rows with the
+     * milking sessions of each milking interval together.
+     * @param someYieldValues one yield value per cell
+     * 
+     * @throws IllegalArgumentException if someYieldValues does not hold one
+     * value per cell
+     */
+    synchronized void setCellValues(int[] someYieldValues) throws IllegalArgumentException
+    {
+        if (someYieldValues.length != cells.values.length)
+        {
+            throw new IllegalArgumentException("The Yield Table needs " + cells.values.length + " values.");
+        }
+        cells = new Cells(someYieldValues.clone());
+    }
+    
+    /**
+     * Checks if the yield table data is completely filled out. The number of
+     * cells without a value is kept as cells change, so no cells are visited.
+     * @return false if a cell has no value, true otherwise
      */
     public boolean isYieldTableComplete()
     {
-        Collection<Integer> values = yieldTable.values();
-        for (int eachValue : values)
+        return cells.numberOfMissing == 0;
+    }
+    
+    /**
+     * Returns the number of cells of the table without a value.
+     * @return the number of cells whose value is 0
+     */
+    public int getNumberOfMissingCells()
+    {
+        return cells.numberOfMissing;
+    }
+    
+    /**
+     * Returns the map keys of the cells of the table without a value, row by
+     * row with the milking sessions of each milking interval together.
+     * @return a list of map keys as made by getMapKey, empty if the table is
+     * complete
+     */
+    public List<String> getMissingCellKeys()
+    {
+        Cells current = cells;  // the values and the count from the same change
+        List<String> keys = new ArrayList<>(current.numberOfMissing);
+        if (current.numberOfMissing == 0)
         {
-            if (eachValue == 0)
+            return keys;
+        }
+        
+        int index = 0;
+        for (int row = 0; row < rows; row++)
+        {
+            for (MilkingIntervals eachInterval : INTERVALS)
             {
-                return false;
+                for (TimePeriod eachSession : SESSIONS)
+                {
+                    if (current.values[index] == 0)
+                    {
+                        keys.add(getMapKey(minYield + row * yieldStep, eachInterval, eachSession));
+                    }
+                    index++;
+                }
             }
         }
         
-        return true;
+        return keys;
+    }
+    
+    // private protocol
+    
+    /**
+     * Returns the row covering the given average daily yield, or -1 if the
+     * yield lies outside the table.
+     */
+    private int getRow(int anAvgDailyYield)
+    {
+        if (anAvgDailyYield < minYield)
+        {
+            return -1;
+        }
+        
+        int row = (anAvgDailyYield - minYield) / yieldStep;
+        if (row >= rows)
+        {
+            return -1;
+        }
+        
+        return row;
+    }
+    
+    /**
+     * Returns the position in the values array of the cell for the given
+     * row, milking interval and milking session.
+     */
+    private int getIndex(int aRow, MilkingIntervals aMilkingInterval,
+                         TimePeriod aMilkingSession)
+    {
+        return (aRow * INTERVALS.length
+                + aMilkingInterval.ordinal()) * SESSIONS.length
+                + aMilkingSession.ordinal();
+    }
+    
+    /**
+     * The values of all cells together with the number of them still 0,
+     * published as one object so readers never see one without the other.
+     */
+    private static final class Cells
+    {
+        private final int[] values;  // one cell per yield row, interval and session; never changed
+        private final int numberOfMissing;  // cells of values still 0
+        
+        Cells(int[] someValues)
+        {
+            this(someValues, countMissing(someValues));
+        }
+        
+        Cells(int[] someValues, int aNumberOfMissing)
+        {
+            values = someValues;
+            numberOfMissing = aNumberOfMissing;
+        }
+        
+        private static int countMissing(int[] someValues)
+        {
+            int missing = 0;
+            for (int eachValue : someValues)
+            {
+                if (eachValue == 0)
+                {
+                    missing++;
+                }
+            }
+            return missing;
+        }
     }
 }
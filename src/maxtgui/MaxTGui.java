@@ -2,6 +2,8 @@
 package maxtgui;
 
 import java.awt.Color;
+import java.io.*;
+import java.nio.file.*;
 import maxtcore.*;
 import timeperiod.*;
 import milkingintervals.*;
@@ -15,12 +17,25 @@ public class MaxTGui extends javax.swing.JFrame
 {
     // attributes
     private final MaxTCoord maxT;  // coordinating object
+    private final Path snapshotFile = Paths.get("maxt.snapshot");  // saved state between runs
+    private final Path journalFile = Paths.get("maxt.journal");  // changes since the snapshot
     
     private MilkingIntervals milkingInterval = null;  // for radio buttons on 'Add Herd' screen
     private TimePeriod milkingSession = null;  // for radio buttons on 'Add Milk Takings' screen
     
     private final Collection<String> emptyList = new HashSet<>();  // for clearing lists
     
+    // list models shared by every list showing the same farms, herds or cows
+    private static final String COW_PROTOTYPE = "WWWWWWWWWWWWWWWW";  // fixes cow row size
+    private final SortedListModel<Farm> farmListModel;
+    private final Map<Farm, SortedListModel<Herd>> herdListModels = new WeakHashMap<>();
+    private final Map<Herd, SortedListModel<Cow>> cowListModels = new WeakHashMap<>();
+    private final m256gui.M256JList[] herdLists;
+    private final m256gui.M256JList[] cowLists;
+    private final YieldTableModel yieldTableModel;  // holds edits until they are applied together
+    
+    private javax.swing.SwingWorker<String, Void> statWorker = null;  // latest stat display calculation
+    
     // constructor
     
     /**
@@ -28,105 +43,264 @@ public class MaxTGui extends javax.swing.JFrame
      */
     public MaxTGui()
     {
-        // get reference to coordinating object
-        maxT = MaxTCoord.getMaxT();
+        // get reference to coordinating object, restoring the last saved state
+        maxT = loadSnapshot();
+        farmListModel = new SortedListModel<>(maxT.getFarms());
+        yieldTableModel = new YieldTableModel(maxT);
         
         initComponents();
+        herdLists = new m256gui.M256JList[] {addCow_HerdList, addMilkTakings_HerdList,
+                                             updateMilkTakings_HerdList, deleteHerd_HerdList,
+                                             deleteCow_HerdList, deleteMilkTakings_HerdList};
+        cowLists = new m256gui.M256JList[] {addMilkTakings_CowList, updateMilkTakings_CowList,
+                                            deleteCow_CowList, deleteMilkTakings_CowList};
+        for (m256gui.M256JList eachList : cowLists)
+        {
+            // a fixed row size lets a list show a large herd without measuring every cow
+            eachList.setPrototypeCellValue(COW_PROTOTYPE);
+        }
+        
+        // save state when the window is closed
+        addWindowListener(new java.awt.event.WindowAdapter()
+        {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent evt)
+            {
+                saveSnapshot();
+            }
+        });
+        
+        // show restored state
+        updateFarmLists();
+        yieldTableGrid.setModel(yieldTableModel);
+        
+        // from now on show only what each change affects
+        maxT.addMaxTListener(new MaxTListener()
+        {
+            @Override
+            public void maxTChanged(List<MaxTChange> someChanges)
+            {
+                showChanges(someChanges);
+            }
+        }, new java.util.concurrent.Executor()
+        {
+            @Override
+            public void execute(Runnable aTask)
+            {
+                java.awt.EventQueue.invokeLater(aTask);
+            }
+        });
     }
     
     // -------------------------------------------------------------------------
-    // 'Overall Statistics' screen methods                    OVERALL STATISTICS
+    // Change methods                                                    CHANGES
     
-    private void updateStatDisplay()
+    private void showChanges(List<MaxTChange> someChanges)
     {
-        // if a Farm is selected in the list..
-        if ((Farm)main_FarmList.getSelectedValue() != null)
+        Farm shownFarm = (Farm)main_FarmList.getSelectedValue();
+        boolean statsChanged = false;
+        for (MaxTChange eachChange : someChanges)
         {
-            main_statDisplay.setText("");  // clear stat display
-            Farm farm = (Farm)main_FarmList.getSelectedValue();
-            ArrayList<String> line = new ArrayList<>();
+            Farm farm = eachChange.getFarm();
+            Herd herd = eachChange.getHerd();
+            Cow cow = eachChange.getCow();
+            switch (eachChange.getChangeType())
+            {
+                case FARM_ADDED:
+                    farmListModel.elementAdded(farm);
+                    break;
+                case FARM_DELETED:
+                    farmListModel.elementRemoved(farm);
+                    clearListsShowing(herdListModels.remove(farm), herdLists);
+                    break;
+                case HERD_ADDED:
+                    getHerdListModel(farm).elementAdded(herd);
+                    break;
+                case HERD_DELETED:
+                    getHerdListModel(farm).elementRemoved(herd);
+                    clearListsShowing(cowListModels.remove(herd), cowLists);
+                    break;
+                case COW_ADDED:
+                    getCowListModel(herd).elementAdded(cow);
+                    break;
+                case COW_DELETED:
+                    getCowListModel(herd).elementRemoved(cow);
+                    showMilkingSessionChange(cow);
+                    break;
+                case MILK_TAKINGS_ADDED:
+                case MILK_TAKINGS_DELETED:
+                    showMilkingSessionChange(cow);
+                    break;
+                case MILK_TAKINGS_UPDATED:
+                    showMilkYieldChange(cow, eachChange.getMilkingSession());
+                    break;
+                case DAY_ADVANCED:
+                    showNewDay();
+                    statsChanged = true;  // every herd starts the day without takings
+                    break;
+                case YIELD_VALUE_UPDATED:
+                    yieldTableModel.yieldValueChanged(eachChange.getYieldTableKey());
+                    statsChanged = true;  // every herd may be affected
+                    break;
+                case YIELD_TABLE_UPDATED:
+                    yieldTableModel.yieldValuesChanged();
+                    statsChanged = true;
+                    break;
+                default:  // a herd setting, shown only in the statistics
+                    break;
+            }
+            
+            if (farm != null && farm.equals(shownFarm))
+            {
+                statsChanged = true;
+            }
+        }
         
-            // create headers
-            line.add("           AM MaxT   PM MaxT    Cow    Avg per cow");
-            line.add("Herd      (min:sec) (min:sec)   qty     (AM, PM)");
-            line.add("---------+---------+---------+-------+-------------");
-
-            // generate lines with values
-            if (!maxT.isYieldTableComplete())
+        if (statsChanged)
+        {
+            updateStatDisplay();
+        }
+    }
+    
+    private void showMilkingSessionChange(Cow aCow)
+    {
+        showMilkingSessionChange(updateMilkTakings_MilkingSessionList, updateMilkTakings_CowList, aCow);
+        showMilkingSessionChange(deleteMilkTakings_MilkingSessionList, deleteMilkTakings_CowList, aCow);
+    }
+    
+    private void showMilkingSessionChange(m256gui.M256JList aMilkingSessionList, m256gui.M256JList aCowList, Cow aCow)
+    {
+        Cow shownCow = (Cow)aCowList.getSelectedValue();
+        if (shownCow == null)  // the cow may have just been deleted
+        {
+            clearList(aMilkingSessionList);
+        }
+        else if (shownCow.equals(aCow))
+        {
+            updateMilkingSessionList(aMilkingSessionList, aCow);
+        }
+    }
+    
+    private void showNewDay()
+    {
+        // today's milk takings have moved into the history
+        showMilkingSessionChange((Cow)updateMilkTakings_CowList.getSelectedValue());
+        showMilkingSessionChange((Cow)deleteMilkTakings_CowList.getSelectedValue());
+        clearField(updateMilkTakings_ExistingYieldTxt);
+        clearField(deleteMilkTakings_YieldTxt);
+    }
+    
+    private void showMilkYieldChange(Cow aCow, TimePeriod aMilkingSession)
+    {
+        if (aCow.equals(updateMilkTakings_CowList.getSelectedValue())
+            && aMilkingSession == updateMilkTakings_MilkingSessionList.getSelectedValue())
+        {
+            MilkTakings milkTakings = maxT.getMilkTakings(aCow).get(aMilkingSession);
+            if (milkTakings != null)
+            {
+                updateYield(updateMilkTakings_ExistingYieldTxt, milkTakings.getMilkYieldCentilitres());
+            }
+        }
+        if (aCow.equals(deleteMilkTakings_CowList.getSelectedValue())
+            && aMilkingSession == deleteMilkTakings_MilkingSessionList.getSelectedValue())
+        {
+            MilkTakings milkTakings = maxT.getMilkTakings(aCow).get(aMilkingSession);
+            if (milkTakings != null)
             {
-                line.add(String.format("%n MaxT values cannot be calculated until%n"
-                                     + " Yield Table data is complete "));
+                updateYield(deleteMilkTakings_YieldTxt, milkTakings.getMilkYieldCentilitres());
+            }
+        }
+    }
+    
+    // -------------------------------------------------------------------------
+    // Saved state methods                                           SAVED STATE
+    
+    private MaxTCoord loadSnapshot()
+    {
+        try
+        {
+            return MaxTJournal.open(snapshotFile, journalFile);
+        }
+        catch (IOException e)
+        {
+            java.util.logging.Logger.getLogger(MaxTGui.class.getName()).log(
+                    java.util.logging.Level.SEVERE, "Could not restore " + snapshotFile, e);
+        }
+        
+        return MaxTCoord.getMaxT();
+    }
+    
+    private void saveSnapshot()
+    {
+        try
+        {
+            MaxTJournal journal = maxT.getJournal();
+            if (journal != null)
+            {
+                journal.compact();
+                journal.close();
             }
             else
             {
-                Collection<Herd> herds = maxT.getHerds(farm); 
-                if (!herds.isEmpty())
+                MaxTSnapshot.save(maxT, snapshotFile);
+            }
+        }
+        catch (IOException e)
+        {
+            java.util.logging.Logger.getLogger(MaxTGui.class.getName()).log(
+                    java.util.logging.Level.SEVERE, "Could not save " + snapshotFile, e);
+        }
+    }
+    
+    // -------------------------------------------------------------------------
+    // 'Overall Statistics' screen methods                    OVERALL STATISTICS
+    
+    private void updateStatDisplay()
+    {
+        // a newer request supersedes any calculation still running
+        if (statWorker != null)
+        {
+            statWorker.cancel(false);
+            statWorker = null;
+        }
+        
+        // if a Farm is selected in the list..
+        if ((Farm)main_FarmList.getSelectedValue() != null)
+        {
+            final Farm farm = (Farm)main_FarmList.getSelectedValue();
+            
+            // calculate off the event dispatch thread, so large farms do not
+            // freeze the window, then show the whole text at once
+            statWorker = new javax.swing.SwingWorker<String, Void>()
+            {
+                @Override
+                protected String doInBackground()
                 {
-                    String herdId;
-                    String amMaxT;
-                    String pmMaxT;
-                    int cowQty;
-                    int avgPerCowAm;
-                    int avgPerCowPm;
-
-                    for (Herd eachHerd : herds)
+                    MaxTReport report = maxT.getReport(Collections.singletonList(farm));
+                    return report.getFarmText(0);
+                }
+                
+                @Override
+                protected void done()
+                {
+                    if (isCancelled() || statWorker != this)
+                    {
+                        return;  // stale: the selection or data changed meanwhile
+                    }
+                    statWorker = null;
+                    
+                    try
                     {
-                        herdId = eachHerd.getId();
-                        amMaxT = null;
-                        pmMaxT = null;
-                        cowQty = eachHerd.getNumberOfCows();
-                        avgPerCowAm = 0;
-                        avgPerCowPm = 0;
-
-                        if (cowQty > 0 && maxT.isHerdMilkingDataComplete(eachHerd))
-                        {
-                            avgPerCowAm = maxT.getAvgYieldPerCow(eachHerd, TimePeriod.AM);
-                            avgPerCowPm = maxT.getAvgYieldPerCow(eachHerd, TimePeriod.PM);
-                            
-                            amMaxT = maxT.getMaxTValue(avgPerCowAm);
-                            if (amMaxT == null)
-                            {
-                                amMaxT = "XX:XX";
-                            }
-                            
-                            pmMaxT = maxT.getMaxTValue(avgPerCowPm);
-                            if (pmMaxT == null)
-                            {
-                                pmMaxT = "XX:XX";
-                            }
-                        }
-
-                        if (amMaxT == null)
-                        {
-                            amMaxT = "";
-                        }
-
-                        if (pmMaxT == null)
-                        {
-                            pmMaxT = "";
-                        }
-
-                        if (avgPerCowAm == 0 || avgPerCowPm == 0)
-                        {
-                            line.add(String.format("%-8s :  %5s  :  %5s  :  %3d  :",
-                                                   herdId, amMaxT, pmMaxT,
-                                                   cowQty, avgPerCowAm, avgPerCowPm));
-                        }
-                        else
-                        {                  
-                            line.add(String.format("%-8s :  %5s  :  %5s  :  %3d  :  %2dL, %2dL",
-                                                   herdId, amMaxT, pmMaxT,
-                                                   cowQty, avgPerCowAm, avgPerCowPm));
-                        }
+                        main_statDisplay.setText(get());
+                    }
+                    catch (InterruptedException | java.util.concurrent.ExecutionException e)
+                    {
+                        java.util.logging.Logger.getLogger(MaxTGui.class.getName()).log(
+                                java.util.logging.Level.SEVERE, "Could not calculate the statistics for " + farm, e);
                     }
                 }
-            }
-            
-            for (String eachLine : line)
-            {
-                main_statDisplay.append(eachLine);
-                main_statDisplay.append("\n");
-            }
+            };
+            statWorker.execute();
         }
     }
     
@@ -146,15 +320,11 @@ public class MaxTGui extends javax.swing.JFrame
             return;
         }
         
-        Collection<Farm> farms = maxT.getFarms();
-        for (Farm eachFarm : farms)
+        if (maxT.findFarm(id) != null)  // Is farm id unique?
         {
-            if (id.equals(eachFarm.getId()))  // Is farm id unique?
-            {
-                reportError("ID already exists. Enter a unique ID.");
-                selectFieldText(addFarm_IdField);
-                return;
-            }
+            reportError("ID already exists. Enter a unique ID.");
+            selectFieldText(addFarm_IdField);
+            return;
         }
         
         String name = addFarm_NameField.getText();
@@ -174,7 +344,6 @@ public class MaxTGui extends javax.swing.JFrame
         maxT.addFarm(id, name, location);
         reportSuccess("Farm '" + id + "' added.");
         clearAddFarm();  // set for next entry
-        updateFarmLists();  // update other tabs
     }
     
     private void clearAddFarm()
@@ -211,15 +380,11 @@ public class MaxTGui extends javax.swing.JFrame
             return;
         }
         
-        Collection<Herd> herds = maxT.getHerds((Farm)addHerd_FarmList.getSelectedValue());
-        for (Herd eachHerd : herds)
+        if (maxT.findHerd((Farm)addHerd_FarmList.getSelectedValue(), id) != null)  // Is herd id unique?
         {
-            if (id.equals(eachHerd.getId()))  // Is herd id unique?
-            {
-                reportError("ID already exists. Enter a unique ID.");
-                selectFieldText(addHerd_IdField);
-                return;
-            }
+            reportError("ID already exists. Enter a unique ID.");
+            selectFieldText(addHerd_IdField);
+            return;
         }
         
         String name = addHerd_NameField.getText();
@@ -240,7 +405,6 @@ public class MaxTGui extends javax.swing.JFrame
         maxT.addHerd(id, name, milkingInterval, farm);
         reportSuccess("Herd '" + id + "' added.");
         nextAddHerd();  // set for next entry
-        updateHerdLists("addHerd");  // update other tabs
     }
     
     private void nextAddHerd()
@@ -280,15 +444,11 @@ public class MaxTGui extends javax.swing.JFrame
             return;
         }
         
-        Collection<Cow> cows = maxT.getCows((Herd)addCow_HerdList.getSelectedValue());
-        for (Cow eachCow : cows)
+        if (maxT.findCow((Herd)addCow_HerdList.getSelectedValue(), id) != null)  // Is cow id unique?
         {
-            if (id.equals(eachCow.getId()))  // Is cow id unique?
-            {
-                reportError("ID already exists. Enter a unique ID.");
-                selectFieldText(addCow_IdField);
-                return;
-            }
+            reportError("ID already exists. Enter a unique ID.");
+            selectFieldText(addCow_IdField);
+            return;
         }
         
         // perform add
@@ -296,7 +456,6 @@ public class MaxTGui extends javax.swing.JFrame
         maxT.addCow(id, herd);
         reportSuccess("Cow '" + id + "' added.");
         nextAddCow();  // set for next entry
-        updateCowLists("addCow");  // update other tabs
     }
     
     private void nextAddCow()
@@ -343,18 +502,17 @@ public class MaxTGui extends javax.swing.JFrame
         }
         
         String milkYield = addMilkTakings_YieldField.getText();
-        if (!validInt(milkYield, "milk yield"))  // if yield entry not an int..
+        if (!validYield(milkYield))  // if yield entry not litres to 2 decimal places..
         {
             selectFieldText(addMilkTakings_YieldField);
             return;
         }
         
         // perform add
-        maxT.addMilkTakings(milkingSession,Integer.parseInt(milkYield),cow);
+        maxT.addMilkTakingsCentilitres(milkingSession,Centilitres.parse(milkYield),cow);
         String session = milkingSession.toString();
         reportSuccess(session + " Milk Takings added.");
         nextAddMilkTakings();  // set for next entry
-        updateMilkingSessionLists("addMilkTakings");  // update other tabs
     }
     
     private void nextAddMilkTakings()
@@ -404,14 +562,14 @@ public class MaxTGui extends javax.swing.JFrame
         TimePeriod session = (TimePeriod)updateMilkTakings_MilkingSessionList.getSelectedValue();
         MilkTakings theMilkTakings = existingMilkTakings.get(session);  // get the Milk Takings object to be updated
         String milkYield = updateMilkTakings_NewYieldField.getText();
-        if (!validInt(milkYield, "milk yield"))  // if yield entry not an int..
+        if (!validYield(milkYield))  // if yield entry not litres to 2 decimal places..
         {
             selectFieldText(updateMilkTakings_NewYieldField);
             return;
         }
         
-        int newMilkYield = Integer.parseInt(milkYield);
-        int existingMilkYield = existingMilkTakings.get((TimePeriod)updateMilkTakings_MilkingSessionList.getSelectedValue()).getMilkYield();
+        int newMilkYield = Centilitres.parse(milkYield);
+        int existingMilkYield = existingMilkTakings.get((TimePeriod)updateMilkTakings_MilkingSessionList.getSelectedValue()).getMilkYieldCentilitres();
         if (newMilkYield == existingMilkYield)
         {
             reportError("Milk Yield values are the same. No update necessary.");
@@ -420,9 +578,9 @@ public class MaxTGui extends javax.swing.JFrame
         }
         
         // perform update
-        maxT.updateMilkTakings(theMilkTakings, newMilkYield);
+        maxT.updateMilkTakingsCentilitres(theMilkTakings, newMilkYield);
         reportSuccess("Milk yield updated.");
-        updateYield(updateMilkTakings_ExistingYieldTxt, theMilkTakings.getMilkYield());
+        updateYield(updateMilkTakings_ExistingYieldTxt, theMilkTakings.getMilkYieldCentilitres());
         clearField(updateMilkTakings_NewYieldField);
     }
     
@@ -452,7 +610,6 @@ public class MaxTGui extends javax.swing.JFrame
         // perform delete
         maxT.deleteFarm(farm);
         reportSuccess("Farm '" + farmId + "' deleted.");
-        updateFarmLists();  // update other tabs
     }
     
     // --------------------------------------------------------------------
@@ -484,9 +641,6 @@ public class MaxTGui extends javax.swing.JFrame
         // perform delete
         maxT.deleteHerd(herd);
         reportSuccess("Herd '" + herdId + "' deleted.");
-        // update current tab
-        updateHerdList(deleteHerd_HerdList, (Farm)deleteHerd_FarmList.getSelectedValue());
-        updateHerdLists("deleteHerd");  // update other tabs
     }
     
     // --------------------------------------------------------------------
@@ -518,9 +672,6 @@ public class MaxTGui extends javax.swing.JFrame
         String id = cow.getId();
         maxT.deleteCow(cow);
         reportSuccess("Cow '" + id + "' deleted.");
-        // update current tab
-        updateCowList(deleteCow_CowList, (Herd)deleteCow_HerdList.getSelectedValue());
-        updateCowLists("deleteCow");  // update other tab
     }
     
     // --------------------------------------------------------------------
@@ -558,29 +709,52 @@ public class MaxTGui extends javax.swing.JFrame
         Cow cow = (Cow)deleteMilkTakings_CowList.getSelectedValue();
         maxT.deleteMilkTakings(session, cow);
         reportSuccess(session + " Milk Takings deleted.");
-        // update current tab
-        updateMilkingSessionList(deleteMilkTakings_MilkingSessionList, cow);
         clearField(deleteMilkTakings_YieldTxt);
-        updateMilkingSessionLists("deleteMilkTakings");  // update other tabs
     }
     
     // -------------------------------------------------------------------------
     // 'Yield Table' screen methods                                  YIELD TABLE
     
-    private void updateYieldValue(javax.swing.JTextField aField, String mapKey)
+    private void applyYieldTableEdits()
     {
-        String yieldValue = aField.getText();
-        if (!validInt(yieldValue,"milk yield value"))
+        // finish the cell being typed in, if any
+        if (yieldTableGrid.isEditing() && !yieldTableGrid.getCellEditor().stopCellEditing())
+        {
+            reportError("Milk yield must be numerical and rounded to nearest litre.");
+            return;
+        }
+        
+        if (!yieldTableModel.hasPendingValues())
         {
-            reportError("Invalid milk yield value entered. Updated to 0 instead.");
-            aField.setText("0");
-            maxT.updateYieldValue(mapKey, 0);
+            reportError("Enter yield table values to apply.");
+            return;
+        }
+        
+        Map<String, Integer> yieldValues = yieldTableModel.getPendingValues();
+        for (int eachValue : yieldValues.values())
+        {
+            if (eachValue < 0)
+            {
+                reportError("Milk yield must be a positive value");
+                return;
+            }
         }
-        else
+        
+        // apply every edit as one change
+        int numberOfValues = yieldValues.size();
+        maxT.updateYieldValues(yieldValues);
+        yieldTableModel.clearPendingValues();
+        reportSuccess(numberOfValues + " Yield Table value(s) updated.");
+    }
+    
+    private void revertYieldTableEdits()
+    {
+        if (yieldTableGrid.isEditing())
         {
-            maxT.updateYieldValue(mapKey, Integer.parseInt(yieldValue));
-            reportSuccess("Yield Value updated to '" + yieldValue + "'.");
+            yieldTableGrid.getCellEditor().cancelCellEditing();
         }
+        yieldTableModel.clearPendingValues();
+        resetFeedback();
     }
     
     // -------------------------------------------------------------------------
@@ -622,6 +796,22 @@ public class MaxTGui extends javax.swing.JFrame
         }
     }
     
+    private boolean validYield(String theInput)
+    {
+        if (theInput.equals(""))
+        {
+            reportError("Enter milk yield.");
+            return false;
+        }
+        
+        if (Centilitres.parse(theInput) < 0)
+        {
+            reportError("Milk yield must be a positive number of litres with at most two decimal places.");
+            return false;
+        }
+        return true;
+    }
+    
     private void reportError(String aMessage)
     {
         feedbackTxt.setText("ERROR: " + aMessage);
@@ -651,177 +841,61 @@ public class MaxTGui extends javax.swing.JFrame
         updateFarmList(deleteHerd_FarmList);
         updateFarmList(deleteCow_FarmList);
         updateFarmList(deleteMilkTakings_FarmList);
-        clearHerdLists();
     }
     
     private void updateFarmList(m256gui.M256JList aFarmList)
     {
-        aFarmList.setListData(maxT.getFarms());
+        showModel(aFarmList, farmListModel);
     }
     
-    private void updateHerdLists(String skipThis)
+    private void updateHerdList(m256gui.M256JList aHerdList, Farm aFarm)
     {
-        if (!skipThis.equals("addCow"))
-        {
-            if ((Farm)addCow_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(addCow_HerdList, (Farm)addCow_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(addCow_HerdList);
-            }
-        }
-        
-        if (!skipThis.equals("addMilkTakings"))
-        {
-            if ((Farm)addMilkTakings_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(addMilkTakings_HerdList, (Farm)addMilkTakings_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(addMilkTakings_HerdList);
-            }
-        }
-        
-        if (!skipThis.equals("updateMilkTakings"))
-        {
-            if ((Farm)updateMilkTakings_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(updateMilkTakings_HerdList, (Farm)updateMilkTakings_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(updateMilkTakings_HerdList);
-            }
-        }
-        
-        if (!skipThis.equals("deleteHerd"))
-        {
-            if ((Farm)deleteHerd_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(deleteHerd_HerdList, (Farm)deleteHerd_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteHerd_HerdList);
-            }
-        }
-        
-        if (!skipThis.equals("deleteCow"))
-        {
-            if ((Farm)deleteCow_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(deleteCow_HerdList, (Farm)deleteCow_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteCow_HerdList);
-            }
-        }
-        
-        if (!skipThis.equals("deleteMilkTakings"))
-        {
-            if ((Farm)deleteMilkTakings_FarmList.getSelectedValue() != null)
-            {
-                updateHerdList(deleteMilkTakings_HerdList, (Farm)deleteMilkTakings_FarmList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteMilkTakings_HerdList);
-            }
-        }
-                
-        updateCowLists(skipThis);
+        showModel(aHerdList, getHerdListModel(aFarm));
     }
     
-    private void updateHerdList(m256gui.M256JList aHerdList, Farm aFarm)
+    private void updateCowList(m256gui.M256JList aCowList, Herd aHerd)
     {
-        aHerdList.setListData(maxT.getHerds(aFarm));
+        showModel(aCowList, getCowListModel(aHerd));
     }
     
-    private void updateCowLists(String skipThis)
+    private SortedListModel<Herd> getHerdListModel(Farm aFarm)
     {
-        if (!skipThis.equals("addMilkTakings"))
-        {
-            if ((Herd)addMilkTakings_HerdList.getSelectedValue() != null)
-            {
-                updateCowList(addMilkTakings_CowList, (Herd)addMilkTakings_HerdList.getSelectedValue());
-            }
-            else
-            {
-                clearList(addMilkTakings_CowList);
-            }
-        }
-                
-        if (!skipThis.equals("updateMilkTakings"))
+        SortedListModel<Herd> model = herdListModels.get(aFarm);
+        if (model == null)
         {
-            if ((Herd)updateMilkTakings_HerdList.getSelectedValue() != null)
-            {
-                updateCowList(updateMilkTakings_CowList, (Herd)updateMilkTakings_HerdList.getSelectedValue());
-            }
-            else
-            {
-                clearList(updateMilkTakings_CowList);
-            }
-        }
-        
-        if (!skipThis.equals("deleteCow"))
-        {
-            if ((Herd)deleteCow_HerdList.getSelectedValue() != null)
-            {
-                updateCowList(deleteCow_CowList, (Herd)deleteCow_HerdList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteCow_CowList);
-            }
+            model = new SortedListModel<>(maxT.getHerds(aFarm));
+            herdListModels.put(aFarm, model);
         }
-        
-        if (!skipThis.equals("deleteMilkTakings"))
+        return model;
+    }
+    
+    private SortedListModel<Cow> getCowListModel(Herd aHerd)
+    {
+        SortedListModel<Cow> model = cowListModels.get(aHerd);
+        if (model == null)
         {
-            if ((Herd)deleteMilkTakings_HerdList.getSelectedValue() != null)
-            {
-                updateCowList(deleteMilkTakings_CowList, (Herd)deleteMilkTakings_HerdList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteMilkTakings_CowList);
-            }
+            model = new SortedListModel<>(maxT.getCows(aHerd));
+            cowListModels.put(aHerd, model);
         }
-            
-        updateMilkingSessionLists(skipThis);
+        return model;
     }
     
-    private void updateCowList(m256gui.M256JList aCowList, Herd aHerd)
+    @SuppressWarnings("unchecked")
+    private void showModel(m256gui.M256JList aList, javax.swing.ListModel<?> aModel)
     {
-        aCowList.setListData(maxT.getCows(aHerd));
+        if (aList.getModel() != aModel)  // the list already follows changes to its own model
+        {
+            aList.setModel(aModel);
+        }
     }
     
-    private void updateMilkingSessionLists(String skipThis)
+    private void clearListsShowing(javax.swing.ListModel<?> aModel, m256gui.M256JList[] someLists)
     {
-        if (!skipThis.equals("updateMilkTakings"))
+        for (m256gui.M256JList eachList : someLists)
         {
-            if ((Cow)updateMilkTakings_CowList.getSelectedValue() != null)
+            if (aModel != null && eachList.getModel() == aModel)
             {
-                updateMilkingSessionList(updateMilkTakings_MilkingSessionList, (Cow)updateMilkTakings_CowList.getSelectedValue());
-            }
-            else
-            {
-                clearList(updateMilkTakings_MilkingSessionList);
-            }
-        }
-        
-        if (!skipThis.equals("deleteMilkTakings"))
-        {        
-            if ((Cow)deleteMilkTakings_CowList.getSelectedValue() != null)
-            {
-                updateMilkingSessionList(deleteMilkTakings_MilkingSessionList, (Cow)deleteMilkTakings_CowList.getSelectedValue());
-            }
-            else
-            {
-                clearList(deleteMilkTakings_MilkingSessionList);
+                clearList(eachList);
             }
         }
     }
@@ -831,35 +905,9 @@ public class MaxTGui extends javax.swing.JFrame
         aMilkingSessionList.setListData(maxT.getMilkTakings(aCow).keySet());
     }
     
-    private void updateYield(javax.swing.JTextField aField, int aYield)
+    private void updateYield(javax.swing.JTextField aField, int aYieldCentilitres)
     {
-        aField.setText(aYield + "L");
-    }
-    
-    private void clearHerdLists()
-    {
-        clearList(addCow_HerdList);
-        clearList(addMilkTakings_HerdList);
-        clearList(updateMilkTakings_HerdList);
-        clearList(deleteHerd_HerdList);
-        clearList(deleteCow_HerdList);
-        clearList(deleteMilkTakings_HerdList);
-        clearCowLists();
-    }
-    
-    private void clearCowLists()
-    {
-        clearList(addMilkTakings_CowList);
-        clearList(updateMilkTakings_CowList);
-        clearList(deleteCow_CowList);
-        clearList(deleteMilkTakings_CowList);
-        clearMilkingSessionLists();
-    }
-    
-    private void clearMilkingSessionLists()
-    {
-        clearList(updateMilkTakings_MilkingSessionList);
-        clearList(deleteMilkTakings_MilkingSessionList);
+        aField.setText(Centilitres.format(aYieldCentilitres) + "L");
     }
     
     private void clearList(m256gui.M256JList aList)
@@ -1035,47 +1083,10 @@ public class MaxTGui extends javax.swing.JFrame
         deleteMilkTakings_YieldTxt = new javax.swing.JTextField();
         yieldTableScreen = new javax.swing.JPanel();
         jLabel35 = new javax.swing.JLabel();
-        yieldTable_20_8_PM = new javax.swing.JTextField();
-        yieldTable_20_8_AM = new javax.swing.JTextField();
-        yieldTable_20_9_PM = new javax.swing.JTextField();
-        yieldTable_20_9_AM = new javax.swing.JTextField();
-        yieldTable_21_8_PM = new javax.swing.JTextField();
-        yieldTable_21_8_AM = new javax.swing.JTextField();
-        yieldTable_21_9_PM = new javax.swing.JTextField();
-        yieldTable_21_9_AM = new javax.swing.JTextField();
-        yieldTable_22_8_PM = new javax.swing.JTextField();
-        yieldTable_22_8_AM = new javax.swing.JTextField();
-        yieldTable_22_9_PM = new javax.swing.JTextField();
-        yieldTable_22_9_AM = new javax.swing.JTextField();
-        yieldTable_23_8_PM = new javax.swing.JTextField();
-        yieldTable_23_8_AM = new javax.swing.JTextField();
-        yieldTable_23_9_PM = new javax.swing.JTextField();
-        yieldTable_23_9_AM = new javax.swing.JTextField();
-        yieldTable_24_8_PM = new javax.swing.JTextField();
-        yieldTable_24_8_AM = new javax.swing.JTextField();
-        yieldTable_24_9_PM = new javax.swing.JTextField();
-        yieldTable_24_9_AM = new javax.swing.JTextField();
-        yieldTable_25_8_PM = new javax.swing.JTextField();
-        yieldTable_25_8_AM = new javax.swing.JTextField();
-        yieldTable_25_9_PM = new javax.swing.JTextField();
-        yieldTable_25_9_AM = new javax.swing.JTextField();
-        jLabel56 = new javax.swing.JLabel();
-        jLabel57 = new javax.swing.JLabel();
-        jLabel58 = new javax.swing.JLabel();
-        jLabel59 = new javax.swing.JLabel();
-        jLabel60 = new javax.swing.JLabel();
-        jLabel61 = new javax.swing.JLabel();
-        jLabel62 = new javax.swing.JLabel();
-        jLabel36 = new javax.swing.JLabel();
-        jLabel49 = new javax.swing.JLabel();
-        jLabel52 = new javax.swing.JLabel();
-        jLabel53 = new javax.swing.JLabel();
-        jLabel54 = new javax.swing.JLabel();
-        jLabel63 = new javax.swing.JLabel();
-        jLabel64 = new javax.swing.JLabel();
-        jLabel65 = new javax.swing.JLabel();
-        jLabel66 = new javax.swing.JLabel();
-        jLabel67 = new javax.swing.JLabel();
+        yieldTableScrollPane = new javax.swing.JScrollPane();
+        yieldTableGrid = new javax.swing.JTable();
+        applyYieldTableButton = new javax.swing.JButton();
+        revertYieldTableButton = new javax.swing.JButton();
         jLabel68 = new javax.swing.JLabel();
         bottomPanel = new javax.swing.JPanel();
         exitButton = new javax.swing.JButton();
@@ -2225,367 +2236,46 @@ public class MaxTGui extends javax.swing.JFrame
         jLabel35.setForeground(new java.awt.Color(0, 0, 102));
         jLabel35.setText("Yield Table");
 
-        yieldTable_20_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_20_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_20_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_20_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_20_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_20_8_AMFocusLost(evt);
-            }
-        });
+        yieldTableGrid.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        yieldTableGrid.getTableHeader().setReorderingAllowed(false);
+        yieldTableScrollPane.setViewportView(yieldTableGrid);
 
-        yieldTable_20_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_20_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
+        applyYieldTableButton.setText("Apply Changes");
+        applyYieldTableButton.addActionListener(new java.awt.event.ActionListener()
         {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_20_9_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_20_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_20_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_20_9_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_21_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_21_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_21_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_21_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_21_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_21_8_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_21_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_21_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_21_9_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_21_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_21_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_21_9_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_22_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_22_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_22_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_22_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_22_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_22_8_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_22_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_22_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_22_9_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_22_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_22_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_22_9_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_23_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_23_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_23_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_23_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_23_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_23_8_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_23_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_23_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_23_9_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_23_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_23_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_23_9_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_24_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_24_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_24_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_24_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_24_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_24_8_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_24_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_24_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_24_9_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_24_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_24_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_24_9_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_25_8_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_25_8_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_25_8_PMFocusLost(evt);
-            }
-        });
-
-        yieldTable_25_8_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_25_8_AM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
-            {
-                yieldTable_25_8_AMFocusLost(evt);
-            }
-        });
-
-        yieldTable_25_9_PM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_25_9_PM.addFocusListener(new java.awt.event.FocusAdapter()
-        {
-            public void focusLost(java.awt.event.FocusEvent evt)
+            public void actionPerformed(java.awt.event.ActionEvent evt)
             {
-                yieldTable_25_9_PMFocusLost(evt);
+                applyYieldTableButtonActionPerformed(evt);
             }
         });
 
-        yieldTable_25_9_AM.setHorizontalAlignment(javax.swing.JTextField.RIGHT);
-        yieldTable_25_9_AM.addFocusListener(new java.awt.event.FocusAdapter()
+        revertYieldTableButton.setText("Revert");
+        revertYieldTableButton.addActionListener(new java.awt.event.ActionListener()
         {
-            public void focusLost(java.awt.event.FocusEvent evt)
+            public void actionPerformed(java.awt.event.ActionEvent evt)
             {
-                yieldTable_25_9_AMFocusLost(evt);
+                revertYieldTableButtonActionPerformed(evt);
             }
         });
 
-        jLabel56.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel56.setText("AM");
-        jLabel56.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
-
-        jLabel57.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel57.setText("AM");
-        jLabel57.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
-
-        jLabel58.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel58.setText("PM");
-        jLabel58.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
-
-        jLabel59.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel59.setText("PM");
-        jLabel59.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
-
-        jLabel60.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel60.setText("(8,16)");
-
-        jLabel61.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel61.setText("(9,15)");
-
-        jLabel62.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel62.setText("Milking Intervals");
-
-        jLabel36.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel36.setText("Daily");
-
-        jLabel49.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel49.setText("Milk");
-
-        jLabel52.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel52.setText("Yield");
-
-        jLabel53.setText("20");
-
-        jLabel54.setText("21");
-
-        jLabel63.setText("22");
-
-        jLabel64.setText("23");
-
-        jLabel65.setText("24");
-
-        jLabel66.setText("25");
-
-        jLabel67.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel67.setText("(L)");
-
-        jLabel68.setText("Enter yield table values:");
+        jLabel68.setText("Enter yield table values in litres, then apply them together:");
 
         javax.swing.GroupLayout yieldTableScreenLayout = new javax.swing.GroupLayout(yieldTableScreen);
         yieldTableScreen.setLayout(yieldTableScreenLayout);
         yieldTableScreenLayout.setHorizontalGroup(
             yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(yieldTableScreenLayout.createSequentialGroup()
+                .addContainerGap()
                 .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                        .addContainerGap()
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                            .addComponent(jLabel35, javax.swing.GroupLayout.PREFERRED_SIZE, 258, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel68)))
-                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                        .addGap(19, 19, 19)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
-                            .addComponent(jLabel53)
-                            .addComponent(jLabel65)
-                            .addComponent(jLabel66)
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                    .addComponent(jLabel67, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                                    .addComponent(jLabel36, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                                    .addComponent(jLabel49, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                                    .addComponent(jLabel52, javax.swing.GroupLayout.PREFERRED_SIZE, 31, javax.swing.GroupLayout.PREFERRED_SIZE))
-                                .addGap(18, 18, 18)
-                                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                                    .addComponent(jLabel64, javax.swing.GroupLayout.Alignment.TRAILING)
-                                    .addComponent(jLabel54, javax.swing.GroupLayout.Alignment.TRAILING)
-                                    .addComponent(jLabel63, javax.swing.GroupLayout.Alignment.TRAILING))))
-                        .addGap(6, 6, 6)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addComponent(yieldTable_25_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_25_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_25_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_25_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addComponent(yieldTable_24_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_24_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_24_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_24_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addComponent(yieldTable_23_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_23_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_23_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_23_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addComponent(yieldTable_22_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_22_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_22_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_22_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addComponent(yieldTable_21_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_21_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_21_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addComponent(yieldTable_21_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                            .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                            .addComponent(yieldTable_20_8_PM)
-                                            .addComponent(jLabel59, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                            .addComponent(yieldTable_20_8_AM)
-                                            .addComponent(jLabel56, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)))
-                                    .addComponent(jLabel60, javax.swing.GroupLayout.PREFERRED_SIZE, 64, javax.swing.GroupLayout.PREFERRED_SIZE))
-                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                            .addComponent(yieldTable_20_9_PM)
-                                            .addComponent(jLabel58, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE))
-                                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
-                                            .addComponent(yieldTable_20_9_AM)
-                                            .addComponent(jLabel57, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)))
-                                    .addComponent(jLabel61, javax.swing.GroupLayout.PREFERRED_SIZE, 64, javax.swing.GroupLayout.PREFERRED_SIZE)))
-                            .addComponent(jLabel62, javax.swing.GroupLayout.PREFERRED_SIZE, 134, javax.swing.GroupLayout.PREFERRED_SIZE))))
-                .addGap(0, 327, Short.MAX_VALUE))
+                    .addComponent(jLabel35, javax.swing.GroupLayout.PREFERRED_SIZE, 258, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel68)
+                    .addComponent(yieldTableScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 560, Short.MAX_VALUE)
+                    .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, yieldTableScreenLayout.createSequentialGroup()
+                        .addGap(0, 0, Short.MAX_VALUE)
+                        .addComponent(revertYieldTableButton)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(applyYieldTableButton)))
+                .addContainerGap())
         );
         yieldTableScreenLayout.setVerticalGroup(
             yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -2595,70 +2285,12 @@ public class MaxTGui extends javax.swing.JFrame
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jLabel68)
                 .addGap(18, 18, 18)
-                .addComponent(jLabel62)
-                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                    .addComponent(jLabel60)
-                    .addComponent(jLabel61))
+                .addComponent(yieldTableScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 200, Short.MAX_VALUE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                    .addComponent(jLabel56)
-                    .addComponent(jLabel57)
-                    .addComponent(jLabel58)
-                    .addComponent(jLabel59))
-                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                    .addComponent(yieldTable_20_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(yieldTable_20_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(yieldTable_20_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(yieldTable_20_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(jLabel53))
-                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(yieldTable_21_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_21_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_21_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_21_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel54))
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(yieldTable_22_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_22_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_22_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_22_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel63))
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(yieldTable_23_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_23_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_23_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_23_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel64))
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(yieldTable_24_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_24_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_24_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_24_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel65))
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addGroup(yieldTableScreenLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(yieldTable_25_8_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_25_8_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_25_9_PM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(yieldTable_25_9_AM, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(jLabel66)))
-                    .addGroup(yieldTableScreenLayout.createSequentialGroup()
-                        .addComponent(jLabel36)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(jLabel49)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(jLabel52)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(jLabel67)))
-                .addContainerGap(116, Short.MAX_VALUE))
+                    .addComponent(applyYieldTableButton)
+                    .addComponent(revertYieldTableButton))
+                .addContainerGap())
         );
 
         jTabbedPane1.addTab("Yield Table", yieldTableScreen);
@@ -2738,6 +2370,7 @@ public class MaxTGui extends javax.swing.JFrame
 
     private void exitButtonActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_exitButtonActionPerformed
     {//GEN-HEADEREND:event_exitButtonActionPerformed
+        saveSnapshot();
         System.exit(0);
     }//GEN-LAST:event_exitButtonActionPerformed
 
@@ -2906,7 +2539,7 @@ public class MaxTGui extends javax.swing.JFrame
             Cow cow = (Cow)deleteMilkTakings_CowList.getSelectedValue();
             Map<TimePeriod, MilkTakings> milkTakings = maxT.getMilkTakings(cow);
             TimePeriod session = (TimePeriod)deleteMilkTakings_MilkingSessionList.getSelectedValue();
-            int milkYield = milkTakings.get(session).getMilkYield();
+            int milkYield = milkTakings.get(session).getMilkYieldCentilitres();
             updateYield(deleteMilkTakings_YieldTxt, milkYield);
         }
     }//GEN-LAST:event_deleteMilkTakings_MilkingSessionListValueChanged
@@ -2956,7 +2589,7 @@ public class MaxTGui extends javax.swing.JFrame
             Cow cow = (Cow)updateMilkTakings_CowList.getSelectedValue();
             Map<TimePeriod, MilkTakings> milkTakings = maxT.getMilkTakings(cow);
             TimePeriod session = (TimePeriod)updateMilkTakings_MilkingSessionList.getSelectedValue();
-            int milkYield = milkTakings.get(session).getMilkYield();
+            int milkYield = milkTakings.get(session).getMilkYieldCentilitres();
             updateYield(updateMilkTakings_ExistingYieldTxt, milkYield);
         }
     }//GEN-LAST:event_updateMilkTakings_MilkingSessionListValueChanged
@@ -3042,125 +2675,15 @@ public class MaxTGui extends javax.swing.JFrame
         updateStatDisplay();
     }//GEN-LAST:event_main_FarmListValueChanged
 
-    private void yieldTable_20_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_20_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_20_8_PMFocusLost
-        updateYieldValue(yieldTable_20_8_PM, "20,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_20_8_PMFocusLost
-
-    private void yieldTable_20_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_20_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_20_8_AMFocusLost
-        updateYieldValue(yieldTable_20_8_AM, "20,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_20_8_AMFocusLost
-
-    private void yieldTable_20_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_20_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_20_9_PMFocusLost
-        updateYieldValue(yieldTable_20_9_PM, "20,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_20_9_PMFocusLost
-
-    private void yieldTable_20_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_20_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_20_9_AMFocusLost
-        updateYieldValue(yieldTable_20_9_AM, "20,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_20_9_AMFocusLost
-
-    private void yieldTable_21_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_21_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_21_8_PMFocusLost
-        updateYieldValue(yieldTable_21_8_PM, "21,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_21_8_PMFocusLost
-
-    private void yieldTable_21_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_21_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_21_8_AMFocusLost
-        updateYieldValue(yieldTable_21_8_AM, "21,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_21_8_AMFocusLost
-
-    private void yieldTable_21_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_21_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_21_9_PMFocusLost
-        updateYieldValue(yieldTable_21_9_PM, "21,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_21_9_PMFocusLost
-
-    private void yieldTable_21_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_21_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_21_9_AMFocusLost
-        updateYieldValue(yieldTable_21_9_AM, "21,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_21_9_AMFocusLost
-
-    private void yieldTable_22_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_22_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_22_8_PMFocusLost
-        updateYieldValue(yieldTable_22_8_PM, "22,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_22_8_PMFocusLost
-
-    private void yieldTable_22_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_22_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_22_8_AMFocusLost
-        updateYieldValue(yieldTable_22_8_AM, "22,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_22_8_AMFocusLost
-
-    private void yieldTable_22_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_22_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_22_9_PMFocusLost
-        updateYieldValue(yieldTable_22_9_PM, "22,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_22_9_PMFocusLost
-
-    private void yieldTable_22_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_22_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_22_9_AMFocusLost
-        updateYieldValue(yieldTable_22_9_AM, "22,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_22_9_AMFocusLost
-
-    private void yieldTable_23_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_23_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_23_8_PMFocusLost
-        updateYieldValue(yieldTable_23_8_PM, "23,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_23_8_PMFocusLost
-
-    private void yieldTable_23_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_23_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_23_8_AMFocusLost
-        updateYieldValue(yieldTable_23_8_AM, "23,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_23_8_AMFocusLost
-
-    private void yieldTable_23_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_23_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_23_9_PMFocusLost
-        updateYieldValue(yieldTable_23_9_PM, "23,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_23_9_PMFocusLost
-
-    private void yieldTable_23_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_23_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_23_9_AMFocusLost
-        updateYieldValue(yieldTable_23_9_AM, "23,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_23_9_AMFocusLost
-
-    private void yieldTable_24_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_24_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_24_8_PMFocusLost
-        updateYieldValue(yieldTable_24_8_PM, "24,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_24_8_PMFocusLost
-
-    private void yieldTable_24_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_24_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_24_8_AMFocusLost
-        updateYieldValue(yieldTable_24_8_AM, "24,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_24_8_AMFocusLost
-
-    private void yieldTable_24_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_24_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_24_9_PMFocusLost
-        updateYieldValue(yieldTable_24_9_PM, "24,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_24_9_PMFocusLost
-
-    private void yieldTable_24_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_24_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_24_9_AMFocusLost
-        updateYieldValue(yieldTable_24_9_AM, "24,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_24_9_AMFocusLost
-
-    private void yieldTable_25_8_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_25_8_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_25_8_PMFocusLost
-        updateYieldValue(yieldTable_25_8_PM, "25,(8,16),PM");
-    }//GEN-LAST:event_yieldTable_25_8_PMFocusLost
-
-    private void yieldTable_25_8_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_25_8_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_25_8_AMFocusLost
-        updateYieldValue(yieldTable_25_8_AM, "25,(8,16),AM");
-    }//GEN-LAST:event_yieldTable_25_8_AMFocusLost
-
-    private void yieldTable_25_9_PMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_25_9_PMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_25_9_PMFocusLost
-        updateYieldValue(yieldTable_25_9_PM, "25,(9,15),PM");
-    }//GEN-LAST:event_yieldTable_25_9_PMFocusLost
-
-    private void yieldTable_25_9_AMFocusLost(java.awt.event.FocusEvent evt)//GEN-FIRST:event_yieldTable_25_9_AMFocusLost
-    {//GEN-HEADEREND:event_yieldTable_25_9_AMFocusLost
-        updateYieldValue(yieldTable_25_9_AM, "25,(9,15),AM");
-    }//GEN-LAST:event_yieldTable_25_9_AMFocusLost
+    private void applyYieldTableButtonActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_applyYieldTableButtonActionPerformed
+    {//GEN-HEADEREND:event_applyYieldTableButtonActionPerformed
+        applyYieldTableEdits();
+    }//GEN-LAST:event_applyYieldTableButtonActionPerformed
+
+    private void revertYieldTableButtonActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_revertYieldTableButtonActionPerformed
+    {//GEN-HEADEREND:event_revertYieldTableButtonActionPerformed
+        revertYieldTableEdits();
+    }//GEN-LAST:event_revertYieldTableButtonActionPerformed
 
     /**
      * @param args the command line arguments
@@ -3244,6 +2767,7 @@ public class MaxTGui extends javax.swing.JFrame
     private javax.swing.ButtonGroup addMilkTakings_MilkingSessionGroup;
     private javax.swing.JTextField addMilkTakings_YieldField;
     private javax.swing.JPanel addScreen;
+    private javax.swing.JButton applyYieldTableButton;
     private javax.swing.JPanel bottomPanel;
     private javax.swing.JButton deleteCowButton;
     private javax.swing.JPanel deleteCowScreen;
@@ -3296,7 +2820,6 @@ public class MaxTGui extends javax.swing.JFrame
     private javax.swing.JLabel jLabel33;
     private javax.swing.JLabel jLabel34;
     private javax.swing.JLabel jLabel35;
-    private javax.swing.JLabel jLabel36;
     private javax.swing.JLabel jLabel37;
     private javax.swing.JLabel jLabel38;
     private javax.swing.JLabel jLabel39;
@@ -3310,27 +2833,11 @@ public class MaxTGui extends javax.swing.JFrame
     private javax.swing.JLabel jLabel46;
     private javax.swing.JLabel jLabel47;
     private javax.swing.JLabel jLabel48;
-    private javax.swing.JLabel jLabel49;
     private javax.swing.JLabel jLabel5;
     private javax.swing.JLabel jLabel50;
     private javax.swing.JLabel jLabel51;
-    private javax.swing.JLabel jLabel52;
-    private javax.swing.JLabel jLabel53;
-    private javax.swing.JLabel jLabel54;
     private javax.swing.JLabel jLabel55;
-    private javax.swing.JLabel jLabel56;
-    private javax.swing.JLabel jLabel57;
-    private javax.swing.JLabel jLabel58;
-    private javax.swing.JLabel jLabel59;
     private javax.swing.JLabel jLabel6;
-    private javax.swing.JLabel jLabel60;
-    private javax.swing.JLabel jLabel61;
-    private javax.swing.JLabel jLabel62;
-    private javax.swing.JLabel jLabel63;
-    private javax.swing.JLabel jLabel64;
-    private javax.swing.JLabel jLabel65;
-    private javax.swing.JLabel jLabel66;
-    private javax.swing.JLabel jLabel67;
     private javax.swing.JLabel jLabel68;
     private javax.swing.JLabel jLabel69;
     private javax.swing.JLabel jLabel7;
@@ -3368,6 +2875,7 @@ public class MaxTGui extends javax.swing.JFrame
     private javax.swing.JPanel mainScreen;
     private m256gui.M256JList main_FarmList;
     private javax.swing.JTextArea main_statDisplay;
+    private javax.swing.JButton revertYieldTableButton;
     private javax.swing.JButton updateMilkTakingsButton;
     private javax.swing.JPanel updateMilkTakingsScreen;
     private m256gui.M256JList updateMilkTakings_CowList;
@@ -3377,30 +2885,8 @@ public class MaxTGui extends javax.swing.JFrame
     private m256gui.M256JList updateMilkTakings_MilkingSessionList;
     private javax.swing.JTextField updateMilkTakings_NewYieldField;
     private javax.swing.JPanel updateScreen;
+    private javax.swing.JTable yieldTableGrid;
     private javax.swing.JPanel yieldTableScreen;
-    private javax.swing.JTextField yieldTable_20_8_AM;
-    private javax.swing.JTextField yieldTable_20_8_PM;
-    private javax.swing.JTextField yieldTable_20_9_AM;
-    private javax.swing.JTextField yieldTable_20_9_PM;
-    private javax.swing.JTextField yieldTable_21_8_AM;
-    private javax.swing.JTextField yieldTable_21_8_PM;
-    private javax.swing.JTextField yieldTable_21_9_AM;
-    private javax.swing.JTextField yieldTable_21_9_PM;
-    private javax.swing.JTextField yieldTable_22_8_AM;
-    private javax.swing.JTextField yieldTable_22_8_PM;
-    private javax.swing.JTextField yieldTable_22_9_AM;
-    private javax.swing.JTextField yieldTable_22_9_PM;
-    private javax.swing.JTextField yieldTable_23_8_AM;
-    private javax.swing.JTextField yieldTable_23_8_PM;
-    private javax.swing.JTextField yieldTable_23_9_AM;
-    private javax.swing.JTextField yieldTable_23_9_PM;
-    private javax.swing.JTextField yieldTable_24_8_AM;
-    private javax.swing.JTextField yieldTable_24_8_PM;
-    private javax.swing.JTextField yieldTable_24_9_AM;
-    private javax.swing.JTextField yieldTable_24_9_PM;
-    private javax.swing.JTextField yieldTable_25_8_AM;
-    private javax.swing.JTextField yieldTable_25_8_PM;
-    private javax.swing.JTextField yieldTable_25_9_AM;
-    private javax.swing.JTextField yieldTable_25_9_PM;
+    private javax.swing.JScrollPane yieldTableScrollPane;
     // End of variables declaration//GEN-END:variables
 }
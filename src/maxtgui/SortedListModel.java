@@ -0,0 +1,96 @@
+package maxtgui;
+
+import java.util.*;
+
+/**
+ * A list model over one of the sorted collections held by the coordinating
+ * object, such as the farms or the herds on a farm. Elements are copied from
+ * the collection only when a list first asks for them, and later additions
+ * and deletions are passed on to the lists as single-row changes instead of
+ * replacing the whole list.
+ * @param <E> the type of the elements in the list
+ * @author MYKAR
+ */
+class SortedListModel<E extends Comparable<? super E>> extends javax.swing.AbstractListModel<E>
+{
+    // attributes
+    private final Collection<E> source;  // live view of the coordinator's collection
+    private List<E> elements = null;  // sorted copy, made on first use
+    
+    // constructor
+    
+    /**
+     * Creates a model over the given sorted collection.
+     * @param aSource a collection that iterates in natural order
+     */
+    SortedListModel(Collection<E> aSource)
+    {
+        source = aSource;
+    }
+    
+    // public protocol
+    
+    @Override
+    public int getSize()
+    {
+        return getElements().size();
+    }
+    
+    @Override
+    public E getElementAt(int anIndex)
+    {
+        return getElements().get(anIndex);
+    }
+    
+    // package protocol
+    
+    /**
+     * Inserts the given element at its sorted position and tells the lists
+     * showing this model about the one new row.
+     * @param anElement an element just added to the source collection
+     */
+    void elementAdded(E anElement)
+    {
+        if (elements == null || anElement == null)
+        {
+            return;  // not yet shown; the element is picked up when first loaded
+        }
+        int index = Collections.binarySearch(elements, anElement);
+        if (index < 0)
+        {
+            index = -index - 1;
+            elements.add(index, anElement);
+            fireIntervalAdded(this, index, index);
+        }
+    }
+    
+    /**
+     * Removes the given element and tells the lists showing this model
+     * about the one removed row.
+     * @param anElement an element just deleted from the source collection
+     */
+    void elementRemoved(E anElement)
+    {
+        if (elements == null)
+        {
+            return;
+        }
+        int index = Collections.binarySearch(elements, anElement);
+        if (index >= 0)
+        {
+            elements.remove(index);
+            fireIntervalRemoved(this, index, index);
+        }
+    }
+    
+    // private protocol
+    
+    private List<E> getElements()
+    {
+        if (elements == null)
+        {
+            elements = new ArrayList<>(source);
+        }
+        return elements;
+    }
+}
\ No newline at end of file
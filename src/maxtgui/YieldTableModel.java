@@ -0,0 +1,168 @@
+package maxtgui;
+
+import java.util.*;
+import maxtcore.*;
+import milkingintervals.*;
+import timeperiod.*;
+
+/**
+ * A table model over the Yield Table held by the coordinating object, with
+ * one row per average daily yield and one column per milking interval and
+ * milking session, so every configured row can be edited. Edits are held
+ * back until they are applied together, which changes the Yield Table in one
+ * step instead of once per cell.
+ * @author MYKAR
+ */
+@SuppressWarnings("serial")
+class YieldTableModel extends javax.swing.table.AbstractTableModel
+{
+    // attributes
+    private static final MilkingIntervals[] INTERVALS = MilkingIntervals.values();
+    private static final TimePeriod[] SESSIONS = TimePeriod.values();
+    private static final int CELLS_PER_ROW = INTERVALS.length * SESSIONS.length;
+    private final MaxTCoord maxT;
+    private final List<String> keys;  // map keys in table order, row by row
+    private final Map<String, Integer> pendingValues = new LinkedHashMap<>();  // edits not yet applied
+    
+    // constructor
+    
+    /**
+     * Creates a model over the Yield Table of the given coordinating object.
+     * @param aMaxT the coordinating object
+     */
+    YieldTableModel(MaxTCoord aMaxT)
+    {
+        maxT = aMaxT;
+        keys = new ArrayList<>(aMaxT.getYieldTable().keySet());
+    }
+    
+    // public protocol
+    
+    @Override
+    public int getRowCount()
+    {
+        return keys.size() / CELLS_PER_ROW;
+    }
+    
+    @Override
+    public int getColumnCount()
+    {
+        return CELLS_PER_ROW + 1;
+    }
+    
+    @Override
+    public String getColumnName(int aColumn)
+    {
+        if (aColumn == 0)
+        {
+            return "Yield";
+        }
+        
+        int cell = aColumn - 1;
+        return INTERVALS[cell / SESSIONS.length] + " " + SESSIONS[cell % SESSIONS.length];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int aColumn)
+    {
+        return Integer.class;
+    }
+    
+    @Override
+    public boolean isCellEditable(int aRow, int aColumn)
+    {
+        return aColumn > 0;
+    }
+    
+    @Override
+    public Object getValueAt(int aRow, int aColumn)
+    {
+        if (aColumn == 0)
+        {
+            return maxT.getYieldTableMinYield() + aRow * maxT.getYieldTableStep();
+        }
+        
+        String key = getKey(aRow, aColumn);
+        Integer yieldValue = pendingValues.get(key);
+        if (yieldValue == null)
+        {
+            yieldValue = maxT.getYieldTableValue(key);
+        }
+        return (yieldValue == 0 ? null : yieldValue);  // cells without a value are left blank
+    }
+    
+    @Override
+    public void setValueAt(Object aValue, int aRow, int aColumn)
+    {
+        String key = getKey(aRow, aColumn);
+        int yieldValue = (aValue == null ? 0 : (Integer)aValue);
+        if (yieldValue == maxT.getYieldTableValue(key))
+        {
+            pendingValues.remove(key);  // back to the applied value
+        }
+        else
+        {
+            pendingValues.put(key, yieldValue);
+        }
+        fireTableCellUpdated(aRow, aColumn);
+    }
+    
+    // package protocol
+    
+    /**
+     * Returns the edits not yet applied to the Yield Table.
+     * @return the edited yield values by Yield Table map key
+     */
+    Map<String, Integer> getPendingValues()
+    {
+        return Collections.unmodifiableMap(pendingValues);
+    }
+    
+    /**
+     * Checks if any edits are waiting to be applied.
+     * @return true if a cell has been edited since the last apply or revert
+     */
+    boolean hasPendingValues()
+    {
+        return !pendingValues.isEmpty();
+    }
+    
+    /**
+     * Discards the edits not yet applied and shows the Yield Table values
+     * again.
+     */
+    void clearPendingValues()
+    {
+        pendingValues.clear();
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Shows the new value of the cell identified by the given map key. An
+     * edit waiting for the cell is kept.
+     * @param mapKey the Yield Table map key of the changed cell
+     */
+    void yieldValueChanged(String mapKey)
+    {
+        int index = keys.indexOf(mapKey);
+        if (index >= 0)
+        {
+            fireTableCellUpdated(index / CELLS_PER_ROW, index % CELLS_PER_ROW + 1);
+        }
+    }
+    
+    /**
+     * Shows the new values after several cells of the Yield Table change.
+     */
+    void yieldValuesChanged()
+    {
+        fireTableDataChanged();
+    }
+    
+    // private protocol
+    
+    private String getKey(int aRow, int aColumn)
+    {
+        return keys.get(aRow * CELLS_PER_ROW + aColumn - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+
+package farmingresources;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import edgepolicy.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+/**
+ * Checks MaxT lookups between and beyond the rows of a table under each edge
+ * policy, and that tables are read from files and badly formed files are
+ * refused.
+ * @author Michael Gallichan
+ */
+class MaxTTableTest
+{
+    // class variables
+    private static final MaxTTable TABLE = MaxTTable.getMaxTTable();  // 7 to 16 litres, 04:51 to 08:44
+    
+    // instance variables
+    @TempDir
+    Path directory;
+    
+    @Test
+    void interpolatesBetweenRows()
+    {
+        assertEquals(291, TABLE.getMaxTSeconds(7.0));
+        assertEquals(306, TABLE.getMaxTSeconds(7.5));   // 305.5 rounds up
+        assertEquals(298, TABLE.getMaxTSeconds(7.25));  // 298.25
+        assertEquals(320, TABLE.getMaxTSeconds(8.0));
+        assertEquals(524, TABLE.getMaxTSeconds(16.0));
+        assertEquals(TABLE.getMaxTSeconds(12), TABLE.getMaxTSeconds(12.0));
+    }
+    
+    @Test
+    void givesNoValueBeyondRowsByDefault()
+    {
+        assertEquals(EdgePolicy.NONE, TABLE.getEdgePolicy());
+        assertEquals(MaxTTable.NO_VALUE, TABLE.getMaxTSeconds(6));
+        assertEquals(MaxTTable.NO_VALUE, TABLE.getMaxTSeconds(17));
+        assertEquals(MaxTTable.NO_VALUE, TABLE.getMaxTSeconds(6.99));
+        assertEquals(MaxTTable.NO_VALUE, TABLE.getMaxTSeconds(16.01));
+        assertNull(TABLE.getMaxTValue(17));
+    }
+    
+    @Test
+    void clampsToTheNearestRow()
+    {
+        MaxTTable table = TABLE.withEdgePolicy(EdgePolicy.CLAMP);
+        assertEquals(291, table.getMaxTSeconds(3));
+        assertEquals(524, table.getMaxTSeconds(40));
+        assertEquals(291, table.getMaxTSeconds(6.5));
+        assertEquals(524, table.getMaxTSeconds(16.5));
+        assertEquals(306, table.getMaxTSeconds(7.5));
+    }
+    
+    @Test
+    void extrapolatesTheNearestSlope()
+    {
+        MaxTTable table = TABLE.withEdgePolicy(EdgePolicy.EXTRAPOLATE);
+        assertEquals(262, table.getMaxTSeconds(6));     // 291 - 29
+        assertEquals(547, table.getMaxTSeconds(17));    // 524 + 23
+        assertEquals(277, table.getMaxTSeconds(6.5));   // 276.5 rounds up
+        assertEquals(0, table.getMaxTSeconds(-20.0));   // never below zero
+    }
+    
+    @Test
+    void givesNoValueForYieldsThatAreNotNumbers()
+    {
+        for (EdgePolicy eachPolicy : EdgePolicy.values())
+        {
+            MaxTTable table = TABLE.withEdgePolicy(eachPolicy);
+            assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(Double.NaN), eachPolicy.toString());
+            assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(Double.POSITIVE_INFINITY), eachPolicy.toString());
+            assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(Double.NEGATIVE_INFINITY), eachPolicy.toString());
+        }
+    }
+    
+    @Test
+    void handlesSingleRowTables()
+    {
+        MaxTTable table = new MaxTTable(10, new int[] {300}, EdgePolicy.NONE);
+        assertEquals(10, table.getMinYield());
+        assertEquals(10, table.getMaxYield());
+        assertEquals(300, table.getMaxTSeconds(10));
+        assertEquals(300, table.getMaxTSeconds(10.0));
+        assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(10.5));
+        assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(9.5));
+        
+        for (EdgePolicy eachPolicy : new EdgePolicy[] {EdgePolicy.CLAMP, EdgePolicy.EXTRAPOLATE})
+        {
+            MaxTTable edged = table.withEdgePolicy(eachPolicy);
+            assertEquals(300, edged.getMaxTSeconds(10.5), eachPolicy.toString());
+            assertEquals(300, edged.getMaxTSeconds(9.5), eachPolicy.toString());
+            assertEquals(300, edged.getMaxTSeconds(12), eachPolicy.toString());
+        }
+    }
+    
+    @Test
+    void formatsMinutesAndSeconds()
+    {
+        assertEquals("00:00", MaxTTable.formatMaxT(0));
+        assertEquals("00:59", MaxTTable.formatMaxT(59));
+        assertEquals("04:51", MaxTTable.formatMaxT(291));
+        assertEquals("10:00", MaxTTable.formatMaxT(600));
+        assertEquals("08:44", TABLE.getMaxTValue(16));
+    }
+    
+    @Test
+    void loadsTableSkippingCommentsAndBlankLines() throws IOException
+    {
+        MaxTTable table = MaxTTable.loadMaxTTable(write("# MaxT by yield per milking\n"
+                                                     + "\n"
+                                                     + "12,05:00\n"
+                                                     + "   \n"
+                                                     + " 13 , 05:30 \n"
+                                                     + "# no more rows after this one\n"
+                                                     + "14,6:05\n"));
+        assertEquals(12, table.getMinYield());
+        assertEquals(14, table.getMaxYield());
+        assertEquals(EdgePolicy.NONE, table.getEdgePolicy());
+        assertEquals(300, table.getMaxTSeconds(12));
+        assertEquals(330, table.getMaxTSeconds(13));
+        assertEquals(365, table.getMaxTSeconds(14));
+        assertEquals(MaxTTable.NO_VALUE, table.getMaxTSeconds(15));
+    }
+    
+    @Test
+    void refusesBadlyFormedFiles() throws IOException
+    {
+        assertRefused("7,04:51\n9,05:48\n", "does not follow on");
+        assertRefused("8,05:20\n7,04:51\n", "does not follow on");
+        assertRefused("7 04:51\n", "not in the form");
+        assertRefused("7,04\n", "not in the form");
+        assertRefused("seven,04:51\n", "not in the form");
+        assertRefused("7,04:5x\n", "not in the form");
+        assertRefused("7,04:60\n", "invalid MaxT value");
+        assertRefused("7,-1:00\n", "invalid MaxT value");
+        assertRefused("# only a comment\n\n", "contains no MaxT values");
+    }
+    
+    // private protocol
+    
+    private Path write(String someText) throws IOException
+    {
+        Path file = directory.resolve("maxt.txt");
+        Files.write(file, someText.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+    
+    private void assertRefused(String someText, String aMessagePart) throws IOException
+    {
+        Path file = write(someText);
+        try
+        {
+            MaxTTable.loadMaxTTable(file);
+            fail("The file " + someText.trim() + " was accepted.");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage().contains(aMessagePart), e.getMessage());
+        }
+    }
+}
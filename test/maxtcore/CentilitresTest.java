@@ -0,0 +1,80 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Checks the fixed-point arithmetic on centilitres against BigDecimal, and
+ * that yields are read and written in litres.
+ * @author Michael Gallichan
+ */
+class CentilitresTest
+{
+    // class variables
+    private static final long[] DIVISORS = {1, 2, 3, 4, 7, 100};
+    
+    @Test
+    void divideRoundsAsBigDecimalDoes()
+    {
+        for (RoundingMode eachMode : RoundingMode.values())
+        {
+            if (eachMode == RoundingMode.UNNECESSARY)
+            {
+                continue;
+            }
+            for (long eachDivisor : DIVISORS)
+            {
+                for (long dividend = -250; dividend <= 250; dividend++)
+                {
+                    long expected = BigDecimal.valueOf(dividend)
+                                    .divide(BigDecimal.valueOf(eachDivisor), 0, eachMode).longValueExact();
+                    assertEquals(expected, Centilitres.divide(dividend, eachDivisor, eachMode),
+                                 dividend + " / " + eachDivisor + " " + eachMode);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void unnecessaryRoundingNeedsAnExactQuotient()
+    {
+        assertEquals(-3, Centilitres.divide(-300, 100, RoundingMode.UNNECESSARY));
+        try
+        {
+            Centilitres.divide(2090, 100, RoundingMode.UNNECESSARY);
+            fail("An inexact quotient was not refused.");
+        }
+        catch (ArithmeticException e)
+        {
+            // expected
+        }
+    }
+    
+    @Test
+    void convertsToLitres()
+    {
+        assertEquals(21, Centilitres.toLitres(2090, RoundingMode.HALF_UP));
+        assertEquals(20, Centilitres.toLitres(2090, RoundingMode.DOWN));
+        assertEquals(20, Centilitres.toLitres(2050, RoundingMode.HALF_EVEN));
+        assertEquals(21, Centilitres.toLitres(2150, RoundingMode.HALF_DOWN));
+        assertEquals(2100, Centilitres.fromLitres(21));
+    }
+    
+    @Test
+    void readsAndWritesLitres()
+    {
+        assertEquals(2100, Centilitres.parse("21"));
+        assertEquals(2090, Centilitres.parse("20.9"));
+        assertEquals(2095, Centilitres.parse("20.95"));
+        assertEquals(-1, Centilitres.parse("20.955"));
+        assertEquals(-1, Centilitres.parse("20."));
+        assertEquals(-1, Centilitres.parse(".5"));
+        assertEquals(-1, Centilitres.parse("-1"));
+        assertEquals("21", Centilitres.format(2100));
+        assertEquals("20.9", Centilitres.format(2090));
+        assertEquals("20.05", Centilitres.format(2005));
+        assertEquals("-0.5", Centilitres.format(-50));
+    }
+}
@@ -0,0 +1,108 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import timeperiod.*;
+
+/**
+ * Checks the records CsvImporter adds, the lines it skips and the reasons it
+ * gives for the rows it rejects.
+ * @author Michael Gallichan
+ */
+class CsvImporterTest
+{
+    // class variables
+    private static final String ESTATE = "FARM,F1,Home Farm,North\n"
+                                       + "HERD,F1,H1,Main,8\n"
+                                       + "COW,F1,H1,C1\n"
+                                       + "TAKINGS,F1,H1,C1,AM,10.5\n"
+                                       + "TAKINGS,F1,H1,C1,PM,9.75\n";
+    
+    // instance variables
+    private MaxTCoord maxT;
+    private CsvImporter importer;
+    
+    @BeforeEach
+    void setUp()
+    {
+        maxT = MaxTCoord.getMaxT();
+        importer = new CsvImporter(maxT);
+    }
+    
+    @Test
+    void importsEveryRecordType() throws IOException
+    {
+        ImportReport report = importer.importCsv(new StringReader(ESTATE));
+        
+        assertEquals(1, report.getFarmsAdded());
+        assertEquals(1, report.getHerdsAdded());
+        assertEquals(1, report.getCowsAdded());
+        assertEquals(2, report.getMilkTakingsAdded());
+        assertEquals(0, report.getRowsRejected());
+        Cow cow = maxT.findCow(maxT.findHerd(maxT.findFarm("F1"), "H1"), "C1");
+        assertEquals(1050, maxT.getMilkTakings(cow).get(TimePeriod.AM).getMilkYieldCentilitres());
+        assertEquals(2025, cow.getDailyMilkYieldCentilitres());
+    }
+    
+    @Test
+    void skipsBlankAndCommentLines() throws IOException
+    {
+        String text = "# parlour export\r\n"
+                    + "\r\n"
+                    + "   \r\n"
+                    + "\t\r\n"
+                    + "  # indented comment\r\n"
+                    + ESTATE.replace("\n", "\r\n");
+        
+        ImportReport report = importer.importCsv(new StringReader(text));
+        
+        assertEquals(0, report.getRowsRejected(), report.getRejections().toString());
+        assertEquals(2, report.getMilkTakingsAdded());
+    }
+    
+    @Test
+    void skipsByteOrderMarkInFile(@TempDir Path aDirectory) throws IOException
+    {
+        Path file = aDirectory.resolve("export.csv");
+        Files.write(file, ("\uFEFF" + ESTATE).getBytes(StandardCharsets.UTF_8));
+        
+        ImportReport report = importer.importCsv(file);
+        
+        assertEquals(0, report.getRowsRejected(), report.getRejections().toString());
+        assertEquals(1, report.getFarmsAdded());
+    }
+    
+    @Test
+    void reportsRejectedRowsWithLineNumbers() throws IOException
+    {
+        String text = ESTATE
+                    + "FARM,F1,Again,South\n"            // line 6
+                    + "HERD,F2,H1,Main,8\n"              // line 7
+                    + "HERD,F1,H2,Main,7\n"              // line 8
+                    + "COW,F1,H1\n"                      // line 9
+                    + "TAKINGS,F1,H1,C2,AM,10\n"         // line 10
+                    + "TAKINGS,F1,H1,C1,NOON,10\n"       // line 11
+                    + "TAKINGS,F1,H1,C1,AM,10.555\n"     // line 12
+                    + "TAKINGS,F1,H1,C1,AM,10\n"         // line 13
+                    + "GOAT,F1\n";                       // line 14
+        
+        ImportReport report = importer.importCsv(new StringReader(text));
+        
+        assertEquals(9, report.getRowsRejected());
+        assertEquals("Line 6: Farm ID 'F1' is already in use.", report.getRejections().get(0));
+        assertEquals("Line 7: Farm 'F2' does not exist.", report.getRejections().get(1));
+        assertEquals("Line 8: Milking interval '7' is not 8 or 9.", report.getRejections().get(2));
+        assertEquals("Line 9: COW rows need 4 fields.", report.getRejections().get(3));
+        assertEquals("Line 10: Cow 'C2' does not exist in herd 'H1'.", report.getRejections().get(4));
+        assertEquals("Line 11: Milking session 'NOON' is not AM or PM.", report.getRejections().get(5));
+        assertTrue(report.getRejections().get(6).startsWith("Line 12: Milk yield '10.555'"));
+        assertTrue(report.getRejections().get(7).startsWith("Line 13: Milk takings for cow 'C1'"));
+        assertEquals("Line 14: Record type 'GOAT' is not recognised.", report.getRejections().get(8));
+        assertEquals(2, report.getMilkTakingsAdded());  // the rejected rows changed nothing
+    }
+}
@@ -0,0 +1,362 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import timeperiod.*;
+
+/**
+ * Checks that the running milk yield total of a herd follows every change to
+ * its cows and milk takings, that it keeps track of the cows missing milk
+ * takings and that its window sums slide as each day closes, in object and
+ * compact storage.
+ * @author Michael Gallichan
+ */
+class HerdTest
+{
+    // instance variables
+    private MaxTCoord maxT;
+    private Farm farm;
+    
+    @BeforeEach
+    void setUp()
+    {
+        maxT = MaxTCoord.getMaxT();
+        maxT.addFarm("F1", "Farm", "Here");
+        farm = maxT.findFarm("F1");
+    }
+    
+    @Test
+    void averageFollowsAddedUpdatedAndDeletedTakings()
+    {
+        checkRunningTotal(false);
+    }
+    
+    @Test
+    void compactAverageFollowsAddedUpdatedAndDeletedTakings()
+    {
+        checkRunningTotal(true);
+    }
+    
+    @Test
+    void viewsOfTheSameTakingsStayInStep()
+    {
+        checkTwoViews(false);
+    }
+    
+    @Test
+    void compactViewsOfTheSameTakingsStayInStep()
+    {
+        checkTwoViews(true);
+    }
+    
+    @Test
+    void closingTheDayMovesTakingsIntoHistory()
+    {
+        checkCloseDay(false);
+    }
+    
+    @Test
+    void compactClosingTheDayMovesTakingsIntoHistory()
+    {
+        checkCloseDay(true);
+    }
+    
+    @Test
+    void deletingAReplacedCowKeepsItsReplacement()
+    {
+        Herd herd = addHerd("H1", false);
+        maxT.addCow("C0", herd);
+        Cow replaced = maxT.findCow(herd, "C0");
+        maxT.addMilkTakings(TimePeriod.AM, 10, replaced);
+        maxT.deleteCow(replaced);
+        maxT.addCow("C0", herd);
+        maxT.addMilkTakings(TimePeriod.AM, 12, maxT.findCow(herd, "C0"));
+        
+        maxT.deleteCow(replaced);  // as a parlour still holding the old cow would
+        assertNotNull(maxT.findCow(herd, "C0"));
+        assertEquals(1200, herd.getAvgDailyMilkYieldCentilitres());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+    }
+    
+    @Test
+    void tracksCowsMissingTakings()
+    {
+        checkMissing(false);
+    }
+    
+    @Test
+    void compactTracksCowsMissingTakings()
+    {
+        checkMissing(true);
+    }
+    
+    @Test
+    void windowAverageSlidesAsDaysClose()
+    {
+        checkWindow(false);
+    }
+    
+    @Test
+    void compactWindowAverageSlidesAsDaysClose()
+    {
+        checkWindow(true);
+    }
+    
+    @Test
+    void windowAverageCountsCowDays()
+    {
+        Herd herd = addHerd("H1", false);
+        maxT.setAverageWindow(herd, 2);
+        maxT.addCow("C0", herd);
+        maxT.addCow("C1", herd);
+        maxT.addMilkTakings(TimePeriod.AM, 12, maxT.findCow(herd, "C0"));
+        maxT.addMilkTakings(TimePeriod.AM, 8, maxT.findCow(herd, "C1"));
+        maxT.advanceDay();
+        maxT.deleteCow(maxT.findCow(herd, "C1"));
+        maxT.addMilkTakings(TimePeriod.AM, 14, maxT.findCow(herd, "C0"));
+        maxT.advanceDay();
+        
+        // 20 + 14 litres over 3 cow-days
+        assertEquals(1133, herd.getWindowAvgDailyMilkYieldCentilitres());
+        assertEquals(1400, herd.getAvgDailyMilkYieldCentilitres(1));
+    }
+    
+    @Test
+    void windowNeedsAtLeastOneDay()
+    {
+        Herd herd = addHerd("H1", false);
+        try
+        {
+            maxT.setAverageWindow(herd, 0);
+            fail("A window of no days was accepted.");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        assertEquals(0, herd.getWindowAvgDailyMilkYieldCentilitres());
+    }
+    
+    @Test
+    void emptyHerdAveragesZero()
+    {
+        Herd herd = addHerd("H1", false);
+        
+        assertEquals(0, herd.getAvgDailyMilkYield());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+    }
+    
+    @Test
+    void compactHerdKeepsUnsortedCowsInOrder()
+    {
+        Herd herd = addHerd("H1", true);
+        Random random = new Random(7);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+        {
+            ids.add("C" + i);  // C0, C1, .. C4999, which are not in string order
+        }
+        Collections.shuffle(ids, random);
+        TreeSet<String> expected = new TreeSet<>();
+        for (String eachId : ids)
+        {
+            assertNotNull(maxT.createCow(eachId, herd));
+            expected.add(eachId);
+        }
+        assertNull(maxT.createCow(ids.get(2500), herd));  // still refused once the herd is split up
+        checkOrder(herd, expected);
+        
+        Collections.shuffle(ids, random);
+        for (String eachId : ids.subList(0, 4000))
+        {
+            maxT.deleteCow(maxT.findCow(herd, eachId));
+            expected.remove(eachId);
+        }
+        checkOrder(herd, expected);
+        for (String eachId : ids.subList(0, 1000))
+        {
+            maxT.addCow(eachId + "b", herd);
+            expected.add(eachId + "b");
+        }
+        checkOrder(herd, expected);
+        
+        for (String eachId : new ArrayList<>(expected))  // empties every block
+        {
+            maxT.deleteCow(maxT.findCow(herd, eachId));
+        }
+        expected.clear();
+        checkOrder(herd, expected);
+        maxT.addCow("C1", herd);
+        expected.add("C1");
+        checkOrder(herd, expected);
+    }
+    
+    // private protocol
+    
+    /**
+     * Checks that the herd holds exactly the given cows, finds each of them
+     * and lists them in ID order.
+     */
+    private void checkOrder(Herd aHerd, TreeSet<String> someIds)
+    {
+        assertEquals(someIds.toString(), getIds(maxT.getCows(aHerd)));
+        assertEquals(someIds.toString(), getIds(maxT.getCowsMissingMilkTakings(aHerd, TimePeriod.AM)));
+        assertEquals(someIds.size(), aHerd.getNumberOfCows());
+        for (String eachId : someIds)
+        {
+            assertEquals(eachId, maxT.findCow(aHerd, eachId).getId());
+        }
+        assertNull(maxT.findCow(aHerd, "C"));
+        assertNull(maxT.findCow(aHerd, "D"));
+    }
+    
+    private void checkRunningTotal(boolean isCompact)
+    {
+        Herd herd = addHerd("H1", isCompact);
+        for (int i = 0; i < 4; i++)
+        {
+            maxT.addCow("C" + i, herd);
+            Cow cow = maxT.findCow(herd, "C" + i);
+            maxT.addMilkTakings(TimePeriod.AM, 10 + i, cow);
+            maxT.addMilkTakings(TimePeriod.PM, 10, cow);
+        }
+        // (10 + 11 + 12 + 13) + 4 * 10 = 86 litres over 4 cows
+        assertEquals(2150, herd.getAvgDailyMilkYieldCentilitres());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+        
+        Cow first = maxT.findCow(herd, "C0");
+        maxT.updateMilkTakings(maxT.getMilkTakings(first).get(TimePeriod.AM), 14);
+        assertEquals(2250, herd.getAvgDailyMilkYieldCentilitres());
+        
+        maxT.deleteMilkTakings(TimePeriod.PM, first);
+        assertEquals(2000, herd.getAvgDailyMilkYieldCentilitres());
+        
+        maxT.deleteCow(maxT.findCow(herd, "C3"));
+        assertEquals(1900, herd.getAvgDailyMilkYieldCentilitres());
+        assertEquals(19, herd.getAvgDailyMilkYield());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+    }
+    
+    private void checkTwoViews(boolean isCompact)
+    {
+        Herd herd = addHerd("H1", isCompact);
+        maxT.addCow("C0", herd);
+        Cow cow = maxT.findCow(herd, "C0");
+        maxT.addMilkTakings(TimePeriod.AM, 10, cow);
+        maxT.addMilkTakings(TimePeriod.PM, 10, cow);
+        MilkTakings first = maxT.getMilkTakings(cow).get(TimePeriod.AM);
+        MilkTakings second = maxT.getMilkTakings(cow).get(TimePeriod.AM);
+        
+        maxT.updateMilkTakings(second, 12);
+        maxT.updateMilkTakings(first, 11);
+        assertEquals(1100, first.getMilkYieldCentilitres());
+        assertEquals(1100, second.getMilkYieldCentilitres());
+        assertEquals(2100, herd.getAvgDailyMilkYieldCentilitres());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+    }
+    
+    private void checkCloseDay(boolean isCompact)
+    {
+        Herd herd = addHerd("H1", isCompact);
+        maxT.addCow("C0", herd);
+        maxT.addCow("C1", herd);
+        Cow cow = maxT.findCow(herd, "C0");
+        maxT.addMilkTakings(TimePeriod.AM, 11, cow);
+        maxT.addMilkTakings(TimePeriod.PM, 9, cow);
+        maxT.addMilkTakings(TimePeriod.PM, 8, maxT.findCow(herd, "C1"));
+        
+        maxT.advanceDay();
+        assertTrue(maxT.getMilkTakings(cow).isEmpty());
+        assertEquals(2, maxT.getCowsMissingMilkTakings(herd, TimePeriod.AM).size());
+        assertEquals(2, maxT.getCowsMissingMilkTakings(herd, TimePeriod.PM).size());
+        assertEquals(2000, cow.getAvgDailyMilkYieldCentilitres(1));
+        assertEquals(800, maxT.findCow(herd, "C1").getAvgDailyMilkYieldCentilitres(1));
+        assertEquals(0, herd.getAvgDailyMilkYieldCentilitres());
+        assertTrue(maxT.isHerdAggregateConsistent(herd));
+    }
+    
+    private void checkMissing(boolean isCompact)
+    {
+        Herd herd = addHerd("H1", isCompact);
+        assertTrue(maxT.isHerdMilkingDataComplete(herd));  // no cows, so none missing
+        for (String eachId : new String[] {"C2", "C0", "C1"})
+        {
+            maxT.addCow(eachId, herd);
+        }
+        assertFalse(maxT.isHerdMilkingDataComplete(herd));
+        assertEquals("[C0, C1, C2]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.AM)));
+        
+        for (Cow eachCow : maxT.getCows(herd))
+        {
+            maxT.addMilkTakings(TimePeriod.AM, 10, eachCow);
+        }
+        maxT.addMilkTakings(TimePeriod.PM, 10, maxT.findCow(herd, "C1"));
+        assertEquals("[]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.AM)));
+        assertEquals("[C0, C2]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.PM)));
+        
+        maxT.deleteMilkTakings(TimePeriod.AM, maxT.findCow(herd, "C1"));
+        assertEquals("[C1]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.AM)));
+        maxT.deleteCow(maxT.findCow(herd, "C2"));
+        assertEquals("[C0]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.PM)));
+        
+        maxT.addMilkTakings(TimePeriod.AM, 10, maxT.findCow(herd, "C1"));
+        maxT.addMilkTakings(TimePeriod.PM, 10, maxT.findCow(herd, "C0"));
+        assertTrue(maxT.isHerdMilkingDataComplete(herd));
+        assertTrue(maxT.getCowsMissingMilkTakings(herd, TimePeriod.AM).isEmpty());
+        
+        maxT.addCow("C3", herd);
+        assertFalse(maxT.isHerdMilkingDataComplete(herd));
+        assertEquals("[C3]", getIds(maxT.getCowsMissingMilkTakings(herd, TimePeriod.PM)));
+    }
+    
+    private String getIds(Collection<Cow> someCows)
+    {
+        List<String> ids = new ArrayList<>();
+        for (Cow eachCow : someCows)
+        {
+            ids.add(eachCow.getId());
+        }
+        return ids.toString();
+    }
+    
+    private void checkWindow(boolean isCompact)
+    {
+        Herd herd = addHerd("H1", isCompact);
+        maxT.setAverageWindow(herd, 3);
+        maxT.addCow("C0", herd);
+        maxT.addCow("C1", herd);
+        for (int day = 0; day < 5; day++)
+        {
+            for (Cow eachCow : maxT.getCows(herd))
+            {
+                maxT.addMilkTakings(TimePeriod.AM, 5 + day, eachCow);
+                maxT.addMilkTakings(TimePeriod.PM, 5 + day, eachCow);
+            }
+            maxT.advanceDay();
+            if (day == 1)
+            {
+                assertEquals(1100, herd.getWindowAvgDailyMilkYieldCentilitres());  // fewer days than the window
+            }
+        }
+        // each cow gave 10, 12, 14, 16 and 18 litres; the window holds the last three days
+        assertEquals(1600, herd.getWindowAvgDailyMilkYieldCentilitres());
+        assertEquals(1600, herd.getAvgDailyMilkYieldCentilitres(3));
+        assertEquals(1500, herd.getAvgDailyMilkYieldCentilitres(4));
+        assertEquals(maxT.getAvgYieldPerCow(herd, TimePeriod.AM, 3), maxT.getWindowAvgYieldPerCow(herd, TimePeriod.AM));
+        
+        maxT.setAverageWindow(herd, 2);
+        assertEquals(1700, herd.getWindowAvgDailyMilkYieldCentilitres());
+        maxT.setAverageWindow(herd, 30);
+        assertEquals(1400, herd.getWindowAvgDailyMilkYieldCentilitres());
+    }
+    
+    private Herd addHerd(String anId, boolean isCompact)
+    {
+        maxT.setCompactHerds(isCompact);
+        maxT.addHerd(anId, "Herd", MilkingIntervals.EIGHT, farm);
+        return maxT.findHerd(farm, anId);
+    }
+}
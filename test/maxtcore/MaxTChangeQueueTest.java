@@ -0,0 +1,165 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
+import changetype.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import timeperiod.*;
+
+/**
+ * Checks that a change queue merges repeated updates, including updates to
+ * the same cow of a compact herd, until an addition or deletion is queued,
+ * and reports everything waiting once per run of its executor.
+ * @author Michael Gallichan
+ */
+class MaxTChangeQueueTest
+{
+    // instance variables
+    private final List<Runnable> scheduled = new ArrayList<>();  // runs waiting on the executor
+    private final List<List<MaxTChange>> reports = new ArrayList<>();
+    private Executor executor;
+    private MaxTListener listener;
+    private MaxTChangeQueue queue;
+    private Farm farm;
+    private Herd herd;
+    private Cow cow;
+    
+    @BeforeEach
+    void setUp()
+    {
+        executor = new Executor()
+        {
+            @Override
+            public void execute(Runnable aTask)
+            {
+                scheduled.add(aTask);
+            }
+        };
+        listener = new MaxTListener()
+        {
+            @Override
+            public void maxTChanged(List<MaxTChange> someChanges)
+            {
+                reports.add(new ArrayList<>(someChanges));
+            }
+        };
+        queue = new MaxTChangeQueue(listener, executor);
+        
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.addFarm("F1", "Home Farm", "North");
+        farm = maxT.findFarm("F1");
+        maxT.addHerd("H1", "Main", MilkingIntervals.EIGHT, farm);
+        herd = maxT.findHerd(farm, "H1");
+        maxT.addCow("C1", herd);
+        cow = maxT.findCow(herd, "C1");
+    }
+    
+    @Test
+    void mergesRepeatedUpdates()
+    {
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.PM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.PM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        runScheduled();
+        
+        assertEquals(1, reports.size());
+        assertEquals(Arrays.asList(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM),
+                                   change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.PM)),
+                     reports.get(0));
+    }
+    
+    @Test
+    void stopsMergingAfterAnAdditionOrDeletion()
+    {
+        queue.add(change(ChangeType.MILK_TAKINGS_ADDED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_DELETED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_ADDED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        runScheduled();
+        
+        // the updates either side of the deletion are both kept, in order
+        assertEquals(Arrays.asList(change(ChangeType.MILK_TAKINGS_ADDED, TimePeriod.AM),
+                                   change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM),
+                                   change(ChangeType.MILK_TAKINGS_DELETED, TimePeriod.AM),
+                                   change(ChangeType.MILK_TAKINGS_ADDED, TimePeriod.AM),
+                                   change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM)),
+                     reports.get(0));
+    }
+    
+    @Test
+    void reportsOncePerRun()
+    {
+        queue.add(change(ChangeType.MILK_TAKINGS_ADDED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(new MaxTChange(ChangeType.YIELD_VALUE_UPDATED, null, null, null, null, "20,(8,16),AM"));
+        assertEquals(1, scheduled.size());
+        
+        runScheduled();
+        assertEquals(1, reports.size());
+        assertEquals(3, reports.get(0).size());
+        
+        // an update merged before the last run is reported again after it
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        queue.add(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM));
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(2, reports.size());
+        assertEquals(Collections.singletonList(change(ChangeType.MILK_TAKINGS_UPDATED, TimePeriod.AM)),
+                     reports.get(1));
+        
+        // a run with nothing waiting reports nothing
+        queue.run();
+        assertEquals(2, reports.size());
+    }
+    
+    @Test
+    void mergesUpdatesToCompactCows()
+    {
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.setCompactHerds(true);
+        maxT.addFarm("F1", "Home Farm", "North");
+        Farm compactFarm = maxT.findFarm("F1");
+        maxT.addHerd("H1", "Compact", MilkingIntervals.EIGHT, compactFarm);
+        Herd compactHerd = maxT.findHerd(compactFarm, "H1");
+        maxT.addCow("C1", compactHerd);
+        maxT.addMilkTakingsCentilitres(TimePeriod.AM, 1000, maxT.findCow(compactHerd, "C1"));
+        maxT.addMaxTListener(listener, executor);
+        
+        for (int i = 1; i <= 3; i++)
+        {
+            Cow compactCow = maxT.findCow(compactHerd, "C1");  // a new view each time
+            maxT.updateMilkTakingsCentilitres(maxT.getMilkTakings(compactCow).get(TimePeriod.AM), 1000 + i);
+        }
+        runScheduled();
+        
+        assertEquals(1, reports.size());
+        assertEquals(1, reports.get(0).size());
+        assertEquals(ChangeType.MILK_TAKINGS_UPDATED, reports.get(0).get(0).getChangeType());
+        assertEquals("C1", reports.get(0).get(0).getCow().getId());
+    }
+    
+    // private protocol
+    
+    private MaxTChange change(ChangeType aChangeType, TimePeriod aMilkingSession)
+    {
+        return new MaxTChange(aChangeType, farm, herd, cow, aMilkingSession, null);
+    }
+    
+    private void runScheduled()
+    {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable eachTask : tasks)
+        {
+            eachTask.run();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import timeperiod.*;
+
+/**
+ * Hammers one journalled coordinating object from many threads at once:
+ * parlour threads add and delete cows and milk takings and update takings
+ * in object and compact herds, while other threads advance the day, compact
+ * the journal and read reports with aggregate checking on. Afterwards every
+ * herd total must match its cows and the journal must replay to the same
+ * state.
+ * @author Michael Gallichan
+ */
+class MaxTCoordStressTest
+{
+    // class variables
+    private static final int NUMBER_OF_FARMS = 2;
+    private static final int HERDS_PER_FARM = 4;  // alternately object and compact
+    private static final int COWS_PER_HERD = 30;  // IDs the parlours pick from
+    private static final int NUMBER_OF_PARLOURS = 8;
+    private static final int CHANGES_PER_PARLOUR = 4000;
+    private static final int NUMBER_OF_DAYS = 20;
+    private static final int NUMBER_OF_COMPACTIONS = 10;
+    private static final long COMPACTION_THRESHOLD = 16 * 1024;  // bytes, so background compactions happen too
+    
+    // instance variables
+    @TempDir
+    Path directory;
+    private MaxTCoord maxT;
+    private List<Herd> herds;
+    private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    private volatile boolean isRunning = true;
+    
+    @Test
+    @Timeout(120)
+    void keepsAggregatesAndJournalConsistent() throws Exception
+    {
+        Path snapshotFile = directory.resolve("maxt.snapshot");
+        Path journalFile = directory.resolve("maxt.journal");
+        maxT = MaxTJournal.open(snapshotFile, journalFile);
+        maxT.getJournal().setCompactionThreshold(COMPACTION_THRESHOLD);
+        maxT.setCheckingAggregates(true);
+        herds = addHerds();
+        
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_PARLOURS; i++)
+        {
+            writers.add(startParlour(i));
+        }
+        writers.add(startDayAdvancer());
+        writers.add(startCompactor());
+        Thread reader = startReader();
+        for (Thread eachWriter : writers)
+        {
+            eachWriter.join();
+        }
+        isRunning = false;
+        reader.join();
+        
+        assertTrue(failures.isEmpty(), "Unexpected failures: " + failures);
+        for (Herd eachHerd : herds)
+        {
+            assertTrue(maxT.isHerdAggregateConsistent(eachHerd), "Herd " + eachHerd.getId() + " drifted");
+        }
+        assertTrue(maxT.getJournalGeneration() > 0);
+        String expected = MaxTJournalTest.describe(maxT);
+        maxT.getJournal().close();
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, MaxTJournalTest.describe(replayed));
+        for (Farm eachFarm : replayed.getFarms())
+        {
+            for (Herd eachHerd : replayed.getHerds(eachFarm))
+            {
+                assertTrue(replayed.isHerdAggregateConsistent(eachHerd));
+            }
+        }
+        replayed.getJournal().close();
+    }
+    
+    // private protocol
+    
+    private List<Herd> addHerds()
+    {
+        List<Herd> someHerds = new ArrayList<>();
+        for (int f = 0; f < NUMBER_OF_FARMS; f++)
+        {
+            maxT.addFarm("F" + f, "Farm " + f, "Here");
+            Farm farm = maxT.findFarm("F" + f);
+            for (int h = 0; h < HERDS_PER_FARM; h++)
+            {
+                maxT.setCompactHerds(h % 2 == 1);
+                maxT.addHerd("H" + h, "Herd " + h, MilkingIntervals.EIGHT, farm);
+                someHerds.add(maxT.findHerd(farm, "H" + h));
+            }
+        }
+        return someHerds;
+    }
+    
+    /**
+     * Starts a thread making random changes to random herds, as a parlour
+     * station feeding takings would, with deletions mixed in.
+     */
+    private Thread startParlour(final int aSeed)
+    {
+        return start("parlour " + aSeed, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Random random = new Random(aSeed);
+                for (int i = 0; i < CHANGES_PER_PARLOUR; i++)
+                {
+                    Herd herd = herds.get(random.nextInt(herds.size()));
+                    String cowId = "C" + random.nextInt(COWS_PER_HERD);
+                    TimePeriod session = random.nextBoolean() ? TimePeriod.AM : TimePeriod.PM;
+                    int milkYield = 500 + random.nextInt(1500);
+                    makeChange(random.nextInt(10), herd, cowId, session, milkYield);
+                }
+            }
+        });
+    }
+    
+    private void makeChange(int aChoice, Herd aHerd, String aCowId, TimePeriod aMilkingSession, int aMilkYield)
+    {
+        Cow cow = maxT.findCow(aHerd, aCowId);
+        try
+        {
+            if (cow == null || aChoice == 0)
+            {
+                maxT.addCow(aCowId, aHerd);
+            }
+            else if (aChoice == 1)
+            {
+                maxT.deleteCow(cow);
+            }
+            else if (aChoice == 2)
+            {
+                maxT.deleteMilkTakings(aMilkingSession, cow);
+            }
+            else if (aChoice < 6)
+            {
+                maxT.addMilkTakingsCentilitres(aMilkingSession, aMilkYield, cow);
+            }
+            else
+            {
+                MilkTakings takings = maxT.getMilkTakings(cow).get(aMilkingSession);
+                if (takings != null)
+                {
+                    maxT.updateMilkTakingsCentilitres(takings, aMilkYield);
+                }
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            // the cow or takings exist already, or the cow was deleted by another parlour
+        }
+    }
+    
+    private Thread startDayAdvancer()
+    {
+        return start("day advancer", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < NUMBER_OF_DAYS; i++)
+                {
+                    pause();
+                    maxT.advanceDay();
+                }
+            }
+        });
+    }
+    
+    private Thread startCompactor()
+    {
+        return start("compactor", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < NUMBER_OF_COMPACTIONS; i++)
+                {
+                    pause();
+                    try
+                    {
+                        maxT.getJournal().compact();
+                    }
+                    catch (IOException e)
+                    {
+                        failures.add(e);
+                    }
+                }
+            }
+        });
+    }
+    
+    /**
+     * Starts a thread reading reports and averages until the writers have
+     * finished. Aggregate checking makes a drifted herd fail the report.
+     */
+    private Thread startReader()
+    {
+        return start("reader", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (isRunning)
+                {
+                    maxT.getReport();
+                    for (Herd eachHerd : herds)
+                    {
+                        maxT.getMaxTSeconds(eachHerd, TimePeriod.AM);
+                        maxT.getCowsMissingMilkTakings(eachHerd, TimePeriod.PM);
+                    }
+                }
+            }
+        });
+    }
+    
+    private void pause()
+    {
+        try
+        {
+            Thread.sleep(5);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Thread start(String aName, final Runnable aTask)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    aTask.run();
+                }
+                catch (Throwable e)
+                {
+                    failures.add(e);
+                }
+            }
+        }, aName);
+        thread.start();
+        return thread;
+    }
+}
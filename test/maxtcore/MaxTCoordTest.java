@@ -0,0 +1,447 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import changetype.*;
+import edgepolicy.*;
+import farmingresources.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import timeperiod.*;
+
+/**
+ * Checks that the Yield Table is edited as one batch: one change for
+ * listeners, nothing changed when any value is refused, and one journal
+ * record that replays to the same table. Also checks that herd averages are
+ * rounded only once on their way to a Yield Table row, that negative milk
+ * yields are refused, and that every herd MaxT lookup is counted as a cache
+ * hit or miss and never gives a value left behind by a change.
+ * @author Michael Gallichan
+ */
+class MaxTCoordTest
+{
+    // class variables
+    private static final String KEY = "20,(8,16),AM";  // the cell of a herd averaging 20 litres
+    
+    // instance variables
+    @TempDir
+    Path directory;
+    private MaxTCoord maxT;
+    private final List<MaxTChange> changes = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp()
+    {
+        maxT = MaxTCoord.getMaxT();
+        listen(maxT);
+    }
+    
+    @Test
+    void batchUpdateNotifiesOnce()
+    {
+        Map<String, Integer> values = new HashMap<>();
+        values.put("20,(8,16),AM", 11);
+        values.put("21,(9,15),PM", 12);
+        values.put("25,(8,16),PM", 13);
+        maxT.updateYieldValues(values);
+        
+        assertEquals(1, changes.size());
+        assertEquals(ChangeType.YIELD_TABLE_UPDATED, changes.get(0).getChangeType());
+        assertEquals(11, maxT.getYieldTableValue("20,(8,16),AM"));
+        assertEquals(12, maxT.getYieldTableValue("21,(9,15),PM"));
+        assertEquals(13, maxT.getYieldTableValue("25,(8,16),PM"));
+        
+        maxT.updateYieldValues(values);  // nothing changes, so nobody is told
+        assertEquals(1, changes.size());
+    }
+    
+    @Test
+    void replaceLeavesOtherCellsEmpty()
+    {
+        maxT.updateYieldValue("22,(8,16),AM", 9);
+        maxT.replaceYieldValues(Collections.singletonMap("20,(8,16),AM", 11));
+        
+        assertEquals(11, maxT.getYieldTableValue("20,(8,16),AM"));
+        assertEquals(0, maxT.getYieldTableValue("22,(8,16),AM"));
+        assertEquals(maxT.getYieldTable().size() - 1, maxT.getMissingYieldCellKeys().size());
+    }
+    
+    @Test
+    void refusedBatchChangesNothing()
+    {
+        maxT.updateYieldValue("20,(8,16),AM", 9);
+        Map<String, Integer> before = new HashMap<>(maxT.getYieldTable());
+        changes.clear();
+        
+        assertRefused(batch("21,(8,16),AM", 10, "30,(8,16),AM", 11));  // no such row
+        assertRefused(batch("21,(8,16),AM", 10, "20,(8,16),AM", -1));
+        assertRefused(batch("21,(8,16),AM", 10, "20,(8,16),AM", null));
+        try
+        {
+            maxT.updateYieldValue("20,(8,16),AM", -5);
+            fail("A negative yield value was accepted.");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        
+        assertEquals(before, maxT.getYieldTable());
+        assertTrue(changes.isEmpty());
+    }
+    
+    @Test
+    void batchReplaysFromTheJournal() throws IOException
+    {
+        Path snapshotFile = directory.resolve("maxt.snapshot");
+        Path journalFile = directory.resolve("maxt.journal");
+        MaxTCoord journalled = MaxTJournal.open(snapshotFile, journalFile);
+        journalled.updateYieldValues(batch("20,(8,16),AM", 11, "24,(9,15),PM", 12));
+        journalled.replaceYieldValues(batch("21,(8,16),AM", 13, "24,(9,15),PM", 14));
+        Map<String, Integer> expected = new HashMap<>(journalled.getYieldTable());
+        journalled.getJournal().close();
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, replayed.getYieldTable());
+        assertEquals(0, replayed.getYieldTableValue("20,(8,16),AM"));
+        replayed.getJournal().close();
+    }
+    
+    @Test
+    void roundsAverageYieldOnce()
+    {
+        maxT.updateYieldValues(batch("20,(8,16),AM", 20, "21,(8,16),AM", 21));
+        maxT.addFarm("F1", "Home Farm", "North");
+        
+        Herd herd = addHerd("H1", 2049, 2050);  // 20.495 litres, which is 20.50 to the centilitre
+        assertEquals(2050, herd.getAvgDailyMilkYieldCentilitres());
+        assertEquals(20, herd.getAvgDailyMilkYield());
+        assertEquals(20, maxT.getAvgYieldPerCow(herd, TimePeriod.AM));
+        maxT.advanceDay();
+        assertEquals(20, herd.getAvgDailyMilkYield(1));
+        assertEquals(20, herd.getWindowAvgDailyMilkYield());
+        assertEquals(20, maxT.getAvgYieldPerCow(herd, TimePeriod.AM, 1));
+        assertEquals(20, maxT.getWindowAvgYieldPerCow(herd, TimePeriod.AM));
+        
+        maxT.setYieldRounding(RoundingMode.FLOOR);
+        Herd other = addHerd("H2", 2100, 2100, 2099);  // 20.9967 litres, which is 21.00 to the centilitre
+        assertEquals(20, other.getAvgDailyMilkYield(RoundingMode.FLOOR));
+        assertEquals(20, maxT.getAvgYieldPerCow(other, TimePeriod.AM));
+        maxT.advanceDay();
+        assertEquals(20, maxT.getAvgYieldPerCow(other, TimePeriod.AM, 1));
+        assertEquals(20, maxT.getWindowAvgYieldPerCow(other, TimePeriod.AM));
+        
+        maxT.setYieldRounding(RoundingMode.CEILING);
+        assertEquals(21, maxT.getAvgYieldPerCow(other, TimePeriod.AM, 1));
+        assertEquals(21, maxT.getWindowAvgYieldPerCow(other, TimePeriod.AM));
+    }
+    
+    @Test
+    void refusesNegativeMilkYields()
+    {
+        maxT.addFarm("F1", "Home Farm", "North");
+        Herd objectHerd = addHerd("H1", 1000);
+        maxT.setCompactHerds(true);
+        Herd compactHerd = addHerd("H2", 1000);
+        changes.clear();
+        
+        for (Herd eachHerd : new Herd[] {objectHerd, compactHerd})
+        {
+            Cow cow = maxT.findCow(eachHerd, "C0");
+            MilkTakings milkTakings = maxT.getMilkTakings(cow).get(TimePeriod.AM);
+            assertNegativeRefused(TimePeriod.PM, -1, cow, null);
+            assertNegativeRefused(TimePeriod.PM, -250, cow, null);
+            assertNegativeRefused(null, -1, cow, milkTakings);
+            assertNegativeRefused(null, Integer.MIN_VALUE, cow, milkTakings);
+            
+            assertNull(maxT.getMilkTakings(cow).get(TimePeriod.PM));
+            assertEquals(1000, maxT.getMilkTakings(cow).get(TimePeriod.AM).getMilkYieldCentilitres());
+            assertEquals(1000, eachHerd.getAvgDailyMilkYieldCentilitres());
+            assertTrue(eachHerd.isTotalMilkYieldConsistent());
+            assertEquals(1, eachHerd.getNumberOfCowsMissing(TimePeriod.PM));
+        }
+        assertTrue(changes.isEmpty());
+    }
+    
+    @Test
+    void countsEveryHerdLookup()
+    {
+        maxT.updateYieldValue(KEY, 8);
+        maxT.addFarm("F1", "Home Farm", "North");
+        Herd herd = addHerd("H1", 2000);
+        awaitLookupRebuild();
+        long hits = maxT.getMaxTCacheHits();
+        long misses = maxT.getMaxTCacheMisses();
+        
+        // answered from the value worked out for every cell
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals("05:20", maxT.getMaxTValue(herd, TimePeriod.AM));
+            assertEquals(320, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+        }
+        assertEquals(hits + 6, maxT.getMaxTCacheHits());
+        assertEquals(misses, maxT.getMaxTCacheMisses());
+        
+        // a cell changed directly is found in the MaxT Table once
+        setCellValue(KEY, 7);
+        assertEquals("04:51", maxT.getMaxTValue(herd, TimePeriod.AM));
+        assertEquals(misses + 1, maxT.getMaxTCacheMisses());
+        assertEquals(291, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+        assertEquals(hits + 7, maxT.getMaxTCacheHits());
+        assertEquals(misses + 1, maxT.getMaxTCacheMisses());
+    }
+    
+    @Test
+    void servesNoStaleValuesAfterACellUpdate()
+    {
+        maxT.addFarm("F1", "Home Farm", "North");
+        Herd herd = addHerd("H1", 2000);
+        for (int i = 0; i < 100; i++)
+        {
+            maxT.updateYieldValue(KEY, 6 + i % 12);  // some values are outside the MaxT Table
+            assertCurrentMaxT(herd);
+            if (i % 10 == 0)
+            {
+                awaitLookupRebuild();
+                assertCurrentMaxT(herd);
+            }
+        }
+    }
+    
+    @Test
+    void servesNoStaleValuesAfterANewMaxTTable()
+    {
+        maxT.updateYieldValue(KEY, 20);
+        maxT.addFarm("F1", "Home Farm", "North");
+        Herd herd = addHerd("H1", 2000);
+        MaxTTable table = maxT.getMaxTTable();
+        MaxTTable clamped = table.withEdgePolicy(EdgePolicy.CLAMP);
+        awaitLookupRebuild();
+        assertNull(maxT.getMaxTValue(herd, TimePeriod.AM));
+        
+        for (int i = 0; i < 50; i++)
+        {
+            maxT.setMaxTTable(clamped);
+            assertEquals("08:44", maxT.getMaxTValue(herd, TimePeriod.AM));
+            assertEquals(524, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+            maxT.setMaxTTable(table);
+            assertNull(maxT.getMaxTValue(herd, TimePeriod.AM));
+            assertEquals(MaxTTable.NO_VALUE, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+        }
+        maxT.setMaxTTable(clamped);
+        awaitLookupRebuild();
+        assertEquals("08:44", maxT.getMaxTValue(herd, TimePeriod.AM));
+    }
+    
+    @Test
+    void servesNoStaleValuesAfterCellsChangeDirectly()
+    {
+        maxT.addFarm("F1", "Home Farm", "North");
+        Herd herd = addHerd("H1", 2000);
+        YieldTable yieldTable = maxT.getLinkedYieldTable();
+        for (int i = 0; i < 100; i++)
+        {
+            if (i % 2 == 0)
+            {
+                setCellValue(KEY, 6 + i % 12);  // as loading a snapshot or replaying a batch does
+            }
+            else
+            {
+                yieldTable.setCellValue(yieldTable.getCellIndex(KEY), 6 + i % 12);  // as replaying one cell does
+            }
+            assertCurrentMaxT(herd);
+            if (i % 10 == 0)
+            {
+                awaitLookupRebuild();
+                assertCurrentMaxT(herd);
+            }
+        }
+    }
+    
+    @Test
+    void servesNoStaleValuesAfterReplayOrLoad() throws IOException
+    {
+        Path snapshotFile = directory.resolve("maxt.snapshot");
+        Path journalFile = directory.resolve("maxt.journal");
+        MaxTCoord journalled = MaxTJournal.open(snapshotFile, journalFile);
+        journalled.addFarm("F1", "Home Farm", "North");
+        Farm farm = journalled.findFarm("F1");
+        journalled.addHerd("H1", "Main", MilkingIntervals.EIGHT, farm);
+        Herd herd = journalled.findHerd(farm, "H1");
+        journalled.addCow("C1", herd);
+        journalled.addMilkTakingsCentilitres(TimePeriod.AM, 2000, journalled.findCow(herd, "C1"));
+        journalled.updateYieldValue(KEY, 8);
+        journalled.updateYieldValues(batch(KEY, 9, "21,(8,16),AM", 10));
+        journalled.updateYieldValue(KEY, 16);
+        assertEquals("08:44", journalled.getMaxTValue(herd, TimePeriod.AM));
+        journalled.getJournal().close();
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals("08:44", replayed.getMaxTValue(getHerd(replayed), TimePeriod.AM));
+        MaxTSnapshot.save(replayed, snapshotFile);
+        replayed.getJournal().close();
+        
+        MaxTCoord loaded = MaxTSnapshot.load(snapshotFile);
+        assertEquals("08:44", loaded.getMaxTValue(getHerd(loaded), TimePeriod.AM));
+        assertEquals(524, loaded.getMaxTSeconds(getHerd(loaded), TimePeriod.AM));
+    }
+    
+    @Test
+    void servesTheRebuiltLookupOnlyWhileCurrent() throws InterruptedException
+    {
+        maxT.addFarm("F1", "Home Farm", "North");
+        final Herd herd = addHerd("H1", 2000);
+        maxT.updateYieldValue(KEY, 16);
+        Thread updater = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < 2000; i++)
+                {
+                    maxT.updateYieldValue(KEY, 7 + i % 10);  // starts a rebuild after each change
+                }
+            }
+        };
+        updater.start();
+        while (updater.isAlive())
+        {
+            assertNotEquals(MaxTTable.NO_VALUE, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+        }
+        updater.join();
+        
+        // a rebuild started before the last change is never served after it
+        assertEquals("08:44", maxT.getMaxTValue(herd, TimePeriod.AM));
+        awaitLookupRebuild();
+        long misses = maxT.getMaxTCacheMisses();
+        assertEquals("08:44", maxT.getMaxTValue(herd, TimePeriod.AM));
+        assertEquals(524, maxT.getMaxTSeconds(herd, TimePeriod.AM));
+        assertEquals(misses, maxT.getMaxTCacheMisses());
+    }
+    
+    // private protocol
+    
+    /**
+     * Checks that the MaxT value given for the AM session of the given herd
+     * is the one in the MaxT Table for its current Yield Table value.
+     */
+    private void assertCurrentMaxT(Herd aHerd)
+    {
+        int avgYieldPerCow = maxT.getAvgYieldPerCow(aHerd, TimePeriod.AM);
+        assertEquals(maxT.getMaxTValue(avgYieldPerCow), maxT.getMaxTValue(aHerd, TimePeriod.AM));
+        assertEquals(maxT.getMaxTSeconds(avgYieldPerCow), maxT.getMaxTSeconds(aHerd, TimePeriod.AM));
+    }
+    
+    /**
+     * Adds a herd to the farm F1 with one cow for each of the given AM milk
+     * yields in centilitres.
+     */
+    private Herd addHerd(String aHerdId, int... someMilkYields)
+    {
+        Farm farm = maxT.findFarm("F1");
+        maxT.addHerd(aHerdId, aHerdId, MilkingIntervals.EIGHT, farm);
+        Herd herd = maxT.findHerd(farm, aHerdId);
+        for (int i = 0; i < someMilkYields.length; i++)
+        {
+            maxT.addCow("C" + i, herd);
+            maxT.addMilkTakingsCentilitres(TimePeriod.AM, someMilkYields[i], maxT.findCow(herd, "C" + i));
+        }
+        return herd;
+    }
+    
+    private void listen(MaxTCoord aMaxT)
+    {
+        aMaxT.addMaxTListener(new MaxTListener()
+        {
+            @Override
+            public void maxTChanged(List<MaxTChange> someChanges)
+            {
+                changes.addAll(someChanges);
+            }
+        }, new Executor()
+        {
+            @Override
+            public void execute(Runnable aTask)
+            {
+                aTask.run();  // tell the listener at once, on the changing thread
+            }
+        });
+    }
+    
+    private static Herd getHerd(MaxTCoord aMaxT)
+    {
+        return aMaxT.findHerd(aMaxT.findFarm("F1"), "H1");
+    }
+    
+    /**
+     * Changes a Yield Table cell without telling the receiver, as replaying
+     * a journal or loading a snapshot does.
+     */
+    private void setCellValue(String mapKey, int aYieldValue)
+    {
+        YieldTable yieldTable = maxT.getLinkedYieldTable();
+        int[] values = yieldTable.getCellValues().clone();
+        values[yieldTable.getCellIndex(mapKey)] = aYieldValue;
+        yieldTable.setCellValues(values);
+    }
+    
+    /**
+     * Waits for any MaxT lookup being built in the background to be
+     * published.
+     */
+    private static void awaitLookupRebuild()
+    {
+        assertTrue(ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+    
+    private Map<String, Integer> batch(String aKey, Integer aValue, String anotherKey, Integer anotherValue)
+    {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put(aKey, aValue);
+        values.put(anotherKey, anotherValue);
+        return values;
+    }
+    
+    /**
+     * Checks that adding milk takings with the given yield, or updating the
+     * given milk takings to it when they are not null, is refused.
+     */
+    private void assertNegativeRefused(TimePeriod aMilkingSession, int aMilkYield, Cow aCow, MilkTakings aMilkTakings)
+    {
+        try
+        {
+            if (aMilkTakings == null)
+            {
+                maxT.addMilkTakingsCentilitres(aMilkingSession, aMilkYield, aCow);
+            }
+            else
+            {
+                maxT.updateMilkTakingsCentilitres(aMilkTakings, aMilkYield);
+            }
+            fail("The milk yield " + aMilkYield + " was accepted.");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+    
+    private void assertRefused(Map<String, Integer> someYieldValues)
+    {
+        try
+        {
+            maxT.updateYieldValues(someYieldValues);
+            fail("The batch " + someYieldValues + " was accepted.");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+}
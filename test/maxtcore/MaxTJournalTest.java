@@ -0,0 +1,206 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import timeperiod.*;
+
+/**
+ * Checks that the journal replays the changes made since the last snapshot,
+ * drops a torn tail, compacts in the background and refuses changes once it
+ * could not be written.
+ * @author Michael Gallichan
+ */
+class MaxTJournalTest
+{
+    // class variables
+    private static final long TIMEOUT_MILLIS = 10000;
+    private static final int HISTORY_DAYS = 30;  // days of each cow's history compared by describe
+    
+    // instance variables
+    @TempDir
+    Path directory;
+    private Path snapshotFile;
+    private Path journalFile;
+    
+    @BeforeEach
+    void setUp()
+    {
+        snapshotFile = directory.resolve("maxt.snapshot");
+        journalFile = directory.resolve("maxt.journal");
+    }
+    
+    @Test
+    void replaysChangesSinceSnapshot() throws IOException
+    {
+        MaxTCoord maxT = MaxTJournal.open(snapshotFile, journalFile);
+        makeChanges(maxT);
+        String expected = describe(maxT);
+        maxT.getJournal().close();
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, describe(replayed));
+        assertEquals(1, replayed.getCurrentDay());
+        replayed.getJournal().close();
+    }
+    
+    @Test
+    void dropsTornTail() throws IOException
+    {
+        MaxTCoord maxT = MaxTJournal.open(snapshotFile, journalFile);
+        makeChanges(maxT);
+        String expected = describe(maxT);
+        maxT.getJournal().close();
+        
+        // the start of a record whose body never reached the disk
+        Files.write(journalFile, new byte[] {0, 0, 0, 40, 3, 1, 2}, StandardOpenOption.APPEND);
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, describe(replayed));
+        Herd herd = replayed.findHerd(replayed.findFarm("F1"), "H1");
+        replayed.addCow("C9", herd);
+        expected = describe(replayed);
+        replayed.getJournal().close();
+        
+        MaxTCoord again = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, describe(again));
+        again.getJournal().close();
+    }
+    
+    @Test
+    void compactsInBackground() throws IOException, InterruptedException
+    {
+        MaxTCoord maxT = MaxTJournal.open(snapshotFile, journalFile);
+        maxT.getJournal().setCompactionThreshold(1);
+        makeChanges(maxT);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (maxT.getJournalGeneration() == 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertTrue(maxT.getJournalGeneration() > 0);
+        assertTrue(Files.exists(snapshotFile));
+        String expected = describe(maxT);
+        maxT.getJournal().close();
+        
+        MaxTCoord replayed = MaxTJournal.open(snapshotFile, journalFile);
+        assertEquals(expected, describe(replayed));
+        replayed.getJournal().close();
+    }
+    
+    @Test
+    void refusesChangesAfterFailedWrite() throws Exception
+    {
+        MaxTCoord maxT = MaxTJournal.open(snapshotFile, journalFile);
+        makeChanges(maxT);
+        MaxTJournal journal = maxT.getJournal();
+        journal.sync();
+        
+        // make every later write fail, as a full or removed disk would
+        Field channelField = MaxTJournal.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        ((FileChannel)channelField.get(journal)).close();
+        
+        Herd herd = maxT.findHerd(maxT.findFarm("F1"), "H1");
+        maxT.addCow("C8", herd);
+        try
+        {
+            journal.sync();
+            fail("The failed write was not reported.");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        
+        String before = describe(maxT);
+        try
+        {
+            maxT.addCow("C9", herd);
+            fail("A change was accepted although it could not be journalled.");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        assertEquals(before, describe(maxT));
+        assertNull(maxT.findCow(herd, "C9"));
+        
+        try
+        {
+            journal.close();
+        }
+        catch (IOException e)
+        {
+            // the failure is reported again on closing
+        }
+    }
+    
+    // package protocol
+    
+    /**
+     * Describes every farm, herd, cow and milk takings of the given
+     * coordinating object, so two states can be compared.
+     */
+    static String describe(MaxTCoord aMaxT)
+    {
+        StringBuilder text = new StringBuilder();
+        text.append("day ").append(aMaxT.getCurrentDay()).append(' ').append(aMaxT.getYieldTable()).append('\n');
+        for (Farm eachFarm : aMaxT.getFarms())
+        {
+            text.append(eachFarm.getId()).append('\n');
+            for (Herd eachHerd : aMaxT.getHerds(eachFarm))
+            {
+                text.append(' ').append(eachHerd.getId()).append(' ')
+                    .append(eachHerd.getAvgDailyMilkYieldCentilitres()).append('\n');
+                for (Cow eachCow : aMaxT.getCows(eachHerd))
+                {
+                    text.append("  ").append(eachCow.getId())
+                        .append(" history ").append(eachCow.getAvgDailyMilkYieldCentilitres(HISTORY_DAYS));
+                    for (MilkTakings eachTakings : aMaxT.getMilkTakings(eachCow).values())
+                    {
+                        text.append(' ').append(eachTakings.getMilkingSession())
+                            .append('=').append(eachTakings.getMilkYieldCentilitres());
+                    }
+                    text.append('\n');
+                }
+            }
+        }
+        return text.toString();
+    }
+    
+    // private protocol
+    
+    private void makeChanges(MaxTCoord aMaxT)
+    {
+        aMaxT.addFarm("F1", "Home Farm", "North");
+        Farm farm = aMaxT.findFarm("F1");
+        aMaxT.addHerd("H1", "Objects", MilkingIntervals.EIGHT, farm);
+        aMaxT.setCompactHerds(true);
+        aMaxT.addHerd("H2", "Compact", MilkingIntervals.NINE, farm);
+        for (Herd eachHerd : aMaxT.getHerds(farm))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                aMaxT.addCow("C" + i, eachHerd);
+                Cow cow = aMaxT.findCow(eachHerd, "C" + i);
+                aMaxT.addMilkTakingsCentilitres(TimePeriod.AM, 1000 + i * 150, cow);
+                aMaxT.addMilkTakingsCentilitres(TimePeriod.PM, 900, cow);
+            }
+            Cow first = aMaxT.findCow(eachHerd, "C0");
+            aMaxT.updateMilkTakingsCentilitres(aMaxT.getMilkTakings(first).get(TimePeriod.AM), 1234);
+            aMaxT.deleteMilkTakings(TimePeriod.PM, aMaxT.findCow(eachHerd, "C1"));
+            aMaxT.deleteCow(aMaxT.findCow(eachHerd, "C2"));
+        }
+        aMaxT.advanceDay();
+        aMaxT.addMilkTakingsCentilitres(TimePeriod.AM, 1111, aMaxT.findCow(aMaxT.findHerd(farm, "H1"), "C0"));
+        aMaxT.updateYieldValue("25,(9,15),PM", 12);
+    }
+}
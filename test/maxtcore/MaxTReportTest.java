@@ -0,0 +1,86 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import timeperiod.*;
+
+/**
+ * Checks that a report calculated in parallel matches one calculated on the
+ * calling thread.
+ * @author Michael Gallichan
+ */
+class MaxTReportTest
+{
+    // class variables
+    private static final int NUMBER_OF_FARMS = 3;
+    private static final int HERDS_PER_FARM = 12;
+    
+    // instance variables
+    private MaxTCoord maxT;
+    
+    @BeforeEach
+    void setUp()
+    {
+        maxT = MaxTCoord.getMaxT();
+        for (int f = 0; f < NUMBER_OF_FARMS; f++)
+        {
+            maxT.addFarm("F" + f, "Farm " + f, "Here");
+            Farm farm = maxT.findFarm("F" + f);
+            for (int h = 0; h < HERDS_PER_FARM; h++)
+            {
+                maxT.setCompactHerds(h % 2 == 0);
+                maxT.addHerd("H" + h, "Herd " + h, MilkingIntervals.NINE, farm);
+                addCows(maxT.findHerd(farm, "H" + h), h * 40, h % 3 != 0);
+            }
+        }
+    }
+    
+    @Test
+    void parallelReportMatchesSequentialReport()
+    {
+        maxT.setParallelReportThreshold(Integer.MAX_VALUE);
+        String sequential = maxT.getReport().toString();
+        
+        maxT.setReportParallelism(4);
+        maxT.setParallelReportThreshold(0);
+        assertEquals(sequential, maxT.getReport().toString());
+        
+        maxT.setCheckingAggregates(true);
+        assertEquals(sequential, maxT.getReport().toString());
+    }
+    
+    @Test
+    void replacingThePoolKeepsReporting()
+    {
+        maxT.setParallelReportThreshold(0);
+        maxT.setReportParallelism(2);
+        String report = maxT.getReport().toString();
+        
+        maxT.setReportParallelism(3);
+        maxT.setReportParallelism(3);
+        assertEquals(3, maxT.getReportParallelism());
+        assertEquals(report, maxT.getReport().toString());
+    }
+    
+    // private protocol
+    
+    /**
+     * Adds the given number of cows to the given herd, each with AM takings
+     * and, if the herd is complete, PM takings.
+     */
+    private void addCows(Herd aHerd, int aNumberOfCows, boolean isComplete)
+    {
+        for (int i = 0; i < aNumberOfCows; i++)
+        {
+            maxT.addCow("C" + i, aHerd);
+            Cow cow = maxT.findCow(aHerd, "C" + i);
+            maxT.addMilkTakingsCentilitres(TimePeriod.AM, 1100 + i * 7 % 900, cow);
+            if (isComplete)
+            {
+                maxT.addMilkTakingsCentilitres(TimePeriod.PM, 1000 + i * 11 % 700, cow);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import timeperiod.*;
+
+/**
+ * Checks that a snapshot restores everything it saves, that files written
+ * in the first formats are still read, and that damaged files are refused.
+ * @author Michael Gallichan
+ */
+class MaxTSnapshotTest
+{
+    // class variables
+    private static final int MAGIC = 0x4D415854;
+    private static final int DEFAULT_CELLS = 24;  // 6 rows of 2 milking intervals of 2 sessions
+    
+    // instance variables
+    @TempDir
+    Path directory;
+    
+    @Test
+    void restoresSavedState() throws IOException
+    {
+        MaxTCoord maxT = MaxTCoord.getMaxT(10, 30, 5);
+        maxT.updateYieldValue("15,(9,15),PM", 12);
+        maxT.addFarm("F1", "Home Farm", "North");
+        Farm farm = maxT.findFarm("F1");
+        maxT.addHerd("H1", "Objects", MilkingIntervals.EIGHT, farm);
+        maxT.setCompactHerds(true);
+        maxT.addHerd("H2", "Compact", MilkingIntervals.NINE, farm);
+        for (Herd eachHerd : maxT.getHerds(farm))
+        {
+            maxT.setAverageWindow(eachHerd, 2);
+            for (int i = 0; i < 3; i++)
+            {
+                maxT.addCow("C" + i, eachHerd);
+            }
+        }
+        for (int day = 0; day < 3; day++)
+        {
+            for (Herd eachHerd : maxT.getHerds(farm))
+            {
+                for (Cow eachCow : maxT.getCows(eachHerd))
+                {
+                    maxT.addMilkTakingsCentilitres(TimePeriod.AM, 1000 + day * 25, eachCow);
+                    maxT.addMilkTakingsCentilitres(TimePeriod.PM, 950, eachCow);
+                }
+            }
+            maxT.advanceDay();
+        }
+        Herd objectHerd = maxT.findHerd(farm, "H1");
+        maxT.addMilkTakingsCentilitres(TimePeriod.AM, 1111, maxT.findCow(objectHerd, "C1"));
+        maxT.setJournalGeneration(7);
+        
+        Path file = directory.resolve("state.maxt");
+        MaxTSnapshot.save(maxT, file);
+        MaxTCoord restored = MaxTSnapshot.load(file);
+        
+        assertEquals(3, restored.getCurrentDay());
+        assertEquals(7, restored.getJournalGeneration());
+        assertEquals(maxT.getYieldTable(), restored.getYieldTable());
+        assertEquals(12, restored.getYieldTableValue("15,(9,15),PM"));
+        Farm restoredFarm = restored.findFarm("F1");
+        assertEquals("North", restoredFarm.getLocation());
+        for (Herd eachHerd : maxT.getHerds(farm))
+        {
+            Herd restoredHerd = restored.findHerd(restoredFarm, eachHerd.getId());
+            assertEquals(eachHerd.isCompact(), restoredHerd.isCompact());
+            assertEquals(eachHerd.getMilkingIntervals(), restoredHerd.getMilkingIntervals());
+            assertEquals(2, restoredHerd.getAverageWindow());
+            assertEquals(eachHerd.getNumberOfCows(), restoredHerd.getNumberOfCows());
+            assertEquals(eachHerd.getAvgDailyMilkYieldCentilitres(), restoredHerd.getAvgDailyMilkYieldCentilitres());
+            assertEquals(eachHerd.getAvgDailyMilkYieldCentilitres(3), restoredHerd.getAvgDailyMilkYieldCentilitres(3));
+            assertEquals(eachHerd.getWindowAvgDailyMilkYieldCentilitres(),
+                         restoredHerd.getWindowAvgDailyMilkYieldCentilitres());
+            for (Cow eachCow : maxT.getCows(eachHerd))
+            {
+                Cow restoredCow = restored.findCow(restoredHerd, eachCow.getId());
+                assertEquals(eachCow.getRecordedMilkYield(), restoredCow.getRecordedMilkYield());
+                assertEquals(eachCow.getAvgDailyMilkYieldCentilitres(3), restoredCow.getAvgDailyMilkYieldCentilitres(3));
+            }
+            assertTrue(restored.isHerdAggregateConsistent(restoredHerd));
+        }
+    }
+    
+    @Test
+    void replacesLoadedFile() throws IOException
+    {
+        Path file = directory.resolve("state.maxt");
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.addFarm("F1", "Home Farm", "North");
+        MaxTSnapshot.save(maxT, file);
+        
+        MaxTCoord restored = MaxTSnapshot.load(file);
+        restored.addFarm("F2", "Hill Farm", "South");
+        MaxTSnapshot.save(restored, file);
+        
+        assertEquals(2, MaxTSnapshot.load(file).getFarms().size());
+    }
+    
+    @Test
+    void readsVersion1InWholeLitres() throws IOException
+    {
+        MaxTCoord restored = MaxTSnapshot.load(writeOldSnapshot(1));
+        
+        assertEquals(0, restored.getJournalGeneration());
+        checkOldSnapshot(restored);
+    }
+    
+    @Test
+    void readsVersion2WithJournalGeneration() throws IOException
+    {
+        MaxTCoord restored = MaxTSnapshot.load(writeOldSnapshot(2));
+        
+        assertEquals(5, restored.getJournalGeneration());
+        checkOldSnapshot(restored);
+    }
+    
+    @Test
+    void refusesDamagedFiles() throws IOException
+    {
+        Path file = directory.resolve("state.maxt");
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.addFarm("F1", "Home Farm", "North");
+        MaxTSnapshot.save(maxT, file);
+        byte[] bytes = Files.readAllBytes(file);
+        
+        Path truncated = directory.resolve("truncated.maxt");
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertLoadFails(truncated);
+        
+        Path notSnapshot = directory.resolve("other.maxt");
+        Files.write(notSnapshot, "FARM,F1,Home Farm,North".getBytes(StandardCharsets.UTF_8));
+        assertLoadFails(notSnapshot);
+        
+        Path future = directory.resolve("future.maxt");
+        bytes[5] = 99;  // the low byte of the version
+        Files.write(future, bytes);
+        assertLoadFails(future);
+    }
+    
+    @Test
+    void refusesDamagedCounts() throws IOException
+    {
+        Path file = directory.resolve("state.maxt");
+        MaxTCoord maxT = MaxTCoord.getMaxT();
+        maxT.addFarm("F1", "Home Farm", "North");
+        Farm farm = maxT.findFarm("F1");
+        maxT.addHerd("H1", "Main", MilkingIntervals.EIGHT, farm);
+        Herd herd = maxT.findHerd(farm, "H1");
+        maxT.addCow("C1", herd);
+        maxT.addMilkTakingsCentilitres(TimePeriod.AM, 1000, maxT.findCow(herd, "C1"));
+        maxT.advanceDay();
+        MaxTSnapshot.save(maxT, file);
+        byte[] bytes = Files.readAllBytes(file);
+        
+        int herdDays = indexOf(bytes, "Main") + 4 + 1 + 1 + 4;  // after the interval, compact flag and window
+        int cowDays = indexOf(bytes, "C1") + 2 + 1;  // after the takings flags
+        int maxYield = 4 + 2 + 8 + 4 + 4;  // after the magic number, version, generation, day and minimum
+        for (int eachCount : new int[] {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 20})
+        {
+            assertLoadFails(write(damage(bytes, herdDays, eachCount)));
+            assertLoadFails(write(damage(bytes, cowDays, eachCount)));
+        }
+        assertLoadFails(write(damage(damage(bytes, maxYield - 4, 0), maxYield, 2000000000)));
+        assertLoadFails(write(damage(bytes, maxYield, 1000000)));
+        assertNotNull(MaxTSnapshot.load(write(bytes)));
+    }
+    
+    // private protocol
+    
+    /**
+     * Writes a snapshot in the given early format, which had no current day,
+     * histories, average windows or compact herds and held whole litres:
+     * one farm with one herd of two cows, the second without PM takings.
+     */
+    private Path writeOldSnapshot(int aVersion) throws IOException
+    {
+        Path file = directory.resolve("v" + aVersion + ".maxt");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeShort(aVersion);
+            if (aVersion >= 2)
+            {
+                out.writeLong(5);
+            }
+            out.writeInt(20);
+            out.writeInt(25);
+            out.writeInt(1);
+            for (int i = 0; i < DEFAULT_CELLS; i++)
+            {
+                out.writeInt(i + 1);
+            }
+            out.writeInt(1);
+            out.writeUTF("F1");
+            out.writeUTF("Home Farm");
+            out.writeUTF("North");
+            out.writeInt(1);
+            out.writeUTF("H1");
+            out.writeUTF("Main");
+            out.writeByte(MilkingIntervals.NINE.ordinal());
+            out.writeInt(2);
+            out.writeUTF("C1");
+            out.writeByte(3);  // AM and PM takings
+            out.writeInt(11);
+            out.writeInt(10);
+            out.writeUTF("C2");
+            out.writeByte(1);  // AM takings only
+            out.writeInt(12);
+        }
+        
+        return file;
+    }
+    
+    private Path write(byte[] someBytes) throws IOException
+    {
+        Path file = directory.resolve("damaged.maxt");
+        Files.write(file, someBytes);
+        return file;
+    }
+    
+    /**
+     * Returns a copy of the given snapshot with the int at the given offset
+     * replaced.
+     */
+    private static byte[] damage(byte[] someBytes, int anOffset, int aValue)
+    {
+        byte[] damaged = someBytes.clone();
+        java.nio.ByteBuffer.wrap(damaged).putInt(anOffset, aValue);
+        return damaged;
+    }
+    
+    private static int indexOf(byte[] someBytes, String aString)
+    {
+        byte[] wanted = aString.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + wanted.length <= someBytes.length; i++)
+        {
+            if (java.util.Arrays.equals(java.util.Arrays.copyOfRange(someBytes, i, i + wanted.length), wanted))
+            {
+                return i;
+            }
+        }
+        throw new AssertionError(aString + " is not in the snapshot.");
+    }
+    
+    private static void assertLoadFails(Path aFile)
+    {
+        try
+        {
+            MaxTSnapshot.load(aFile);
+            fail(aFile + " was loaded.");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+    
+    private static void checkOldSnapshot(MaxTCoord aMaxT)
+    {
+        assertEquals(0, aMaxT.getCurrentDay());
+        assertEquals(1, aMaxT.getYieldTableValue("20,(8,16),AM"));
+        assertEquals(24, aMaxT.getYieldTableValue("25,(9,15),PM"));
+        Herd herd = aMaxT.findHerd(aMaxT.findFarm("F1"), "H1");
+        assertEquals(MilkingIntervals.NINE, herd.getMilkingIntervals());
+        assertFalse(herd.isCompact());
+        Cow first = aMaxT.findCow(herd, "C1");
+        Cow second = aMaxT.findCow(herd, "C2");
+        assertEquals(2100, first.getDailyMilkYieldCentilitres());
+        assertEquals(1200, aMaxT.getMilkTakings(second).get(TimePeriod.AM).getMilkYieldCentilitres());
+        assertNull(aMaxT.getMilkTakings(second).get(TimePeriod.PM));
+        assertEquals(1650, herd.getAvgDailyMilkYieldCentilitres());
+    }
+}
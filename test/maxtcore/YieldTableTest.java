@@ -0,0 +1,94 @@
+
+package maxtcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.*;
+import java.util.*;
+import milkingintervals.*;
+import org.junit.jupiter.api.*;
+import timeperiod.*;
+
+/**
+ * Checks that a yield in centilitres finds the same Yield Table row as the
+ * whole litres it rounds to, and that the cells without a value are counted
+ * and listed as they change.
+ * @author Michael Gallichan
+ */
+class YieldTableTest
+{
+    // instance variables
+    private YieldTable yieldTable;
+    
+    @BeforeEach
+    void setUp()
+    {
+        yieldTable = new YieldTable(20, 40, 5);
+        for (int yield = 20; yield <= 40; yield = yield + 5)
+        {
+            yieldTable.updateYieldValue(yieldTable.getMapKey(yield, MilkingIntervals.EIGHT, TimePeriod.AM), yield);
+        }
+    }
+    
+    @Test
+    void centilitresFindTheRowOfTheirRoundedLitres()
+    {
+        assertEquals(20, getValue(2300, RoundingMode.HALF_UP));
+        assertEquals(20, yieldTable.getValue(23, MilkingIntervals.EIGHT, TimePeriod.AM));
+        assertEquals(20, getValue(2449, RoundingMode.HALF_UP));
+        assertEquals(25, getValue(2450, RoundingMode.HALF_UP));
+        assertEquals(20, getValue(2450, RoundingMode.FLOOR));
+        assertEquals(20, getValue(1950, RoundingMode.HALF_UP));
+        assertEquals(0, getValue(1949, RoundingMode.HALF_UP));
+        assertEquals(40, getValue(4449, RoundingMode.HALF_UP));
+        assertEquals(0, getValue(4450, RoundingMode.HALF_UP));
+    }
+    
+    @Test
+    void everyRoundingAgreesWithWholeLitreLookup()
+    {
+        RoundingMode[] modes = {RoundingMode.HALF_UP, RoundingMode.HALF_EVEN, RoundingMode.FLOOR, RoundingMode.CEILING};
+        for (RoundingMode eachMode : modes)
+        {
+            for (int centilitres = 1500; centilitres <= 5000; centilitres++)
+            {
+                int litres = Centilitres.toLitres(centilitres, eachMode);
+                assertEquals(yieldTable.getValue(litres, MilkingIntervals.EIGHT, TimePeriod.AM),
+                             getValue(centilitres, eachMode), centilitres + " cl " + eachMode);
+            }
+        }
+    }
+    
+    @Test
+    void countsAndListsMissingCells()
+    {
+        int cells = yieldTable.getNumberOfCells();
+        assertEquals(cells - 5, yieldTable.getNumberOfMissingCells());
+        assertFalse(yieldTable.isYieldTableComplete());
+        assertFalse(yieldTable.getMissingCellKeys().contains("25,(8,16),AM"));
+        assertTrue(yieldTable.getMissingCellKeys().contains("25,(8,16),PM"));
+        
+        yieldTable.updateYieldValue("25,(8,16),AM", 0);
+        assertEquals(cells - 4, yieldTable.getNumberOfMissingCells());
+        assertTrue(yieldTable.getMissingCellKeys().contains("25,(8,16),AM"));
+        yieldTable.updateYieldValue("25,(8,16),AM", 0);  // already missing
+        assertEquals(cells - 4, yieldTable.getNumberOfMissingCells());
+        
+        int[] values = new int[cells];
+        Arrays.fill(values, 7);
+        values[3] = 0;
+        yieldTable.setCellValues(values);
+        assertEquals(1, yieldTable.getNumberOfMissingCells());
+        assertEquals(Arrays.asList("20,(9,15),PM"), yieldTable.getMissingCellKeys());
+        
+        yieldTable.updateYieldValue("20,(9,15),PM", 9);
+        assertTrue(yieldTable.isYieldTableComplete());
+        assertTrue(yieldTable.getMissingCellKeys().isEmpty());
+    }
+    
+    // private protocol
+    
+    private int getValue(long aYield, RoundingMode aRoundingMode)
+    {
+        return yieldTable.getValueForCentilitres(aYield, aRoundingMode, MilkingIntervals.EIGHT, TimePeriod.AM);
+    }
+}